@@ -0,0 +1,220 @@
+package com.hello.disruptor;
+
+import com.hello.disruptor.metrics.DisruptorMetrics;
+import com.lmax.disruptor.Cursored;
+import com.lmax.disruptor.Sequenced;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.LongSupplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.BeanNameAware;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+
+/**
+ * <h1>disruptor bean 的公共部分, 负责配置绑定, 指标和生命周期</h1>
+ *
+ * 启动时按 {@link #propertyPrefix()} 绑定配置, 创建指标和异常处理器, 然后调用 {@link #start()};
+ * 子类在 start 中创建 ringBuffer 和消费者, 用 {@link #addRingBuffer(Cursored, Tags)} 登记.
+ * 堆内的 RingBuffer, off-heap 和共享内存的 ringBuffer 都实现了 Cursored 和 Sequenced,
+ * 容量相关的方法按登记的 ringBuffer 计算, 有多个 ringBuffer 时以最满的一个为准.
+ *
+ * @param <R> ringBuffer 类型
+ * */
+@Slf4j
+public abstract class AbstractDisruptorLifecycle<R extends Cursored & Sequenced>
+  implements
+    InitializingBean, DisposableBean, EnvironmentAware, BeanNameAware {
+
+  /** 关闭时等已发布的事件处理完的最长时间 */
+  private static final Duration DRAIN_TIMEOUT = Duration.ofMinutes(1);
+
+  private final List<R> ringBuffers = new ArrayList<>();
+  private Environment environment;
+  private DisruptorProperties properties;
+  private MeterRegistry meterRegistry = Metrics.globalRegistry;
+  private String beanName;
+  private DisruptorMetrics metrics;
+  private EventMessageExceptionHandler exceptionHandler;
+
+  /**
+   * <h2>创建 ringBuffer 和消费者并启动, 调用时配置, 指标和异常处理器都已经可用</h2>
+   * */
+  protected abstract void start() throws Exception;
+
+  /**
+   * <h2>停止消费者, 返回后指标会被移除</h2>
+   * */
+  protected abstract void stop() throws Exception;
+
+  /**
+   * <h2>ringBuffer 剩余空位数, 有多个 ringBuffer 时取最少的一个</h2>
+   * */
+  public long remainingCapacity() {
+    long remaining = Long.MAX_VALUE;
+    for (R ringBuffer : ringBuffers) {
+      remaining = Math.min(remaining, ringBuffer.remainingCapacity());
+    }
+    return remaining;
+  }
+
+  public int getBufferSize() {
+    return ringBuffers.get(0).getBufferSize();
+  }
+
+  /**
+   * <h2>ringBuffer 占用率, 0 表示空, 1 表示满; 调用方可以据此提前限流</h2>
+   * */
+  public double fillRatio() {
+    double ratio = 0.0;
+    for (R ringBuffer : ringBuffers) {
+      long remaining = ringBuffer.remainingCapacity();
+      ratio =
+      Math.max(ratio, 1.0 - (double) remaining / ringBuffer.getBufferSize());
+    }
+    return ratio;
+  }
+
+  /**
+   * <h2>配置属性前缀, 子类覆盖后可以单独调优</h2>
+   * */
+  protected String propertyPrefix() {
+    return "hello.disruptor";
+  }
+
+  /**
+   * <h2>默认配置, 属性文件中的值会覆盖这里的值</h2>
+   * */
+  protected DisruptorProperties defaultProperties() {
+    return new DisruptorProperties();
+  }
+
+  /**
+   * <h2>消费者线程工厂</h2>
+   * */
+  protected ThreadFactory threadFactory(DisruptorProperties properties) {
+    return properties.newThreadFactory();
+  }
+
+  /**
+   * <h2>登记 ringBuffer 并注册它的发布数, 容量和积压指标, 在 {@link #start()} 中调用</h2>
+   *
+   * @param tags 区分多个 ringBuffer 的标签, 例如分片号
+   * */
+  protected final void addRingBuffer(R ringBuffer, Tags tags) {
+    ringBuffers.add(ringBuffer);
+    metrics.bindRingBuffer(ringBuffer, tags);
+  }
+
+  /**
+   * <h2>第 index 个登记的 ringBuffer</h2>
+   * */
+  protected final R getRingBuffer(int index) {
+    return ringBuffers.get(index);
+  }
+
+  protected final int getRingBufferCount() {
+    return ringBuffers.size();
+  }
+
+  /**
+   * <h2>等最慢的消费者处理完已发布的事件, 超时后记录日志并返回 false</h2>
+   *
+   * @param minimumGatingSequence 最慢的消费者已处理的序号
+   * */
+  protected boolean awaitDrained(
+    R ringBuffer,
+    LongSupplier minimumGatingSequence
+  ) throws InterruptedException {
+    long deadline = System.nanoTime() + DRAIN_TIMEOUT.toNanos();
+    while (true) {
+      long minimum = minimumGatingSequence.getAsLong();
+      if (minimum >= ringBuffer.getCursor()) {
+        return true;
+      }
+      if (System.nanoTime() - deadline > 0) {
+        log.error(
+          "{} not drained within {}, ring={} cursor={} minimumGatingSequence={}",
+          getName(),
+          DRAIN_TIMEOUT,
+          ringBuffers.indexOf(ringBuffer),
+          ringBuffer.getCursor(),
+          minimum
+        );
+        return false;
+      }
+      Thread.sleep(1);
+    }
+  }
+
+  /**
+   * <h2>bean 名称, 不在容器中时为类名; 用作指标的 disruptor 标签</h2>
+   * */
+  protected String getName() {
+    return beanName != null ? beanName : getClass().getSimpleName();
+  }
+
+  protected EventMessageExceptionHandler getExceptionHandler() {
+    return exceptionHandler;
+  }
+
+  @Override
+  public void setEnvironment(Environment environment) {
+    this.environment = environment;
+  }
+
+  @Override
+  public void setBeanName(String beanName) {
+    this.beanName = beanName;
+  }
+
+  @Autowired(required = false)
+  public void setMeterRegistry(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  public DisruptorProperties getProperties() {
+    return properties;
+  }
+
+  public DisruptorMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * <h2>初始化方法</h2>
+   * */
+  @Override
+  public void afterPropertiesSet() throws Exception {
+    properties =
+    DisruptorProperties.bind(
+      environment,
+      propertyPrefix(),
+      defaultProperties()
+    );
+    log.info("{} {}", getName(), properties);
+    metrics = new DisruptorMetrics(meterRegistry, getName());
+    exceptionHandler = new EventMessageExceptionHandler(metrics);
+    start();
+  }
+
+  /**
+   * <h2>bean 销毁之前需要执行的销毁方法</h2>
+   * */
+  @Override
+  public void destroy() throws Exception {
+    try {
+      stop();
+    } finally {
+      metrics.close();
+    }
+  }
+}
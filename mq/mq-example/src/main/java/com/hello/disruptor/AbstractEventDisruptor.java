@@ -0,0 +1,250 @@
+package com.hello.disruptor;
+
+import com.lmax.disruptor.EventFactory;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.EventTranslatorOneArg;
+import com.lmax.disruptor.EventTranslatorThreeArg;
+import com.lmax.disruptor.EventTranslatorTwoArg;
+import com.lmax.disruptor.InsufficientCapacityException;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.WorkHandler;
+import com.lmax.disruptor.dsl.Disruptor;
+import io.micrometer.core.instrument.Tags;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * <h1>disruptor 通用基类, 负责创建 Disruptor 和发布事件</h1>
+ *
+ * 事件类型 E 由子类通过 {@link #eventFactory()} 预分配, 发布时用 EventTranslator 原地填充.
+ * 配置绑定和指标见 {@link AbstractDisruptorLifecycle}, 指标注册到容器中的 MeterRegistry,
+ * 没有时注册到 Micrometer 的全局 registry;
+ * 处理器用 {@link #instrument(String, EventHandler)} 包装后才有处理器级别的指标.
+ *
+ * @param <E> 预分配在 ringBuffer 中的事件类型
+ * */
+public abstract class AbstractEventDisruptor<E>
+  extends AbstractDisruptorLifecycle<RingBuffer<E>> {
+
+  /** 限时发布时 park 的退避区间 */
+  private static final long MIN_PARK_NANOS = 1_000;
+  private static final long MAX_PARK_NANOS = 1_000_000;
+
+  protected Disruptor<E> disruptor;
+  private RingBuffer<E> ringBuffer;
+
+  /**
+   * <h2>事件工厂, 启动时为每个槽位创建一个事件对象</h2>
+   * */
+  protected abstract EventFactory<E> eventFactory();
+
+  /**
+   * <h2>设置事件处理器</h2>
+   * */
+  protected abstract void handleEvent();
+
+  /**
+   * <h2>生产者, 用一个参数填充事件</h2>
+   * */
+  public <A> void publishEvent(EventTranslatorOneArg<E, A> translator, A arg0) {
+    ringBuffer.publishEvent(translator, arg0);
+  }
+
+  /**
+   * <h2>生产者, 用两个参数填充事件</h2>
+   * */
+  public <A, B> void publishEvent(
+    EventTranslatorTwoArg<E, A, B> translator,
+    A arg0,
+    B arg1
+  ) {
+    ringBuffer.publishEvent(translator, arg0, arg1);
+  }
+
+  /**
+   * <h2>生产者, 用三个参数填充事件</h2>
+   * */
+  public <A, B, C> void publishEvent(
+    EventTranslatorThreeArg<E, A, B, C> translator,
+    A arg0,
+    B arg1,
+    C arg2
+  ) {
+    ringBuffer.publishEvent(translator, arg0, arg1, arg2);
+  }
+
+  /**
+   * <h2>非阻塞发布, ringBuffer 已满时立即返回 false</h2>
+   * */
+  public <A> boolean tryPublishEvent(
+    EventTranslatorOneArg<E, A> translator,
+    A arg0
+  ) {
+    return ringBuffer.tryPublishEvent(translator, arg0);
+  }
+
+  /**
+   * <h2>限时发布, 超时仍没有空位时返回 false</h2>
+   * */
+  public <A> boolean publishEvent(
+    EventTranslatorOneArg<E, A> translator,
+    A arg0,
+    long timeout,
+    TimeUnit unit
+  ) throws InterruptedException {
+    final long deadline = System.nanoTime() + unit.toNanos(timeout);
+    long parkNanos = MIN_PARK_NANOS;
+    while (true) {
+      if (ringBuffer.tryPublishEvent(translator, arg0)) {
+        return true;
+      }
+      long remaining = deadline - System.nanoTime();
+      if (remaining <= 0) {
+        return false;
+      }
+      LockSupport.parkNanos(Math.min(parkNanos, remaining));
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+      parkNanos = Math.min(parkNanos << 1, MAX_PARK_NANOS);
+    }
+  }
+
+  /**
+   * <h2>批量发布, 一次申请一段连续序号</h2>
+   *
+   * 超过 bufferSize 的集合按 bufferSize 分段, 每段连续.
+   * */
+  public <A> void publishEvents(
+    EventTranslatorOneArg<E, A> translator,
+    Collection<? extends A> args
+  ) {
+    Iterator<? extends A> iterator = args.iterator();
+    int remaining = args.size();
+    while (remaining > 0) {
+      int batchSize = Math.min(remaining, ringBuffer.getBufferSize());
+      long hi = ringBuffer.next(batchSize);
+      fill(translator, iterator, hi - batchSize + 1, hi);
+      remaining -= batchSize;
+    }
+  }
+
+  /**
+   * <h2>非阻塞批量发布, 剩余容量不足以放下整个集合时不发布任何事件</h2>
+   * */
+  public <A> boolean tryPublishEvents(
+    EventTranslatorOneArg<E, A> translator,
+    Collection<? extends A> args
+  ) {
+    int batchSize = args.size();
+    if (batchSize == 0) {
+      return true;
+    }
+    if (batchSize > ringBuffer.getBufferSize()) {
+      return false;
+    }
+    long hi;
+    try {
+      hi = ringBuffer.tryNext(batchSize);
+    } catch (InsufficientCapacityException ex) {
+      return false;
+    }
+    fill(translator, args.iterator(), hi - batchSize + 1, hi);
+    return true;
+  }
+
+  /**
+   * <h2>包装处理器, 记录服务时间, 批大小和 lag, 在 {@link #handleEvent()} 中使用</h2>
+   * */
+  protected EventHandler<E> instrument(
+    String handlerName,
+    EventHandler<E> handler
+  ) {
+    RingBuffer<E> ringBuffer = disruptor.getRingBuffer();
+    return getMetrics().timed(handlerName, handler, ringBuffer, Tags.empty());
+  }
+
+  /**
+   * <h2>包装异步完成事件的处理器, lag 按 completedSequence 计算</h2>
+   *
+   * @see ExecutorDispatchingEventHandler#getCompletedSequence()
+   * */
+  protected EventHandler<E> instrument(
+    String handlerName,
+    EventHandler<E> handler,
+    LongSupplier completedSequence
+  ) {
+    RingBuffer<E> ringBuffer = disruptor.getRingBuffer();
+    return getMetrics()
+      .timed(handlerName, handler, ringBuffer, completedSequence, Tags.empty());
+  }
+
+  /**
+   * <h2>包装 worker pool 的处理器, 记录服务时间</h2>
+   * */
+  protected WorkHandler<E> instrumentWorker(
+    String handlerName,
+    WorkHandler<E> handler
+  ) {
+    return getMetrics().timed(handlerName, handler, Tags.empty());
+  }
+
+  protected RingBuffer<E> getRingBuffer() {
+    return ringBuffer;
+  }
+
+  /**
+   * <h2>创建并启动 disruptor</h2>
+   * */
+  @Override
+  protected void start() {
+    DisruptorProperties properties = getProperties();
+    // 实例化 disruptor
+    disruptor =
+    new Disruptor<>(
+      eventFactory(),
+      properties.getBufferSize(),
+      threadFactory(properties),
+      properties.getProducerType(),
+      properties.newWaitStrategy()
+    );
+    // 设置事件处理器
+    handleEvent();
+    // 异常处理器
+    disruptor.setDefaultExceptionHandler(getExceptionHandler());
+    // 启动 disruptor 实现生产和消费
+    disruptor.start();
+    // 初始化 ringBuffer
+    ringBuffer = disruptor.getRingBuffer();
+    addRingBuffer(ringBuffer, Tags.empty());
+  }
+
+  /**
+   * <h2>等已发布的事件处理完后停止消费者</h2>
+   * */
+  @Override
+  protected void stop() throws InterruptedException {
+    awaitDrained(ringBuffer, ringBuffer::getMinimumGatingSequence);
+    disruptor.halt();
+  }
+
+  private <A> void fill(
+    EventTranslatorOneArg<E, A> translator,
+    Iterator<? extends A> iterator,
+    long lo,
+    long hi
+  ) {
+    try {
+      for (long sequence = lo; sequence <= hi; sequence++) {
+        E event = ringBuffer.get(sequence);
+        translator.translateTo(event, sequence, iterator.next());
+      }
+    } finally {
+      // 已申请的序号必须全部发布, 否则消费者会卡住
+      ringBuffer.publish(lo, hi);
+    }
+  }
+}
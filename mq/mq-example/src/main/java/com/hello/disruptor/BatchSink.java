@@ -0,0 +1,16 @@
+package com.hello.disruptor;
+
+import java.util.List;
+
+/**
+ * <h1>批量写出的目标, 例如数据库批量插入或 Kafka 批量发送</h1>
+ *
+ * @param <T> 消息内容类型
+ * */
+@FunctionalInterface
+public interface BatchSink<T> {
+  /**
+   * <h2>写出一批消息, 方法返回后 batch 会被清空复用, 不要保留引用</h2>
+   * */
+  void flush(List<T> batch) throws Exception;
+}
@@ -0,0 +1,142 @@
+package com.hello.disruptor;
+
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.LifecycleAware;
+import com.lmax.disruptor.TimeoutHandler;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <h1>批量处理器, 利用 endOfBatch 把消息攒成一批再写出</h1>
+ *
+ * 三种情况触发写出: disruptor 告知当前批次结束, 攒够 maxBatchSize, 或者第一条消息等待超过 maxDelay.
+ * 生产者越快, 每批越大, 下游 I/O 次数越少; 生产者慢时每条消息也不会额外等待.
+ * 配合 TIMEOUT_BLOCKING 等待策略时, 空闲超时也会写出残留的消息.
+ *
+ * @param <T> 消息内容类型, 即 {@link EventMessage#getObj()} 的类型
+ * */
+@Slf4j
+public class BatchingEventMessageHandler<T>
+  implements EventHandler<EventMessage>, TimeoutHandler, LifecycleAware {
+
+  /** 写出原因 */
+  public enum FlushReason {
+    END_OF_BATCH,
+    MAX_SIZE,
+    MAX_DELAY,
+    TIMEOUT,
+    SHUTDOWN,
+  }
+
+  private final String handlerName;
+  private final BatchSink<T> sink;
+  private final int maxBatchSize;
+  private final long maxDelayNanos;
+  private final List<T> batch;
+  private long firstEventNanos;
+
+  /** 批大小分布, 第 i 个桶统计 (2^(i-1), 2^i] 的批次数 */
+  private final AtomicLongArray batchSizeHistogram;
+  private final Map<FlushReason, LongAdder> flushCounts = new EnumMap<>(
+    FlushReason.class
+  );
+
+  public BatchingEventMessageHandler(
+    String handlerName,
+    BatchSink<T> sink,
+    int maxBatchSize,
+    Duration maxDelay
+  ) {
+    if (maxBatchSize <= 0) {
+      throw new IllegalArgumentException("maxBatchSize must be positive");
+    }
+    this.handlerName = handlerName;
+    this.sink = sink;
+    this.maxBatchSize = maxBatchSize;
+    this.maxDelayNanos = maxDelay.toNanos();
+    this.batch = new ArrayList<>(maxBatchSize);
+    this.batchSizeHistogram = new AtomicLongArray(bucket(maxBatchSize) + 1);
+    for (FlushReason reason : FlushReason.values()) {
+      flushCounts.put(reason, new LongAdder());
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void onEvent(EventMessage event, long sequence, boolean endOfBatch)
+    throws Exception {
+    if (batch.isEmpty()) {
+      firstEventNanos = System.nanoTime();
+    }
+    // 槽位会被复用, 只保留消息内容的引用
+    batch.add((T) event.getObj());
+    if (endOfBatch) {
+      flush(FlushReason.END_OF_BATCH);
+    } else if (batch.size() >= maxBatchSize) {
+      flush(FlushReason.MAX_SIZE);
+    } else if (System.nanoTime() - firstEventNanos >= maxDelayNanos) {
+      flush(FlushReason.MAX_DELAY);
+    }
+  }
+
+  @Override
+  public void onTimeout(long sequence) throws Exception {
+    flush(FlushReason.TIMEOUT);
+  }
+
+  @Override
+  public void onStart() {}
+
+  @Override
+  public void onShutdown() {
+    try {
+      flush(FlushReason.SHUTDOWN);
+    } catch (Exception ex) {
+      log.error("{} flush on shutdown failed", handlerName, ex);
+    }
+  }
+
+  /**
+   * <h2>批大小分布的快照, 第 i 个元素是大小落在 (2^(i-1), 2^i] 的批次数</h2>
+   * */
+  public long[] getBatchSizeHistogram() {
+    long[] snapshot = new long[batchSizeHistogram.length()];
+    for (int i = 0; i < snapshot.length; i++) {
+      snapshot[i] = batchSizeHistogram.get(i);
+    }
+    return snapshot;
+  }
+
+  public long getFlushCount(FlushReason reason) {
+    return flushCounts.get(reason).sum();
+  }
+
+  public String getHandlerName() {
+    return handlerName;
+  }
+
+  private void flush(FlushReason reason) throws Exception {
+    if (batch.isEmpty()) {
+      return;
+    }
+    int size = batch.size();
+    try {
+      sink.flush(batch);
+    } finally {
+      // 写出失败时这一批交给异常处理器记录, 不重试, 避免 batch 无限增长
+      batch.clear();
+      batchSizeHistogram.incrementAndGet(bucket(size));
+      flushCounts.get(reason).increment();
+    }
+  }
+
+  private static int bucket(int size) {
+    return 32 - Integer.numberOfLeadingZeros(size - 1);
+  }
+}
@@ -0,0 +1,118 @@
+package com.hello.disruptor;
+
+import com.lmax.disruptor.EventFactory;
+import com.lmax.disruptor.EventTranslatorOneArg;
+import java.nio.ByteBuffer;
+
+/**
+ * <h1>定长二进制槽位事件</h1>
+ *
+ * 所有字段都是基本类型或启动时分配好的 byte 数组, 发布时只做拷贝, 不产生新对象.
+ * 拷贝 byte 数组的一段用 {@link BinarySlotEventDisruptor#publish(byte[], int, int)},
+ * 三参数的 EventTranslator 会把偏移和长度装箱.
+ * */
+public class BinarySlotEvent implements SlotEvent {
+
+  /** 拷贝整个 byte 数组 */
+  public static final EventTranslatorOneArg<BinarySlotEvent, byte[]> BYTES =
+    (event, sequence, bytes) -> event.setData(bytes, 0, bytes.length);
+
+  /** 拷贝 ByteBuffer 的剩余部分, 不移动 buffer 的 position */
+  public static final EventTranslatorOneArg<BinarySlotEvent, ByteBuffer> BUFFER =
+    (event, sequence, buffer) -> event.setData(buffer);
+
+  private int type;
+  private long key;
+  private long value;
+  private long timestamp;
+  private final byte[] data;
+  private int length;
+
+  public BinarySlotEvent(int capacity) {
+    this.data = new byte[capacity];
+  }
+
+  /**
+   * <h2>按槽位容量创建事件工厂</h2>
+   * */
+  public static EventFactory<BinarySlotEvent> factory(int capacity) {
+    return () -> new BinarySlotEvent(capacity);
+  }
+
+  public int getType() {
+    return type;
+  }
+
+  public void setType(int type) {
+    this.type = type;
+  }
+
+  public long getKey() {
+    return key;
+  }
+
+  public void setKey(long key) {
+    this.key = key;
+  }
+
+  public long getValue() {
+    return value;
+  }
+
+  public void setValue(long value) {
+    this.value = value;
+  }
+
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  public void setTimestamp(long timestamp) {
+    this.timestamp = timestamp;
+  }
+
+  /**
+   * <h2>槽位内的 byte 数组, 有效长度见 {@link #getLength()}</h2>
+   * */
+  public byte[] getData() {
+    return data;
+  }
+
+  public int getLength() {
+    return length;
+  }
+
+  public int getCapacity() {
+    return data.length;
+  }
+
+  public void setData(byte[] src, int offset, int length) {
+    checkCapacity(length);
+    System.arraycopy(src, offset, data, 0, length);
+    this.length = length;
+  }
+
+  public void setData(ByteBuffer src) {
+    int remaining = src.remaining();
+    checkCapacity(remaining);
+    src.get(src.position(), data, 0, remaining);
+    this.length = remaining;
+  }
+
+  @Override
+  public void clear() {
+    type = 0;
+    key = 0L;
+    value = 0L;
+    timestamp = 0L;
+    length = 0;
+  }
+
+  private void checkCapacity(int length) {
+    if (length > data.length) {
+      throw new IllegalArgumentException(
+        "payload length " + length + " exceeds slot capacity " + data.length
+      );
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package com.hello.disruptor;
+
+import com.lmax.disruptor.EventFactory;
+import com.lmax.disruptor.RingBuffer;
+
+/**
+ * <h1>二进制槽位 disruptor, 发布路径不分配对象</h1>
+ *
+ * 带基本类型参数的 onData 直接申请序号并原地写入槽位, 避开 EventTranslator 泛型参数的装箱.
+ * */
+public abstract class BinarySlotEventDisruptor
+  extends SlotEventDisruptor<BinarySlotEvent> {
+
+  /**
+   * <h2>每个槽位 byte 数组的容量</h2>
+   * */
+  protected int slotCapacity() {
+    return 256;
+  }
+
+  @Override
+  protected EventFactory<BinarySlotEvent> eventFactory() {
+    return BinarySlotEvent.factory(slotCapacity());
+  }
+
+  /**
+   * <h2>生产者, 发布基本类型字段</h2>
+   * */
+  public void onData(int type, long key, long value) {
+    RingBuffer<BinarySlotEvent> ringBuffer = getRingBuffer();
+    long sequence = ringBuffer.next();
+    try {
+      BinarySlotEvent event = ringBuffer.get(sequence);
+      event.setType(type);
+      event.setKey(key);
+      event.setValue(value);
+      event.setTimestamp(System.nanoTime());
+    } finally {
+      ringBuffer.publish(sequence);
+    }
+  }
+
+  /**
+   * <h2>生产者, 发布基本类型字段和一段二进制数据</h2>
+   * */
+  public void onData(int type, long key, byte[] data, int offset, int length) {
+    checkLength(length);
+    RingBuffer<BinarySlotEvent> ringBuffer = getRingBuffer();
+    long sequence = ringBuffer.next();
+    try {
+      BinarySlotEvent event = ringBuffer.get(sequence);
+      event.setType(type);
+      event.setKey(key);
+      event.setTimestamp(System.nanoTime());
+      event.setData(data, offset, length);
+    } finally {
+      ringBuffer.publish(sequence);
+    }
+  }
+
+  /**
+   * <h2>生产者, 只发布 byte 数组的一段</h2>
+   * */
+  public void publish(byte[] data, int offset, int length) {
+    checkLength(length);
+    RingBuffer<BinarySlotEvent> ringBuffer = getRingBuffer();
+    long sequence = ringBuffer.next();
+    try {
+      ringBuffer.get(sequence).setData(data, offset, length);
+    } finally {
+      ringBuffer.publish(sequence);
+    }
+  }
+
+  private void checkLength(int length) {
+    // 申请序号之后必须发布, 所以在申请之前校验长度
+    if (length > slotCapacity()) {
+      throw new IllegalArgumentException(
+        "payload length " + length + " exceeds slot capacity " + slotCapacity()
+      );
+    }
+  }
+}
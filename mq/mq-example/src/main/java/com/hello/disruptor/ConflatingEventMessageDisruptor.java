@@ -0,0 +1,92 @@
+package com.hello.disruptor;
+
+import com.lmax.disruptor.EventFactory;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.EventTranslatorOneArg;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <h1>按 key 合并的 disruptor, 同一个 key 只处理最新的值</h1>
+ *
+ * 适合库存, 余额这类只关心最新值的更新. 最新值放在 pending 中, ringBuffer 里只放 key:
+ * key 没有待处理的值时才发布一个事件, 已经有时只替换 pending 中的值. 消费者处理事件时取走最新值,
+ * 之后再来的更新会重新发布. 所以每个 key 在 ringBuffer 中最多一个待处理的事件,
+ * 突发更新时处理器的工作量取决于 key 的数量而不是更新次数.
+ * 同一个 key 的值按发布顺序覆盖, 只有一个消费者线程, 所以处理顺序和最新值一致.
+ * */
+public abstract class ConflatingEventMessageDisruptor
+  extends AbstractEventDisruptor<EventMessage> {
+
+  /** 事件转换器, 只设置 key */
+  private static final EventTranslatorOneArg<EventMessage, Object> TRANSLATOR =
+    (message, sequence, key) -> message.setKey(key);
+  private static final EventMessageFactory factory = new EventMessageFactory();
+
+  private final Map<Object, Object> pending = new ConcurrentHashMap<>();
+  private final LongAdder conflated = new LongAdder();
+
+  /**
+   * <h2>处理某个 key 的最新值, 只在消费者线程上调用</h2>
+   * */
+  protected abstract void onLatest(Object key, Object value) throws Exception;
+
+  /**
+   * <h2>生产者, 发布 key 的新值; key 还有没处理的值时直接覆盖, 不占用 ringBuffer</h2>
+   * */
+  public void onData(Object key, Object value) {
+    if (value == null) {
+      throw new IllegalArgumentException("value must not be null");
+    }
+    if (pending.put(key, value) == null) {
+      publishEvent(TRANSLATOR, key);
+    } else {
+      conflated.increment();
+    }
+  }
+
+  /**
+   * <h2>被合并掉的更新数</h2>
+   * */
+  public long getConflatedCount() {
+    return conflated.sum();
+  }
+
+  /**
+   * <h2>有待处理值的 key 数</h2>
+   * */
+  public int pendingCount() {
+    return pending.size();
+  }
+
+  @Override
+  protected String propertyPrefix() {
+    return "hello.disruptor.conflating";
+  }
+
+  @Override
+  protected EventFactory<EventMessage> eventFactory() {
+    return factory;
+  }
+
+  @Override
+  protected final void handleEvent() {
+    disruptor.handleEventsWith(
+      instrument("conflating", new ConflatingEventHandler())
+    );
+  }
+
+  private class ConflatingEventHandler implements EventHandler<EventMessage> {
+
+    @Override
+    public void onEvent(EventMessage event, long sequence, boolean endOfBatch)
+      throws Exception {
+      Object key = event.getKey();
+      event.setKey(null);
+      // 取走之后的更新会重新发布事件
+      Object value = pending.remove(key);
+      onLatest(key, value);
+    }
+  }
+}
@@ -0,0 +1,181 @@
+package com.hello.disruptor;
+
+import com.lmax.disruptor.BlockingWaitStrategy;
+import com.lmax.disruptor.BusySpinWaitStrategy;
+import com.lmax.disruptor.PhasedBackoffWaitStrategy;
+import com.lmax.disruptor.SleepingWaitStrategy;
+import com.lmax.disruptor.TimeoutBlockingWaitStrategy;
+import com.lmax.disruptor.WaitStrategy;
+import com.lmax.disruptor.YieldingWaitStrategy;
+import com.lmax.disruptor.dsl.ProducerType;
+import com.lmax.disruptor.util.DaemonThreadFactory;
+import java.time.Duration;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.Data;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+
+/**
+ * <h1>disruptor 配置, 每个 disruptor bean 按自己的属性前缀绑定</h1>
+ *
+ * <pre>
+ * hello.disruptor.event-handler.producer-type=multi
+ * hello.disruptor.event-handler.wait-strategy=yielding
+ * hello.disruptor.event-handler.buffer-size=65536
+ * hello.disruptor.event-handler.thread-name-prefix=event-handler
+ * </pre>
+ * */
+@Data
+public class DisruptorProperties {
+
+  /** ringBuffer 大小, 必须是 2 的幂 */
+  private int bufferSize = 1024 * 1024;
+
+  /** 生产者类型, onData 会被多个请求线程调用时必须是 MULTI */
+  private ProducerType producerType = ProducerType.MULTI;
+
+  /** 消费者等待策略 */
+  private WaitStrategyType waitStrategy = WaitStrategyType.BLOCKING;
+
+  /** TIMEOUT_BLOCKING 的超时时间 */
+  private Duration timeout = Duration.ofMillis(10);
+
+  /** PHASED_BACKOFF 自旋阶段的时长 */
+  private Duration spinTimeout = Duration.ofNanos(10_000);
+
+  /** PHASED_BACKOFF 让出 CPU 阶段的时长 */
+  private Duration yieldTimeout = Duration.ofNanos(100_000);
+
+  /** 消费者线程名前缀, 为空时使用 DaemonThreadFactory */
+  private String threadNamePrefix;
+
+  /** 消费者线程是否为守护线程 */
+  private boolean daemon = true;
+
+  /** 分片数, 仅 sharded disruptor 使用, 每个分片一个 ringBuffer 和一个消费者线程 */
+  private int shards = 4;
+
+  /** work-handler 交给线程池执行时同时处理的最大事件数, 0 表示每个消费者线程直接处理 */
+  private int maxInFlight = 0;
+
+  /** request-reply disruptor 等待结果的超时时间, 0 表示不超时 */
+  private Duration replyTimeout = Duration.ofSeconds(5);
+
+  /** 槽位字节数, 仅 off-heap disruptor 使用, 包含 32 字节的头部, 必须是 8 的倍数 */
+  private int slotSize = 256;
+
+  /** 共享内存文件路径, 仅 shared-memory disruptor 使用, 建议放在 /dev/shm 下 */
+  private String path;
+
+  /**
+   * <h2>从 Environment 按前缀绑定, 属性文件中的值覆盖 defaults</h2>
+   * */
+  public static DisruptorProperties bind(
+    Environment environment,
+    String prefix,
+    DisruptorProperties defaults
+  ) {
+    if (environment == null) {
+      return defaults;
+    }
+    return Binder
+      .get(environment)
+      .bind(prefix, Bindable.ofInstance(defaults))
+      .orElse(defaults);
+  }
+
+  /**
+   * <h2>根据配置创建等待策略</h2>
+   * */
+  public WaitStrategy newWaitStrategy() {
+    return waitStrategy.create(this);
+  }
+
+  /**
+   * <h2>根据配置创建消费者线程工厂</h2>
+   * */
+  public ThreadFactory newThreadFactory() {
+    return newThreadFactory(null);
+  }
+
+  /**
+   * <h2>创建消费者之外的线程工厂, 线程名为 前缀-suffix-N, 和消费者线程区分开</h2>
+   * */
+  public ThreadFactory newThreadFactory(String suffix) {
+    if (threadNamePrefix == null || threadNamePrefix.isEmpty()) {
+      return DaemonThreadFactory.INSTANCE;
+    }
+    final String prefix = suffix == null
+      ? threadNamePrefix
+      : threadNamePrefix + "-" + suffix;
+    final AtomicInteger counter = new AtomicInteger();
+    return runnable -> {
+      Thread thread = new Thread(
+        runnable,
+        prefix + "-" + counter.incrementAndGet()
+      );
+      thread.setDaemon(daemon);
+      return thread;
+    };
+  }
+
+  /**
+   * <h2>等待策略, 在延迟和 CPU 占用之间取舍</h2>
+   * */
+  public enum WaitStrategyType {
+    /** 锁 + 条件变量, CPU 占用最低, 唤醒延迟最高 */
+    BLOCKING {
+      @Override
+      WaitStrategy create(DisruptorProperties properties) {
+        return new BlockingWaitStrategy();
+      }
+    },
+    /** 自旋, 延迟最低, 每个消费者独占一个核 */
+    BUSY_SPIN {
+      @Override
+      WaitStrategy create(DisruptorProperties properties) {
+        return new BusySpinWaitStrategy();
+      }
+    },
+    /** 自旋后 Thread.yield, 消费者数量不超过核数时延迟很低 */
+    YIELDING {
+      @Override
+      WaitStrategy create(DisruptorProperties properties) {
+        return new YieldingWaitStrategy();
+      }
+    },
+    /** 自旋后 yield 再 parkNanos, 延迟和 CPU 占用折中 */
+    SLEEPING {
+      @Override
+      WaitStrategy create(DisruptorProperties properties) {
+        return new SleepingWaitStrategy();
+      }
+    },
+    /** 带超时的阻塞, 超时后回调 TimeoutHandler */
+    TIMEOUT_BLOCKING {
+      @Override
+      WaitStrategy create(DisruptorProperties properties) {
+        return new TimeoutBlockingWaitStrategy(
+          properties.getTimeout().toNanos(),
+          TimeUnit.NANOSECONDS
+        );
+      }
+    },
+    /** 先自旋, 再 yield, 最后退化为阻塞 */
+    PHASED_BACKOFF {
+      @Override
+      WaitStrategy create(DisruptorProperties properties) {
+        return PhasedBackoffWaitStrategy.withLock(
+          properties.getSpinTimeout().toNanos(),
+          properties.getYieldTimeout().toNanos(),
+          TimeUnit.NANOSECONDS
+        );
+      }
+    };
+
+    abstract WaitStrategy create(DisruptorProperties properties);
+  }
+}
@@ -16,4 +16,7 @@ import lombok.RequiredArgsConstructor;
 public class EventMessage implements Serializable {
 
   private Object obj;
+
+  /** 分片路由用的 key, 只有 sharded disruptor 会设置 */
+  private Object key;
 }
@@ -1,74 +1,59 @@
 package com.hello.disruptor;
 
-import com.lmax.disruptor.BlockingWaitStrategy;
+import com.lmax.disruptor.EventFactory;
 import com.lmax.disruptor.EventTranslatorOneArg;
-import com.lmax.disruptor.RingBuffer;
-import com.lmax.disruptor.TimeoutException;
-import com.lmax.disruptor.dsl.Disruptor;
-import com.lmax.disruptor.dsl.ProducerType;
-import com.lmax.disruptor.util.DaemonThreadFactory;
+import java.util.Collection;
 import java.util.concurrent.TimeUnit;
-import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.DisposableBean;
-import org.springframework.beans.factory.InitializingBean;
 
 /**
  * <h1>event message disruptor 工具</h1>
  * */
-@Slf4j
 public abstract class EventMessageDisruptor
-  implements InitializingBean, DisposableBean {
+  extends AbstractEventDisruptor<EventMessage> {
 
   /** 事件转换器, 用于设置消息内容 */
   private static final EventTranslatorOneArg<EventMessage, Object> TRANSLATOR =
     (message, sequence, obj) -> message.setObj(obj);
-  protected Disruptor<EventMessage> disruptor;
-  private RingBuffer<EventMessage> ringBuffer;
   private static final EventMessageFactory factory = new EventMessageFactory();
 
   /**
    * <h2>生产者, 发布消息</h2>
    * */
   public void onData(Object obj) {
-    ringBuffer.publishEvent(TRANSLATOR, obj);
+    publishEvent(TRANSLATOR, obj);
   }
 
-  protected abstract void handleEvent();
+  /**
+   * <h2>生产者, 非阻塞发布, ringBuffer 已满时返回 false, 调用方可以直接拒绝请求</h2>
+   * */
+  public boolean tryPublish(Object obj) {
+    return tryPublishEvent(TRANSLATOR, obj);
+  }
 
   /**
-   * <h2>初始化方法</h2>
+   * <h2>生产者, 最多等待 timeout, 仍没有空位时返回 false</h2>
    * */
-  @Override
-  public void afterPropertiesSet() throws Exception {
-    final int bufferSize = 1024 * 1024;
-    // 实例化 disruptor
-    disruptor =
-    new Disruptor<>(
-      factory,
-      bufferSize,
-      DaemonThreadFactory.INSTANCE,
-      ProducerType.SINGLE,
-      new BlockingWaitStrategy()
-    );
-    // 设置事件处理器
-    handleEvent();
-    // 异常处理器
-    disruptor.setDefaultExceptionHandler(new EventMessageExceptionHandler());
-    // 启动 disruptor 实现生产和消费
-    disruptor.start();
-    // 初始化 ringBuffer
-    ringBuffer = disruptor.getRingBuffer();
+  public boolean publish(Object obj, long timeout, TimeUnit unit)
+    throws InterruptedException {
+    return publishEvent(TRANSLATOR, obj, timeout, unit);
+  }
+
+  /**
+   * <h2>生产者, 批量发布, 一次申请一段连续序号</h2>
+   * */
+  public void publishAll(Collection<?> objs) {
+    publishEvents(TRANSLATOR, objs);
   }
 
   /**
-   * <h2>bean 销毁之前需要执行的销毁方法</h2>
+   * <h2>生产者, 非阻塞批量发布, 要么全部发布要么都不发布</h2>
    * */
+  public boolean tryPublishAll(Collection<?> objs) {
+    return tryPublishEvents(TRANSLATOR, objs);
+  }
+
   @Override
-  public void destroy() throws Exception {
-    try {
-      disruptor.shutdown(1, TimeUnit.MINUTES);
-    } catch (TimeoutException ex) {
-      log.error(".....");
-    }
+  protected EventFactory<EventMessage> eventFactory() {
+    return factory;
   }
 }
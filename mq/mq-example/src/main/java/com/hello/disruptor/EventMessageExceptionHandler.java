@@ -1,31 +1,47 @@
 package com.hello.disruptor;
 
+import com.hello.disruptor.metrics.DisruptorMetrics;
 import com.lmax.disruptor.ExceptionHandler;
 import lombok.extern.slf4j.Slf4j;
 
 /**
  * <h1>disruptor 异常处理器</h1>
+ *
+ * 记录日志并计数后继续处理下一个事件, 不会让消费者线程退出.
  * */
 @Slf4j
-public class EventMessageExceptionHandler
-  implements ExceptionHandler<EventMessage> {
+public class EventMessageExceptionHandler implements ExceptionHandler<Object> {
+
+  private final DisruptorMetrics metrics;
+
+  public EventMessageExceptionHandler(DisruptorMetrics metrics) {
+    this.metrics = metrics;
+  }
 
   @Override
   public void handleEventException(
     Throwable ex,
     long sequence,
-    EventMessage event
+    Object event
   ) {
-    log.error("....");
+    metrics.recordException("event", ex);
+    log.error(
+      "handle event exception, sequence={} event={}",
+      sequence,
+      event,
+      ex
+    );
   }
 
   @Override
   public void handleOnStartException(Throwable ex) {
-    log.error("....");
+    metrics.recordException("start", ex);
+    log.error("handler start exception", ex);
   }
 
   @Override
   public void handleOnShutdownException(Throwable ex) {
-    log.error("....");
+    metrics.recordException("shutdown", ex);
+    log.error("handler shutdown exception", ex);
   }
 }
@@ -0,0 +1,220 @@
+package com.hello.disruptor;
+
+import com.lmax.disruptor.BatchEventProcessor;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.EventProcessor;
+import com.lmax.disruptor.ExceptionHandler;
+import com.lmax.disruptor.LifecycleAware;
+import com.lmax.disruptor.Sequence;
+import com.lmax.disruptor.WorkHandler;
+import com.lmax.disruptor.dsl.EventProcessorFactory;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <h1>把事件交给线程池执行的处理器, 适合阻塞 I/O 的消费者</h1>
+ *
+ * disruptor 只有一个消费者线程负责分发, 每个事件提交给 executor 执行,
+ * 并发度由 maxInFlight 个许可控制, 而不是消费者线程数. 许可按序号连续释放:
+ * 序号 n 之前的事件没有全部完成时, 即使 n 之后的事件已经完成, 许可也不会归还,
+ * 所以分发线程最多领先最早未完成的事件 maxInFlight 个序号, 许可用完时分发线程阻塞.
+ * 必须通过 {@link #processorFactory(EventHandler)} 注册, 对 disruptor 可见的消费者序号是连续完成的最大序号,
+ * 槽位在任务完成前不会被生产者覆盖, 关闭时也会等所有任务完成.
+ * 包装指标时把 {@link #getCompletedSequence()} 传给 instrument, lag 才包含还在执行的事件.
+ * 运行在 JDK 21 及以上时默认使用虚拟线程, 否则退化为 maxInFlight 个平台线程.
+ * */
+@Slf4j
+public class ExecutorDispatchingEventHandler
+  implements EventHandler<EventMessage>, LifecycleAware {
+
+  private final WorkHandler<EventMessage> delegate;
+  private final ExecutorService executor;
+  private final ExceptionHandler<Object> exceptionHandler;
+  private final int maxInFlight;
+  private final Semaphore permits;
+  /** 完成标记, 下标为 sequence & mask, 窗口不超过 maxInFlight */
+  private final boolean[] done;
+  private final int mask;
+  /** 连续完成的最大序号 */
+  private final Sequence completed = new Sequence();
+  /** 已分发的最大序号, 只由分发线程写 */
+  private final Sequence dispatched = new Sequence();
+
+  public ExecutorDispatchingEventHandler(
+    WorkHandler<EventMessage> delegate,
+    ExecutorService executor,
+    int maxInFlight,
+    ExceptionHandler<Object> exceptionHandler
+  ) {
+    if (maxInFlight <= 0) {
+      throw new IllegalArgumentException("maxInFlight must be positive");
+    }
+    this.delegate = delegate;
+    this.executor = executor;
+    this.exceptionHandler = exceptionHandler;
+    this.maxInFlight = maxInFlight;
+    this.permits = new Semaphore(maxInFlight);
+    int window = Integer.highestOneBit(maxInFlight);
+    if (window < maxInFlight) {
+      window <<= 1;
+    }
+    this.done = new boolean[window];
+    this.mask = window - 1;
+  }
+
+  /**
+   * <h2>JDK 21 及以上返回每个任务一个虚拟线程的 executor, 否则返回 maxInFlight 个平台线程的线程池</h2>
+   * */
+  public static ExecutorService defaultExecutor(
+    int maxInFlight,
+    ThreadFactory threadFactory
+  ) {
+    try {
+      Method method = Executors.class.getMethod(
+        "newVirtualThreadPerTaskExecutor"
+      );
+      return (ExecutorService) method.invoke(null);
+    } catch (NoSuchMethodException ex) {
+      log.info(
+        "virtual threads are not available, use {} platform threads",
+        maxInFlight
+      );
+      return Executors.newFixedThreadPool(maxInFlight, threadFactory);
+    } catch (ReflectiveOperationException ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+
+  /**
+   * <h2>创建消费者, 用 disruptor.handleEventsWith(factory) 注册</h2>
+   *
+   * @param handler 本对象, 或者包装了本对象的处理器 (例如记录指标的包装)
+   * */
+  public EventProcessorFactory<EventMessage> processorFactory(
+    EventHandler<EventMessage> handler
+  ) {
+    return (ringBuffer, barrierSequences) -> {
+      BatchEventProcessor<EventMessage> processor = new BatchEventProcessor<>(
+        ringBuffer,
+        ringBuffer.newBarrier(barrierSequences),
+        handler
+      );
+      processor.setExceptionHandler(exceptionHandler);
+      return new DispatchingEventProcessor(processor);
+    };
+  }
+
+  @Override
+  public void onEvent(EventMessage event, long sequence, boolean endOfBatch)
+    throws Exception {
+    permits.acquire();
+    dispatched.set(sequence);
+    try {
+      // 消费者序号是连续完成的序号, 任务完成前槽位不会被复用
+      executor.execute(() -> run(event, sequence));
+    } catch (RuntimeException ex) {
+      complete(sequence);
+      throw ex;
+    }
+  }
+
+  /**
+   * <h2>连续完成的最大序号, 之前的事件都已经处理完</h2>
+   * */
+  public long getCompletedSequence() {
+    return completed.get();
+  }
+
+  /**
+   * <h2>已经分发但还没有连续完成的事件数</h2>
+   * */
+  public long getInFlight() {
+    return dispatched.get() - completed.get();
+  }
+
+  @Override
+  public void onStart() {}
+
+  /**
+   * <h2>disruptor 关闭时已经等所有事件处理完, 这里兜底等待在途的任务, 然后关闭 executor</h2>
+   * */
+  @Override
+  public void onShutdown() {
+    try {
+      if (permits.tryAcquire(maxInFlight, 1, TimeUnit.MINUTES)) {
+        permits.release(maxInFlight);
+      } else {
+        log.error("{} events still in flight after 1 minute", getInFlight());
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+    executor.shutdown();
+  }
+
+  private void run(EventMessage message, long sequence) {
+    try {
+      delegate.onEvent(message);
+    } catch (Throwable ex) {
+      exceptionHandler.handleEventException(ex, sequence, message);
+    } finally {
+      complete(sequence);
+    }
+  }
+
+  private void complete(long sequence) {
+    int released = 0;
+    synchronized (done) {
+      done[(int) (sequence & mask)] = true;
+      long next = completed.get() + 1;
+      while (done[(int) (next & mask)] && next <= dispatched.get()) {
+        done[(int) (next & mask)] = false;
+        next++;
+        released++;
+      }
+      completed.set(next - 1);
+    }
+    if (released > 0) {
+      permits.release(released);
+    }
+  }
+
+  /**
+   * <h2>分发线程的消费者, 序号换成连续完成的序号, 生产者和关闭流程都以它为准</h2>
+   * */
+  private class DispatchingEventProcessor implements EventProcessor {
+
+    private final BatchEventProcessor<EventMessage> processor;
+
+    private DispatchingEventProcessor(
+      BatchEventProcessor<EventMessage> processor
+    ) {
+      this.processor = processor;
+    }
+
+    @Override
+    public Sequence getSequence() {
+      return completed;
+    }
+
+    @Override
+    public void halt() {
+      processor.halt();
+    }
+
+    @Override
+    public boolean isRunning() {
+      return processor.isRunning();
+    }
+
+    @Override
+    public void run() {
+      processor.run();
+    }
+  }
+}
@@ -0,0 +1,24 @@
+package com.hello.disruptor;
+
+import java.util.concurrent.CompletableFuture;
+import lombok.Data;
+
+/**
+ * <h1>请求事件, 槽位中带着请求和等待结果的 future</h1>
+ *
+ * @param <T> 请求类型
+ * @param <R> 结果类型
+ * */
+@Data
+public class RequestEvent<T, R> implements SlotEvent {
+
+  private T payload;
+
+  private CompletableFuture<R> future;
+
+  @Override
+  public void clear() {
+    payload = null;
+    future = null;
+  }
+}
@@ -0,0 +1,138 @@
+package com.hello.disruptor;
+
+import com.lmax.disruptor.EventFactory;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.EventTranslatorTwoArg;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>请求/响应 disruptor, 单个消费者线程处理请求, 通过 future 把结果返回给调用方</h1>
+ *
+ * 可以代替 synchronized 的服务方法: 状态只由消费者线程读写, 不需要加锁,
+ * HTTP 线程调用 {@link #submit(Object)} 后拿到 future 异步等待结果.
+ * future 放在预分配的槽位中, 消费者处理完后在 completionExecutor 上完成它,
+ * 调用方的回调不会占用消费者线程. 超过 replyTimeout 没有结果时 future 以 TimeoutException 完成,
+ * 消费者取到已经完成 (超时或被取消) 的请求时直接跳过.
+ *
+ * @param <T> 请求类型
+ * @param <R> 结果类型
+ * */
+public abstract class RequestReplyDisruptor<T, R>
+  extends AbstractEventDisruptor<RequestEvent<T, R>> {
+
+  private final EventTranslatorTwoArg<
+    RequestEvent<T, R>,
+    T,
+    CompletableFuture<R>
+  > translator = (event, sequence, payload, future) -> {
+    event.setPayload(payload);
+    event.setFuture(future);
+  };
+
+  private Executor completionExecutor;
+
+  /**
+   * <h2>处理请求, 只在消费者线程上调用; 抛出的异常会以异常完成 future</h2>
+   * */
+  protected abstract R handleRequest(T payload) throws Exception;
+
+  /**
+   * <h2>完成 future 的线程池, 调用方的回调在这里执行, 默认 ForkJoinPool.commonPool()</h2>
+   * */
+  protected Executor completionExecutor() {
+    return ForkJoinPool.commonPool();
+  }
+
+  /**
+   * <h2>提交请求, ringBuffer 已满时阻塞等待空位</h2>
+   * */
+  public CompletableFuture<R> submit(T payload) {
+    CompletableFuture<R> future = newFuture();
+    publishEvent(translator, payload, future);
+    return future;
+  }
+
+  /**
+   * <h2>非阻塞提交, ringBuffer 已满时返回以 RejectedExecutionException 完成的 future</h2>
+   * */
+  public CompletableFuture<R> trySubmit(T payload) {
+    CompletableFuture<R> future = newFuture();
+    if (!getRingBuffer().tryPublishEvent(translator, payload, future)) {
+      future.completeExceptionally(
+        new RejectedExecutionException("ring buffer is full")
+      );
+    }
+    return future;
+  }
+
+  @Override
+  protected String propertyPrefix() {
+    return "hello.disruptor.request-reply";
+  }
+
+  @Override
+  protected EventFactory<RequestEvent<T, R>> eventFactory() {
+    return RequestEvent::new;
+  }
+
+  @Override
+  protected final void handleEvent() {
+    completionExecutor = completionExecutor();
+    disruptor.handleEventsWith(
+      instrument("request-reply", new RequestEventHandler())
+    );
+  }
+
+  private CompletableFuture<R> newFuture() {
+    CompletableFuture<R> future = new CompletableFuture<>();
+    Duration timeout = getProperties().getReplyTimeout();
+    if (timeout != null && !timeout.isZero()) {
+      future.orTimeout(timeout.toNanos(), TimeUnit.NANOSECONDS);
+    }
+    return future;
+  }
+
+  private void complete(CompletableFuture<R> future, R result, Throwable ex) {
+    Runnable completion = ex == null
+      ? () -> future.complete(result)
+      : () -> future.completeExceptionally(ex);
+    try {
+      completionExecutor.execute(completion);
+    } catch (RejectedExecutionException rejected) {
+      // 线程池已经关闭, 在消费者线程上完成, 不能让调用方一直等
+      completion.run();
+    }
+  }
+
+  private class RequestEventHandler
+    implements EventHandler<RequestEvent<T, R>> {
+
+    @Override
+    public void onEvent(
+      RequestEvent<T, R> event,
+      long sequence,
+      boolean endOfBatch
+    ) {
+      T payload = event.getPayload();
+      CompletableFuture<R> future = event.getFuture();
+      event.clear();
+      if (future.isDone()) {
+        // 已经超时或者被取消, 调用方不再需要结果
+        return;
+      }
+      R result;
+      try {
+        result = handleRequest(payload);
+      } catch (Throwable ex) {
+        complete(future, null, ex);
+        return;
+      }
+      complete(future, result, null);
+    }
+  }
+}
@@ -0,0 +1,126 @@
+package com.hello.disruptor;
+
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.EventTranslatorTwoArg;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.dsl.Disruptor;
+import io.micrometer.core.instrument.Tags;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * <h1>按 key 分片的 disruptor</h1>
+ *
+ * 每个分片是一个独立的 ringBuffer, 只有一个消费者线程. 同一个 key 总是路由到同一个分片,
+ * 所以同一个 key 的消息按发布顺序处理 (例如同一个 orderId), 不同 key 分散到多个核上并行处理.
+ * 每个分片的 bufferSize 取配置中的 buffer-size. 指标按 shard 标签区分, 处理器名为 shard-N.
+ * {@link #remainingCapacity()} 和 {@link #fillRatio()} 以最满的分片为准.
+ * */
+public abstract class ShardedEventMessageDisruptor
+  extends AbstractDisruptorLifecycle<RingBuffer<EventMessage>> {
+
+  /** 事件转换器, 设置 key 和消息内容 */
+  private static final EventTranslatorTwoArg<EventMessage, Object, Object> TRANSLATOR =
+    (message, sequence, key, obj) -> {
+      message.setKey(key);
+      message.setObj(obj);
+    };
+  private static final EventMessageFactory factory = new EventMessageFactory();
+
+  private final List<Disruptor<EventMessage>> disruptors = new ArrayList<>();
+
+  /**
+   * <h2>创建分片的消费者, 每个分片一个实例, 只会被该分片的线程调用</h2>
+   * */
+  protected abstract EventHandler<EventMessage> createShardHandler(int shard);
+
+  /**
+   * <h2>生产者, 按 key 路由到分片后发布</h2>
+   * */
+  public void onData(Object key, Object obj) {
+    getRingBuffer(shardOf(key)).publishEvent(TRANSLATOR, key, obj);
+  }
+
+  /**
+   * <h2>生产者, 非阻塞发布, 目标分片已满时返回 false</h2>
+   * */
+  public boolean tryPublish(Object key, Object obj) {
+    return getRingBuffer(shardOf(key)).tryPublishEvent(TRANSLATOR, key, obj);
+  }
+
+  /**
+   * <h2>key 到分片的映射, 子类可以覆盖为自定义的 hash 函数</h2>
+   * */
+  public int shardOf(Object key) {
+    int h = key.hashCode();
+    // 高位参与运算, 避免低位相同的 key 集中在同一个分片
+    h ^= (h >>> 16);
+    return Math.floorMod(h, getRingBufferCount());
+  }
+
+  public int getShardCount() {
+    return getRingBufferCount();
+  }
+
+  /**
+   * <h2>分片的剩余空位数</h2>
+   * */
+  public long remainingCapacity(int shard) {
+    return getRingBuffer(shard).remainingCapacity();
+  }
+
+  @Override
+  protected String propertyPrefix() {
+    return "hello.disruptor.sharded";
+  }
+
+  /**
+   * <h2>每个分片创建一个 disruptor 并启动, 所有分片共用一个线程工厂, 线程名按分片递增</h2>
+   * */
+  @Override
+  protected void start() {
+    DisruptorProperties properties = getProperties();
+    final int shards = properties.getShards();
+    if (shards <= 0) {
+      throw new IllegalArgumentException("shards must be positive: " + shards);
+    }
+    ThreadFactory threadFactory = threadFactory(properties);
+    for (int shard = 0; shard < shards; shard++) {
+      Disruptor<EventMessage> disruptor = new Disruptor<>(
+        factory,
+        properties.getBufferSize(),
+        threadFactory,
+        properties.getProducerType(),
+        properties.newWaitStrategy()
+      );
+      RingBuffer<EventMessage> ringBuffer = disruptor.getRingBuffer();
+      Tags shardTags = Tags.of("shard", String.valueOf(shard));
+      disruptor.handleEventsWith(
+        getMetrics()
+          .timed(
+            "shard-" + shard,
+            createShardHandler(shard),
+            ringBuffer,
+            shardTags
+          )
+      );
+      disruptor.setDefaultExceptionHandler(getExceptionHandler());
+      disruptor.start();
+      disruptors.add(disruptor);
+      addRingBuffer(ringBuffer, shardTags);
+    }
+  }
+
+  /**
+   * <h2>逐个分片等已发布的事件处理完后停止消费者</h2>
+   * */
+  @Override
+  protected void stop() throws InterruptedException {
+    for (int shard = 0; shard < disruptors.size(); shard++) {
+      RingBuffer<EventMessage> ringBuffer = getRingBuffer(shard);
+      awaitDrained(ringBuffer, ringBuffer::getMinimumGatingSequence);
+      disruptors.get(shard).halt();
+    }
+  }
+}
@@ -0,0 +1,11 @@
+package com.hello.disruptor;
+
+/**
+ * <h1>可复用的预分配事件, 字段原地填充, 处理完成后清空</h1>
+ * */
+public interface SlotEvent {
+  /**
+   * <h2>清空槽位, 释放对外部对象的引用</h2>
+   * */
+  void clear();
+}
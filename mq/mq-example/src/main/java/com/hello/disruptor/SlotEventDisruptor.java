@@ -0,0 +1,35 @@
+package com.hello.disruptor;
+
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.dsl.EventHandlerGroup;
+
+/**
+ * <h1>槽位事件 disruptor, 所有处理器之后自动追加一个清空槽位的阶段</h1>
+ *
+ * @param <E> 预分配的槽位事件类型
+ * */
+public abstract class SlotEventDisruptor<E extends SlotEvent>
+  extends AbstractEventDisruptor<E> {
+
+  /**
+   * <h2>设置业务处理器, 返回最后一组处理器</h2>
+   * */
+  protected abstract EventHandlerGroup<E> handleSlotEvent();
+
+  @Override
+  protected final void handleEvent() {
+    handleSlotEvent().then(new ClearingEventHandler<>());
+  }
+
+  /**
+   * <h2>最后一个阶段, 所有业务处理器处理完后清空槽位</h2>
+   * */
+  private static class ClearingEventHandler<E extends SlotEvent>
+    implements EventHandler<E> {
+
+    @Override
+    public void onEvent(E event, long sequence, boolean endOfBatch) {
+      event.clear();
+    }
+  }
+}
@@ -11,11 +11,22 @@ import org.springframework.stereotype.Service;
 @RequiredArgsConstructor
 public class EventHandlerEventMessageDisruptor extends EventMessageDisruptor {
 
+  @Override
+  protected String propertyPrefix() {
+    return "hello.disruptor.event-handler";
+  }
+
   @Override
   protected void handleEvent() {
     disruptor.handleEventsWith(
-      new EventMessageHandler("event-handler-01"),
-      new EventMessageHandler("event-handler-02")
+      instrument(
+        "event-handler-01",
+        new EventMessageHandler("event-handler-01")
+      ),
+      instrument(
+        "event-handler-02",
+        new EventMessageHandler("event-handler-02")
+      )
     );
   }
 }
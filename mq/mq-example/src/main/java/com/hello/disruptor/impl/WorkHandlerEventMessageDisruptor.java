@@ -2,6 +2,7 @@ package com.hello.disruptor.impl;
 
 import com.hello.disruptor.EventMessageDisruptor;
 import com.hello.disruptor.EventMessageHandler;
+import com.hello.disruptor.ExecutorDispatchingEventHandler;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -11,11 +12,50 @@ import org.springframework.stereotype.Service;
 @RequiredArgsConstructor
 public class WorkHandlerEventMessageDisruptor extends EventMessageDisruptor {
 
+  @Override
+  protected String propertyPrefix() {
+    return "hello.disruptor.work-handler";
+  }
+
   @Override
   protected void handleEvent() {
+    int maxInFlight = getProperties().getMaxInFlight();
+    if (maxInFlight > 0) {
+      // 阻塞型处理器, 并发度由 max-in-flight 决定而不是消费者线程数
+      ExecutorDispatchingEventHandler dispatcher =
+        new ExecutorDispatchingEventHandler(
+          instrumentWorker(
+            "work-handler-async",
+            new EventMessageHandler("work-handler-async")
+          ),
+          ExecutorDispatchingEventHandler.defaultExecutor(
+            maxInFlight,
+            getProperties().newThreadFactory("executor")
+          ),
+          maxInFlight,
+          getExceptionHandler()
+        );
+      // 分发线程的 lag 按连续完成的序号计算, 包含还在 executor 中执行的事件
+      disruptor.handleEventsWith(
+        dispatcher.processorFactory(
+          instrument(
+            "work-handler-dispatcher",
+            dispatcher,
+            dispatcher::getCompletedSequence
+          )
+        )
+      );
+      return;
+    }
     disruptor.handleEventsWithWorkerPool(
-      new EventMessageHandler("work-handler-01"),
-      new EventMessageHandler("work-handler-02")
+      instrumentWorker(
+        "work-handler-01",
+        new EventMessageHandler("work-handler-01")
+      ),
+      instrumentWorker(
+        "work-handler-02",
+        new EventMessageHandler("work-handler-02")
+      )
     );
   }
 }
@@ -0,0 +1,49 @@
+package com.hello.disruptor.journal;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <h1>消息内容的二进制编解码, 日志记录只保存编码后的字节</h1>
+ * */
+public interface EventMessageCodec {
+  /** UTF-8 字符串编解码 */
+  EventMessageCodec UTF8_STRING = new EventMessageCodec() {
+    @Override
+    public byte[] encode(Object obj) {
+      return ((String) obj).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public Object decode(ByteBuffer buffer, int length) {
+      byte[] bytes = new byte[length];
+      buffer.get(bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+  };
+
+  /** byte 数组原样保存 */
+  EventMessageCodec BYTES = new EventMessageCodec() {
+    @Override
+    public byte[] encode(Object obj) {
+      return (byte[]) obj;
+    }
+
+    @Override
+    public Object decode(ByteBuffer buffer, int length) {
+      byte[] bytes = new byte[length];
+      buffer.get(bytes);
+      return bytes;
+    }
+  };
+
+  /**
+   * <h2>编码消息内容</h2>
+   * */
+  byte[] encode(Object obj);
+
+  /**
+   * <h2>从 buffer 的当前位置读取 length 个字节解码</h2>
+   * */
+  Object decode(ByteBuffer buffer, int length);
+}
@@ -0,0 +1,46 @@
+package com.hello.disruptor.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * <h1>已处理完成的最大日志序号, 保存在一个 8 字节的映射文件中</h1>
+ * */
+public class JournalCheckpoint implements Closeable {
+
+  private final MappedByteBuffer buffer;
+
+  public JournalCheckpoint(Path file) throws IOException {
+    try (
+      FileChannel channel = FileChannel.open(
+        file,
+        StandardOpenOption.CREATE,
+        StandardOpenOption.READ,
+        StandardOpenOption.WRITE
+      )
+    ) {
+      buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Long.BYTES);
+    }
+  }
+
+  public long get() {
+    return buffer.getLong(0);
+  }
+
+  public void set(long index) {
+    buffer.putLong(0, index);
+  }
+
+  public void flush() {
+    buffer.force();
+  }
+
+  @Override
+  public void close() {
+    buffer.force();
+  }
+}
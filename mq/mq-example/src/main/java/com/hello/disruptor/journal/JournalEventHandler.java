@@ -0,0 +1,63 @@
+package com.hello.disruptor.journal;
+
+import com.hello.disruptor.EventMessage;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.LifecycleAware;
+
+/**
+ * <h1>日志处理器, 作为第一个阶段把消息追加到日志</h1>
+ *
+ * 日志序号是 baseIndex + ringBuffer 序号, 后面的 checkpoint 阶段用同样的方式换算.
+ * syncOnEndOfBatch 为 true 时每批只刷一次盘, 代替每条消息一次 fsync.
+ * payloads 按槽位保存发布线程编码好的消息, 为 null 时在这里编码.
+ * */
+public class JournalEventHandler
+  implements EventHandler<EventMessage>, LifecycleAware {
+
+  private final MappedJournal journal;
+  private final JournalCheckpoint checkpoint;
+  private final long baseIndex;
+  private final byte[][] payloads;
+  private final boolean syncOnEndOfBatch;
+
+  public JournalEventHandler(
+    MappedJournal journal,
+    JournalCheckpoint checkpoint,
+    long baseIndex,
+    byte[][] payloads,
+    boolean syncOnEndOfBatch
+  ) {
+    this.journal = journal;
+    this.checkpoint = checkpoint;
+    this.baseIndex = baseIndex;
+    this.payloads = payloads;
+    this.syncOnEndOfBatch = syncOnEndOfBatch;
+  }
+
+  @Override
+  public void onEvent(EventMessage event, long sequence, boolean endOfBatch)
+    throws Exception {
+    int slot = (int) sequence & (payloads.length - 1);
+    byte[] payload = payloads[slot];
+    payloads[slot] = null;
+    long index = baseIndex + sequence;
+    boolean rolled = payload != null
+      ? journal.appendEncoded(index, payload)
+      : journal.append(index, event.getObj());
+    if (rolled) {
+      // 切换段文件时顺便清理已经全部处理完的旧段
+      journal.deleteSegmentsUpTo(checkpoint.get());
+    }
+    if (endOfBatch && syncOnEndOfBatch) {
+      journal.flush();
+    }
+  }
+
+  @Override
+  public void onStart() {}
+
+  @Override
+  public void onShutdown() {
+    journal.flush();
+  }
+}
@@ -0,0 +1,205 @@
+package com.hello.disruptor.journal;
+
+import com.hello.disruptor.EventMessage;
+import com.hello.disruptor.EventMessageDisruptor;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.EventTranslatorOneArg;
+import com.lmax.disruptor.dsl.EventHandlerGroup;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <h1>带持久化日志的 disruptor</h1>
+ *
+ * 拓扑为 journal -> 业务处理器 -> checkpoint. 消息先追加到内存映射日志, 业务处理器处理完后
+ * checkpoint 记录已完成的日志序号. 启动时把 checkpoint 之后的日志重新发布一遍,
+ * 所以语义是至少一次, 业务处理器需要幂等.
+ * 重放的消息以新的序号再次写入日志, 在它们全部处理完之前 checkpoint 停在原来的位置,
+ * 重放中途崩溃时旧记录不会被跳过, 也不会随旧段一起被删除.
+ * 消息在发布线程中编码, 编码失败或超过段大小时发布方法抛出 IllegalArgumentException,
+ * 消息不会进入 ringBuffer;
+ * 直接用 EventTranslator 发布的消息在日志阶段编码.
+ * */
+@Slf4j
+public abstract class JournaledEventMessageDisruptor
+  extends EventMessageDisruptor {
+
+  private MappedJournal journal;
+  private JournalCheckpoint checkpoint;
+  private long baseIndex;
+  /** 重放的最后一条消息再次写入日志时的序号, 没有重放时是 baseIndex - 1 */
+  private long replayedIndex;
+  private EventMessageCodec codec;
+  /** 发布线程编码好的 payload, 按 ringBuffer 序号对应槽位, 日志阶段取走后清空 */
+  private byte[][] payloads;
+  private final EventTranslatorOneArg<EventMessage, Encoded> translator =
+    (message, sequence, encoded) -> {
+      message.setObj(encoded.obj);
+      payloads[(int) sequence & (payloads.length - 1)] = encoded.payload;
+    };
+
+  /**
+   * <h2>日志目录</h2>
+   * */
+  protected abstract Path journalDirectory();
+
+  /**
+   * <h2>设置业务处理器, journaled 是日志阶段, 返回最后一组业务处理器</h2>
+   * */
+  protected abstract EventHandlerGroup<EventMessage> handleJournaledEvent(
+    EventHandlerGroup<EventMessage> journaled
+  );
+
+  /**
+   * <h2>段文件大小</h2>
+   * */
+  protected int journalSegmentSize() {
+    return 64 * 1024 * 1024;
+  }
+
+  protected EventMessageCodec journalCodec() {
+    return EventMessageCodec.UTF8_STRING;
+  }
+
+  /**
+   * <h2>每批刷一次盘; 为 false 时只依赖页缓存, 能扛住 JVM 崩溃但扛不住掉电</h2>
+   * */
+  protected boolean syncOnEndOfBatch() {
+    return true;
+  }
+
+  @Override
+  public void onData(Object obj) {
+    publishEvent(translator, encode(obj));
+  }
+
+  @Override
+  public boolean tryPublish(Object obj) {
+    return tryPublishEvent(translator, encode(obj));
+  }
+
+  @Override
+  public boolean publish(Object obj, long timeout, TimeUnit unit)
+    throws InterruptedException {
+    return publishEvent(translator, encode(obj), timeout, unit);
+  }
+
+  @Override
+  public void publishAll(Collection<?> objs) {
+    publishEvents(translator, encodeAll(objs));
+  }
+
+  @Override
+  public boolean tryPublishAll(Collection<?> objs) {
+    return tryPublishEvents(translator, encodeAll(objs));
+  }
+
+  @Override
+  protected final void handleEvent() {
+    payloads = new byte[disruptor.getRingBuffer().getBufferSize()][];
+    EventHandlerGroup<EventMessage> journaled = disruptor.handleEventsWith(
+      instrument(
+        "journal",
+        new JournalEventHandler(
+          journal,
+          checkpoint,
+          baseIndex,
+          payloads,
+          syncOnEndOfBatch()
+        )
+      )
+    );
+    handleJournaledEvent(journaled).then(new CheckpointEventHandler());
+  }
+
+  @Override
+  public void afterPropertiesSet() throws Exception {
+    Path directory = journalDirectory();
+    codec = journalCodec();
+    journal = new MappedJournal(directory, journalSegmentSize(), codec);
+    checkpoint = new JournalCheckpoint(directory.resolve("checkpoint"));
+    baseIndex = journal.getLastIndex() + 1;
+    long processed = checkpoint.get();
+    long replayed = journal.count(processed, baseIndex);
+    replayedIndex = baseIndex + replayed - 1;
+    super.afterPropertiesSet();
+    // 重放未处理完的尾部, 重放的消息会以新的序号再次写入日志
+    if (replayed > 0) {
+      log.info(
+        "replay {} records of journal {} from index {} to {}",
+        replayed,
+        directory,
+        processed + 1,
+        baseIndex - 1
+      );
+      journal.replay(processed, baseIndex, this::onData);
+    }
+  }
+
+  @Override
+  public void destroy() throws Exception {
+    super.destroy();
+    checkpoint.close();
+    journal.close();
+  }
+
+  private Encoded encode(Object obj) {
+    byte[] payload;
+    try {
+      payload = codec.encode(obj);
+    } catch (RuntimeException ex) {
+      throw new IllegalArgumentException("cannot encode journal record", ex);
+    }
+    if (payload.length > journal.getMaxPayloadLength()) {
+      throw new IllegalArgumentException(
+        "journal record of " + payload.length + " bytes exceeds segment size"
+      );
+    }
+    return new Encoded(obj, payload);
+  }
+
+  private List<Encoded> encodeAll(Collection<?> objs) {
+    List<Encoded> encoded = new ArrayList<>(objs.size());
+    for (Object obj : objs) {
+      encoded.add(encode(obj));
+    }
+    return encoded;
+  }
+
+  /**
+   * <h2>消息和编码后的 payload, 发布时一起放进槽位</h2>
+   * */
+  private static final class Encoded {
+
+    private final Object obj;
+    private final byte[] payload;
+
+    private Encoded(Object obj, byte[] payload) {
+      this.obj = obj;
+      this.payload = payload;
+    }
+  }
+
+  /**
+   * <h2>最后一个阶段, 记录已处理完成的日志序号</h2>
+   *
+   * 重放的消息没有全部处理完时不移动 checkpoint, 否则新序号会越过还没处理的旧记录.
+   * */
+  private class CheckpointEventHandler implements EventHandler<EventMessage> {
+
+    @Override
+    public void onEvent(EventMessage event, long sequence, boolean endOfBatch) {
+      long index = baseIndex + sequence;
+      if (endOfBatch && index >= replayedIndex) {
+        checkpoint.set(index);
+        if (syncOnEndOfBatch()) {
+          checkpoint.flush();
+        }
+      }
+    }
+  }
+}
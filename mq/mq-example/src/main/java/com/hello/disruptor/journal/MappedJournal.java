@@ -0,0 +1,260 @@
+package com.hello.disruptor.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <h1>内存映射的追加日志, 按固定大小的段文件滚动</h1>
+ *
+ * 段文件以第一条记录的序号命名. 记录格式:
+ * <pre>
+ * int  recordLength  整条记录的长度, 最后写入, 非 0 表示记录完整
+ * int  crc32         payload 的校验和
+ * long index         日志序号
+ * byte[] payload     {@link EventMessageCodec} 编码后的消息内容
+ * </pre>
+ * recordLength 为 0 表示段内后续没有数据, 为 -1 表示该段已写满, 继续读下一个段.
+ * 写入是对映射内存的普通写, JVM 崩溃后仍然保留在页缓存中; {@link #flush()} 才会落盘.
+ * 非线程安全, 只能由一个线程写入.
+ * */
+@Slf4j
+public class MappedJournal implements Closeable {
+
+  static final int HEADER_LENGTH = 16;
+  private static final int END_OF_SEGMENT = -1;
+  private static final String SUFFIX = ".journal";
+
+  private final Path directory;
+  private final int segmentSize;
+  private final EventMessageCodec codec;
+  private final CRC32 crc = new CRC32();
+  private MappedByteBuffer segment;
+  private long lastIndex;
+
+  public MappedJournal(Path directory, int segmentSize, EventMessageCodec codec)
+    throws IOException {
+    this.directory = directory;
+    this.segmentSize = segmentSize;
+    this.codec = codec;
+    Files.createDirectories(directory);
+    List<Long> segments = listSegments();
+    if (segments.isEmpty()) {
+      segment = map(1);
+      return;
+    }
+    long first = segments.get(segments.size() - 1);
+    segment = map(first);
+    lastIndex = first - 1;
+    // 恢复写入位置和最后一条记录的序号
+    int end = scan(segment.duplicate(), (index, payload) -> lastIndex = index);
+    segment.position(end);
+  }
+
+  /**
+   * <h2>追加一条记录, 返回是否滚动到了新的段文件</h2>
+   * */
+  public boolean append(long index, Object obj) throws IOException {
+    return appendEncoded(index, codec.encode(obj));
+  }
+
+  /**
+   * <h2>追加一条已经编码好的记录</h2>
+   * */
+  public boolean appendEncoded(long index, byte[] payload) throws IOException {
+    int recordLength = HEADER_LENGTH + payload.length;
+    // 段末尾至少要留出写 END_OF_SEGMENT 的位置
+    if (recordLength + Integer.BYTES > segmentSize) {
+      throw new IllegalArgumentException(
+        "record of " + recordLength + " bytes exceeds segment size " + segmentSize
+      );
+    }
+    boolean rolled = false;
+    if (segment.remaining() < recordLength + Integer.BYTES) {
+      roll(index);
+      rolled = true;
+    }
+    crc.reset();
+    crc.update(payload);
+    int start = segment.position();
+    segment.putInt(start + 4, (int) crc.getValue());
+    segment.putLong(start + 8, index);
+    segment.put(start + HEADER_LENGTH, payload);
+    // 长度最后写, 读到非 0 长度时记录一定是完整的
+    segment.putInt(start, recordLength);
+    segment.position(start + recordLength);
+    lastIndex = index;
+    return rolled;
+  }
+
+  /**
+   * <h2>把当前段的脏页刷到磁盘</h2>
+   * */
+  public void flush() {
+    segment.force();
+  }
+
+  /**
+   * <h2>按顺序读取序号在 (fromExclusive, toExclusive) 之间的记录</h2>
+   * */
+  public void replay(
+    long fromExclusive,
+    long toExclusive,
+    Consumer<Object> consumer
+  ) throws IOException {
+    forEachRecord((index, payload) -> {
+      if (index > fromExclusive && index < toExclusive) {
+        consumer.accept(codec.decode(payload, payload.remaining()));
+      }
+    });
+  }
+
+  /**
+   * <h2>序号在 (fromExclusive, toExclusive) 之间的记录条数, 不解码 payload</h2>
+   * */
+  public long count(long fromExclusive, long toExclusive) throws IOException {
+    long[] count = new long[1];
+    forEachRecord((index, payload) -> {
+      if (index > fromExclusive && index < toExclusive) {
+        count[0]++;
+      }
+    });
+    return count[0];
+  }
+
+  /**
+   * <h2>删除所有记录都不大于 checkpoint 的段文件, 当前段不会被删除</h2>
+   * */
+  public void deleteSegmentsUpTo(long checkpoint) throws IOException {
+    List<Long> segments = listSegments();
+    for (int i = 0; i + 1 < segments.size(); i++) {
+      // 下一个段的第一条记录之前的记录都在这个段里
+      if (segments.get(i + 1) - 1 > checkpoint) {
+        return;
+      }
+      Files.deleteIfExists(segmentPath(segments.get(i)));
+    }
+  }
+
+  /**
+   * <h2>单条记录 payload 的最大长度</h2>
+   * */
+  public int getMaxPayloadLength() {
+    return segmentSize - HEADER_LENGTH - Integer.BYTES;
+  }
+
+  public long getLastIndex() {
+    return lastIndex;
+  }
+
+  @Override
+  public void close() {
+    segment.force();
+  }
+
+  private void roll(long index) throws IOException {
+    if (segment.remaining() >= Integer.BYTES) {
+      segment.putInt(segment.position(), END_OF_SEGMENT);
+    }
+    segment.force();
+    segment = map(index);
+    log.info("journal rolled to segment {}", segmentPath(index));
+  }
+
+  private void forEachRecord(RecordVisitor visitor) throws IOException {
+    for (long first : listSegments()) {
+      try (
+        FileChannel channel = FileChannel.open(
+          segmentPath(first),
+          StandardOpenOption.READ
+        )
+      ) {
+        ByteBuffer buffer = channel.map(
+          FileChannel.MapMode.READ_ONLY,
+          0,
+          channel.size()
+        );
+        scan(buffer, visitor);
+      }
+    }
+  }
+
+  private MappedByteBuffer map(long firstIndex) throws IOException {
+    try (
+      FileChannel channel = FileChannel.open(
+        segmentPath(firstIndex),
+        StandardOpenOption.CREATE,
+        StandardOpenOption.READ,
+        StandardOpenOption.WRITE
+      )
+    ) {
+      return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+    }
+  }
+
+  /**
+   * <h2>顺序扫描一个段, 返回最后一条完整记录之后的位置</h2>
+   * */
+  private int scan(ByteBuffer buffer, RecordVisitor visitor) {
+    CRC32 checksum = new CRC32();
+    int position = 0;
+    while (position + HEADER_LENGTH <= buffer.limit()) {
+      int recordLength = buffer.getInt(position);
+      if (
+        recordLength < HEADER_LENGTH ||
+        position + recordLength > buffer.limit()
+      ) {
+        // 0 是未写入的区域, -1 是段结束标记, 其他值是损坏的记录
+        break;
+      }
+      ByteBuffer payload = buffer
+        .duplicate()
+        .position(position + HEADER_LENGTH)
+        .limit(position + recordLength);
+      checksum.reset();
+      checksum.update(payload.duplicate());
+      if ((int) checksum.getValue() != buffer.getInt(position + 4)) {
+        log.warn("journal record at {} is corrupted, stop scanning", position);
+        break;
+      }
+      visitor.visit(buffer.getLong(position + 8), payload);
+      position += recordLength;
+    }
+    return position;
+  }
+
+  private List<Long> listSegments() throws IOException {
+    List<Long> segments = new ArrayList<>();
+    try (Stream<Path> files = Files.list(directory)) {
+      files
+        .map(path -> path.getFileName().toString())
+        .filter(name -> name.endsWith(SUFFIX))
+        .forEach(name ->
+          segments.add(
+            Long.parseLong(name.substring(0, name.length() - SUFFIX.length()))
+          )
+        );
+    }
+    segments.sort(null);
+    return segments;
+  }
+
+  private Path segmentPath(long firstIndex) {
+    return directory.resolve(String.format("%020d%s", firstIndex, SUFFIX));
+  }
+
+  private interface RecordVisitor {
+    void visit(long index, ByteBuffer payload);
+  }
+}
@@ -0,0 +1,226 @@
+package com.hello.disruptor.kafka;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+
+/**
+ * <h1>kafka 到 disruptor 的桥接, poll 线程只负责拉取, 发布和提交</h1>
+ *
+ * 记录发布到 {@link KafkaRecordDisruptor} 的 worker pool 后由多个线程处理, 慢的处理器不会拖住 poll 线程.
+ * 每个分区一个 {@link PartitionOffsetTracker}, 只提交连续处理完成的最大 offset, 保证至少一次.
+ * <ul>
+ *   <li>ringBuffer 占用率超过 pauseRatio 时暂停所有分区, 降到 resumeRatio 以下再恢复, poll 仍然照常调用,
+ *   不会超过 max.poll.interval.ms 被踢出消费组</li>
+ *   <li>ringBuffer 满时不阻塞, 把该分区 seek 回第一条没发布的记录, 本批剩下的记录等恢复后重新拉取</li>
+ *   <li>分区被回收前提交已经连续完成的 offset, 还在处理中的记录会被新的消费者再处理一次</li>
+ * </ul>
+ * Consumer 不是线程安全的, 只能由桥接线程使用, 需要关闭 enable.auto.commit.
+ *
+ * @param <K> 记录的 key 类型
+ * @param <V> 记录的 value 类型
+ * */
+@Slf4j
+public class KafkaDisruptorBridge<K, V> implements Runnable, Closeable {
+
+  private final Consumer<K, V> consumer;
+  private final Collection<String> topics;
+  private final KafkaRecordDisruptor<K, V> disruptor;
+  private final Map<TopicPartition, PartitionOffsetTracker> trackers =
+    new ConcurrentHashMap<>();
+
+  /** poll 等待时间 */
+  @Setter
+  private Duration pollTimeout = Duration.ofMillis(100);
+  /** 两次提交的最小间隔 */
+  @Setter
+  private Duration commitInterval = Duration.ofSeconds(1);
+  /** 占用率达到该值时暂停拉取 */
+  @Setter
+  private double pauseRatio = 0.8;
+  /** 暂停后占用率降到该值以下时恢复拉取 */
+  @Setter
+  private double resumeRatio = 0.5;
+
+  private volatile boolean running = true;
+  private volatile boolean paused;
+  private long lastCommitNanos;
+  private Thread thread;
+
+  public KafkaDisruptorBridge(
+    Consumer<K, V> consumer,
+    Collection<String> topics,
+    KafkaRecordDisruptor<K, V> disruptor
+  ) {
+    this.consumer = consumer;
+    this.topics = topics;
+    this.disruptor = disruptor;
+  }
+
+  /**
+   * <h2>在新线程中运行</h2>
+   * */
+  public synchronized void start(String threadName) {
+    thread = new Thread(this, threadName);
+    thread.start();
+  }
+
+  @Override
+  public void run() {
+    consumer.subscribe(topics, new RebalanceListener());
+    try {
+      while (running) {
+        applyBackpressure();
+        ConsumerRecords<K, V> records = consumer.poll(pollTimeout);
+        publish(records);
+        commit(false);
+      }
+    } catch (WakeupException ex) {
+      if (running) {
+        throw ex;
+      }
+    } finally {
+      try {
+        commit(true);
+      } finally {
+        consumer.close();
+      }
+    }
+  }
+
+  /**
+   * <h2>停止拉取, 提交已完成的 offset 并关闭 consumer; 在途的记录由 disruptor 自己处理完</h2>
+   * */
+  @Override
+  public void close() {
+    running = false;
+    consumer.wakeup();
+    Thread thread;
+    synchronized (this) {
+      thread = this.thread;
+    }
+    if (thread != null && thread != Thread.currentThread()) {
+      try {
+        thread.join();
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  public boolean isPaused() {
+    return paused;
+  }
+
+  private void applyBackpressure() {
+    double fillRatio = disruptor.fillRatio();
+    if (!paused && fillRatio >= pauseRatio) {
+      paused = true;
+      log.info("ring buffer fill ratio {}, pause {}", fillRatio, topics);
+    } else if (paused && fillRatio <= resumeRatio) {
+      paused = false;
+      consumer.resume(consumer.paused());
+      log.info("ring buffer fill ratio {}, resume {}", fillRatio, topics);
+    }
+    if (paused) {
+      // 再平衡后新分配的分区默认没有暂停
+      consumer.pause(consumer.assignment());
+    }
+  }
+
+  private void publish(ConsumerRecords<K, V> records) {
+    for (TopicPartition partition : records.partitions()) {
+      PartitionOffsetTracker tracker = trackers.get(partition);
+      if (tracker == null) {
+        continue;
+      }
+      for (ConsumerRecord<K, V> record : records.records(partition)) {
+        tracker.track(record.offset());
+        if (!disruptor.tryPublish(record, tracker)) {
+          tracker.untrack(record.offset());
+          // 从这条记录开始重新拉取, 暂停到 ringBuffer 有空位为止
+          consumer.seek(partition, record.offset());
+          if (!paused) {
+            paused = true;
+            consumer.pause(consumer.assignment());
+            log.info("ring buffer full, pause {}", topics);
+          }
+          break;
+        }
+      }
+    }
+  }
+
+  private void commit(boolean sync) {
+    long now = System.nanoTime();
+    if (!sync && now - lastCommitNanos < commitInterval.toNanos()) {
+      return;
+    }
+    lastCommitNanos = now;
+    commit(trackers.keySet(), sync);
+  }
+
+  private void commit(Collection<TopicPartition> partitions, boolean sync) {
+    Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+    for (TopicPartition partition : partitions) {
+      PartitionOffsetTracker tracker = trackers.get(partition);
+      long offset = tracker == null ? -1 : tracker.takeCommittable();
+      if (offset >= 0) {
+        offsets.put(partition, new OffsetAndMetadata(offset));
+      }
+    }
+    if (offsets.isEmpty()) {
+      return;
+    }
+    if (sync) {
+      consumer.commitSync(offsets);
+    } else {
+      consumer.commitAsync(
+        offsets,
+        (committed, ex) -> {
+          if (ex != null) {
+            // 下一次提交会带上更大的 offset, 这里只记录日志
+            log.warn("commit {} failed", committed, ex);
+          }
+        }
+      );
+    }
+  }
+
+  private class RebalanceListener implements ConsumerRebalanceListener {
+
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+      commit(partitions, true);
+      partitions.forEach(trackers::remove);
+      log.info("partitions revoked {}", partitions);
+    }
+
+    @Override
+    public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+      for (TopicPartition partition : partitions) {
+        trackers.put(partition, new PartitionOffsetTracker(partition));
+      }
+      log.info("partitions assigned {}", partitions);
+    }
+
+    @Override
+    public void onPartitionsLost(Collection<TopicPartition> partitions) {
+      // 已经不属于这个消费者, 不能再提交
+      partitions.forEach(trackers::remove);
+      log.warn("partitions lost {}", partitions);
+    }
+  }
+}
@@ -0,0 +1,105 @@
+package com.hello.disruptor.kafka;
+
+import com.hello.disruptor.EventMessage;
+import com.hello.disruptor.EventMessageDisruptor;
+import com.lmax.disruptor.WorkHandler;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+
+/**
+ * <h1>处理 kafka 记录的 worker pool disruptor</h1>
+ *
+ * 由 {@link KafkaDisruptorBridge} 发布记录, 多个 worker 并行处理, 同一个分区的记录也会被并行处理.
+ * 需要按 key 有序时用 {@link com.hello.disruptor.ShardedEventMessageDisruptor}.
+ *
+ * @param <K> 记录的 key 类型
+ * @param <V> 记录的 value 类型
+ * */
+@Slf4j
+public abstract class KafkaRecordDisruptor<K, V> extends EventMessageDisruptor {
+
+  /**
+   * <h2>处理一条记录, 在 worker 线程上调用</h2>
+   * */
+  protected abstract void handleRecord(ConsumerRecord<K, V> record)
+    throws Exception;
+
+  /**
+   * <h2>worker 数量</h2>
+   * */
+  protected int workerCount() {
+    return 4;
+  }
+
+  /**
+   * <h2>处理失败的记录, 默认记录日志后跳过, 子类可以覆盖为重试或者写入死信 topic</h2>
+   *
+   * 返回后记录视为完成, offset 可以被提交; 抛出异常时该记录永远不会完成, 分区的提交会停在这里.
+   * */
+  protected void onRecordFailure(ConsumerRecord<K, V> record, Exception ex)
+    throws Exception {
+    log.error(
+      "handle record {}-{}@{} failed, skipped",
+      record.topic(),
+      record.partition(),
+      record.offset(),
+      ex
+    );
+  }
+
+  @Override
+  protected String propertyPrefix() {
+    return "hello.disruptor.kafka";
+  }
+
+  @Override
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  protected final void handleEvent() {
+    WorkHandler<EventMessage>[] workers = new WorkHandler[workerCount()];
+    for (int i = 0; i < workers.length; i++) {
+      workers[i] = instrumentWorker("kafka-worker-" + i, this::onRecord);
+    }
+    disruptor.handleEventsWithWorkerPool(workers);
+  }
+
+  /**
+   * <h2>发布一条已经登记到 tracker 的记录, ringBuffer 已满时返回 false</h2>
+   * */
+  boolean tryPublish(
+    ConsumerRecord<K, V> record,
+    PartitionOffsetTracker tracker
+  ) {
+    return tryPublish(new TrackedRecord<>(record, tracker));
+  }
+
+  @SuppressWarnings("unchecked")
+  private void onRecord(EventMessage event) throws Exception {
+    TrackedRecord<K, V> tracked = (TrackedRecord<K, V>) event.getObj();
+    // 槽位会被复用, 先取出引用
+    event.setObj(null);
+    ConsumerRecord<K, V> record = tracked.record;
+    try {
+      handleRecord(record);
+    } catch (Exception ex) {
+      onRecordFailure(record, ex);
+    }
+    tracked.tracker.complete(record.offset());
+  }
+
+  /**
+   * <h2>记录和它所属分区的 tracker, 分区重新分配后旧 tracker 上的完成不会影响新 tracker</h2>
+   * */
+  private static final class TrackedRecord<K, V> {
+
+    private final ConsumerRecord<K, V> record;
+    private final PartitionOffsetTracker tracker;
+
+    private TrackedRecord(
+      ConsumerRecord<K, V> record,
+      PartitionOffsetTracker tracker
+    ) {
+      this.record = record;
+      this.tracker = tracker;
+    }
+  }
+}
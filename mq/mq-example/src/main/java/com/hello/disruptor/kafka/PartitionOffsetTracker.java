@@ -0,0 +1,77 @@
+package com.hello.disruptor.kafka;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Set;
+import org.apache.kafka.common.TopicPartition;
+
+/**
+ * <h1>一个分区的消费进度, 只提交连续处理完成的最大 offset</h1>
+ *
+ * poll 线程按顺序登记发布出去的 offset, 多个 worker 乱序完成. 可提交的 offset 是从最早一条
+ * 未完成记录之前的连续完成区间算出来的, 中间有一条没处理完, 后面的都不会提交, 所以重启后最多重复处理,
+ * 不会丢消息. offset 可能不连续 (压缩的 topic, 事务标记), 所以登记的是实际的 offset 而不是区间.
+ * */
+public class PartitionOffsetTracker {
+
+  private final TopicPartition partition;
+  /** 已发布未提交的 offset, 按发布顺序 */
+  private final ArrayDeque<Long> pending = new ArrayDeque<>();
+  /** pending 中已经处理完的 offset */
+  private final Set<Long> completed = new HashSet<>();
+  /** 下一次要提交的 offset, 即连续完成的最大 offset + 1 */
+  private long committable = -1;
+  private long lastTaken = -1;
+
+  public PartitionOffsetTracker(TopicPartition partition) {
+    this.partition = partition;
+  }
+
+  public TopicPartition getPartition() {
+    return partition;
+  }
+
+  /**
+   * <h2>登记一条即将发布的记录, 必须在发布之前调用, 否则 worker 可能先完成</h2>
+   * */
+  public synchronized void track(long offset) {
+    pending.addLast(offset);
+  }
+
+  /**
+   * <h2>撤销最后一次登记, 发布失败时调用</h2>
+   * */
+  public synchronized void untrack(long offset) {
+    if (pending.peekLast() != null && pending.peekLast() == offset) {
+      pending.removeLast();
+    }
+  }
+
+  /**
+   * <h2>worker 处理完一条记录</h2>
+   * */
+  public synchronized void complete(long offset) {
+    completed.add(offset);
+    while (!pending.isEmpty() && completed.remove(pending.peekFirst())) {
+      committable = pending.removeFirst() + 1;
+    }
+  }
+
+  /**
+   * <h2>返回上次调用以来新的可提交 offset, 没有推进时返回 -1</h2>
+   * */
+  public synchronized long takeCommittable() {
+    if (committable <= lastTaken) {
+      return -1;
+    }
+    lastTaken = committable;
+    return committable;
+  }
+
+  /**
+   * <h2>已发布但还不能提交的记录数</h2>
+   * */
+  public synchronized int pendingCount() {
+    return pending.size();
+  }
+}
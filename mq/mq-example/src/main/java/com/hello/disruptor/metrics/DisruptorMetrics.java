@@ -0,0 +1,232 @@
+package com.hello.disruptor.metrics;
+
+import com.lmax.disruptor.Cursored;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.Sequenced;
+import com.lmax.disruptor.WorkHandler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongSupplier;
+
+/**
+ * <h1>一个 disruptor 实例的 Micrometer 指标</h1>
+ *
+ * 所有指标带 disruptor 标签 (bean 名称). ringBuffer 相关的指标在读取时从 cursor 和 gating sequence
+ * 计算, 不占用发布路径; 处理器相关的指标由 {@link TimedEventHandler} / {@link TimedWorkHandler}
+ * 在消费者线程上记录. 服务时间分位数和直方图由 Micrometer 基于 HdrHistogram 计算.
+ * <pre>
+ * disruptor.published                 已发布的事件数 (cursor + 1), 求速率即发布速率
+ * disruptor.ring.buffer.size          ringBuffer 大小
+ * disruptor.ring.remaining.capacity   剩余空位数
+ * disruptor.ring.backlog              最慢的消费者落后 cursor 的事件数
+ * disruptor.handler.service.time      每个事件的处理耗时
+ * disruptor.handler.batch.size        每批处理的事件数
+ * disruptor.handler.lag               cursor 减去该处理器已处理 (异步处理时为已完成) 的序号
+ * disruptor.handler.exceptions        处理器抛出的异常数
+ * </pre>
+ * */
+public class DisruptorMetrics {
+
+  private final MeterRegistry registry;
+  private final Tags tags;
+  private final List<Meter> meters = new CopyOnWriteArrayList<>();
+
+  public DisruptorMetrics(MeterRegistry registry, String disruptorName) {
+    this.registry = registry;
+    this.tags = Tags.of("disruptor", disruptorName);
+  }
+
+  /**
+   * <h2>注册 ringBuffer 的发布数, 容量和积压指标</h2>
+   *
+   * 堆内的 RingBuffer 和 off-heap 的 ringBuffer 都实现了 Cursored 和 Sequenced.
+   *
+   * @param extraTags 额外的标签, 例如分片号
+   * */
+  public <R extends Cursored & Sequenced> void bindRingBuffer(
+    R ringBuffer,
+    Tags extraTags
+  ) {
+    Tags ringTags = tags.and(extraTags);
+    register(
+      FunctionCounter
+        .builder("disruptor.published", ringBuffer, rb -> rb.getCursor() + 1)
+        .tags(ringTags)
+        .description("events published to the ring buffer")
+        .register(registry)
+    );
+    register(
+      Gauge
+        .builder(
+          "disruptor.ring.buffer.size",
+          ringBuffer,
+          Sequenced::getBufferSize
+        )
+        .tags(ringTags)
+        .register(registry)
+    );
+    register(
+      Gauge
+        .builder(
+          "disruptor.ring.remaining.capacity",
+          ringBuffer,
+          Sequenced::remainingCapacity
+        )
+        .tags(ringTags)
+        .register(registry)
+    );
+    register(
+      Gauge
+        .builder(
+          "disruptor.ring.backlog",
+          ringBuffer,
+          rb -> rb.getBufferSize() - rb.remainingCapacity()
+        )
+        .tags(ringTags)
+        .description("events not yet processed by the slowest consumer")
+        .register(registry)
+    );
+  }
+
+  /**
+   * <h2>包装 EventHandler, 记录服务时间, 批大小和落后的事件数</h2>
+   * */
+  public <T> EventHandler<T> timed(
+    String handlerName,
+    EventHandler<T> handler,
+    Cursored ringBuffer,
+    Tags extraTags
+  ) {
+    Tags handlerTags = tags.and(extraTags).and("handler", handlerName);
+    TimedEventHandler<T> timed = new TimedEventHandler<>(
+      handler,
+      serviceTime(handlerTags),
+      batchSize(handlerTags)
+    );
+    register(
+      Gauge
+        .builder(
+          "disruptor.handler.lag",
+          timed,
+          h -> ringBuffer.getCursor() - h.getProcessedSequence()
+        )
+        .tags(handlerTags)
+        .description("cursor minus the last sequence processed by the handler")
+        .register(registry)
+    );
+    return timed;
+  }
+
+  /**
+   * <h2>包装把事件交给其他线程完成的 EventHandler, lag 按 completedSequence 计算</h2>
+   *
+   * onEvent 返回时事件只是分发出去了, 按 onEvent 返回的序号算 lag 会漏掉还在执行的事件.
+   * 服务时间和批大小仍然是分发的耗时和批大小.
+   *
+   * @param completedSequence 连续完成的最大序号
+   * */
+  public <T> EventHandler<T> timed(
+    String handlerName,
+    EventHandler<T> handler,
+    Cursored ringBuffer,
+    LongSupplier completedSequence,
+    Tags extraTags
+  ) {
+    Tags handlerTags = tags.and(extraTags).and("handler", handlerName);
+    TimedEventHandler<T> timed = new TimedEventHandler<>(
+      handler,
+      serviceTime(handlerTags),
+      batchSize(handlerTags)
+    );
+    register(
+      Gauge
+        .builder(
+          "disruptor.handler.lag",
+          timed,
+          h -> ringBuffer.getCursor() - completedSequence.getAsLong()
+        )
+        .tags(handlerTags)
+        .description("cursor minus the last sequence completed by the handler")
+        .register(registry)
+    );
+    return timed;
+  }
+
+  /**
+   * <h2>包装 WorkHandler, 只记录服务时间; worker pool 的积压看 disruptor.ring.backlog</h2>
+   * */
+  public <T> WorkHandler<T> timed(
+    String handlerName,
+    WorkHandler<T> handler,
+    Tags extraTags
+  ) {
+    Tags handlerTags = tags.and(extraTags).and("handler", handlerName);
+    return new TimedWorkHandler<>(handler, serviceTime(handlerTags));
+  }
+
+  /**
+   * <h2>异常计数, phase 为 event / start / shutdown</h2>
+   * */
+  public void recordException(String phase, Throwable ex) {
+    register(
+      Counter
+        .builder("disruptor.handler.exceptions")
+        .tags(tags)
+        .tag("phase", phase)
+        .tag("exception", ex.getClass().getSimpleName())
+        .register(registry)
+    )
+      .increment();
+  }
+
+  /**
+   * <h2>从 registry 中移除所有指标, disruptor 关闭后调用, 避免指标引用已停止的 ringBuffer</h2>
+   * */
+  public void close() {
+    for (Meter meter : meters) {
+      registry.remove(meter);
+    }
+    meters.clear();
+  }
+
+  public MeterRegistry getRegistry() {
+    return registry;
+  }
+
+  private Timer serviceTime(Tags handlerTags) {
+    return register(
+      Timer
+        .builder("disruptor.handler.service.time")
+        .tags(handlerTags)
+        .publishPercentiles(0.5, 0.99, 0.999)
+        .publishPercentileHistogram()
+        .register(registry)
+    );
+  }
+
+  private DistributionSummary batchSize(Tags handlerTags) {
+    return register(
+      DistributionSummary
+        .builder("disruptor.handler.batch.size")
+        .tags(handlerTags)
+        .baseUnit("events")
+        .publishPercentiles(0.5, 0.99)
+        .register(registry)
+    );
+  }
+
+  private <M extends Meter> M register(M meter) {
+    if (!meters.contains(meter)) {
+      meters.add(meter);
+    }
+    return meter;
+  }
+}
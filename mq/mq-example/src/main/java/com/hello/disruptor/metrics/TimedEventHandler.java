@@ -0,0 +1,107 @@
+package com.hello.disruptor.metrics;
+
+import com.lmax.disruptor.BatchStartAware;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.LifecycleAware;
+import com.lmax.disruptor.Sequence;
+import com.lmax.disruptor.SequenceReportingEventHandler;
+import com.lmax.disruptor.TimeoutHandler;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>记录服务时间和批大小的 EventHandler 包装</h1>
+ *
+ * 生命周期, 超时和序号回调都转发给被包装的处理器, 所以包装后行为不变.
+ * 批大小按 endOfBatch 统计, 处理器抛出异常时同一批的剩余事件仍计入这一批.
+ * 已处理的序号保存在独立的 {@link Sequence} 中, 供指标线程计算 lag.
+ *
+ * @param <T> 事件类型
+ * */
+public class TimedEventHandler<T>
+  implements
+    SequenceReportingEventHandler<T>,
+    BatchStartAware,
+    LifecycleAware,
+    TimeoutHandler {
+
+  private final EventHandler<T> delegate;
+  private final Timer serviceTime;
+  private final DistributionSummary batchSize;
+  private final Sequence processed = new Sequence();
+  private long eventsInBatch;
+
+  TimedEventHandler(
+    EventHandler<T> delegate,
+    Timer serviceTime,
+    DistributionSummary batchSize
+  ) {
+    this.delegate = delegate;
+    this.serviceTime = serviceTime;
+    this.batchSize = batchSize;
+  }
+
+  @Override
+  public void onEvent(T event, long sequence, boolean endOfBatch)
+    throws Exception {
+    long start = System.nanoTime();
+    try {
+      delegate.onEvent(event, sequence, endOfBatch);
+    } finally {
+      serviceTime.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+      eventsInBatch++;
+      if (endOfBatch) {
+        batchSize.record(eventsInBatch);
+        eventsInBatch = 0;
+      }
+      // 有序写即可, 指标线程读到稍旧的值没有关系
+      processed.set(sequence);
+    }
+  }
+
+  @Override
+  public void onBatchStart(long batchSize) {
+    if (delegate instanceof BatchStartAware) {
+      ((BatchStartAware) delegate).onBatchStart(batchSize);
+    }
+  }
+
+  @Override
+  public void setSequenceCallback(Sequence sequenceCallback) {
+    if (delegate instanceof SequenceReportingEventHandler) {
+      ((SequenceReportingEventHandler<T>) delegate).setSequenceCallback(
+          sequenceCallback
+        );
+    }
+  }
+
+  @Override
+  public void onTimeout(long sequence) throws Exception {
+    if (delegate instanceof TimeoutHandler) {
+      ((TimeoutHandler) delegate).onTimeout(sequence);
+    }
+  }
+
+  @Override
+  public void onStart() {
+    if (delegate instanceof LifecycleAware) {
+      ((LifecycleAware) delegate).onStart();
+    }
+  }
+
+  @Override
+  public void onShutdown() {
+    if (delegate instanceof LifecycleAware) {
+      ((LifecycleAware) delegate).onShutdown();
+    }
+  }
+
+  public EventHandler<T> getDelegate() {
+    return delegate;
+  }
+
+  long getProcessedSequence() {
+    return processed.get();
+  }
+}
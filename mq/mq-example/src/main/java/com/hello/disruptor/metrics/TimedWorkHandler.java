@@ -0,0 +1,50 @@
+package com.hello.disruptor.metrics;
+
+import com.lmax.disruptor.LifecycleAware;
+import com.lmax.disruptor.WorkHandler;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>记录服务时间的 WorkHandler 包装</h1>
+ *
+ * @param <T> 事件类型
+ * */
+public class TimedWorkHandler<T> implements WorkHandler<T>, LifecycleAware {
+
+  private final WorkHandler<T> delegate;
+  private final Timer serviceTime;
+
+  TimedWorkHandler(WorkHandler<T> delegate, Timer serviceTime) {
+    this.delegate = delegate;
+    this.serviceTime = serviceTime;
+  }
+
+  @Override
+  public void onEvent(T event) throws Exception {
+    long start = System.nanoTime();
+    try {
+      delegate.onEvent(event);
+    } finally {
+      serviceTime.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  @Override
+  public void onStart() {
+    if (delegate instanceof LifecycleAware) {
+      ((LifecycleAware) delegate).onStart();
+    }
+  }
+
+  @Override
+  public void onShutdown() {
+    if (delegate instanceof LifecycleAware) {
+      ((LifecycleAware) delegate).onShutdown();
+    }
+  }
+
+  public WorkHandler<T> getDelegate() {
+    return delegate;
+  }
+}
@@ -0,0 +1,179 @@
+package com.hello.disruptor.offheap;
+
+import com.hello.disruptor.AbstractDisruptorLifecycle;
+import com.hello.disruptor.DisruptorProperties;
+import com.lmax.disruptor.BatchEventProcessor;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.Sequence;
+import com.lmax.disruptor.SequenceBarrier;
+import io.micrometer.core.instrument.Tags;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>槽位在堆外的 disruptor</h1>
+ *
+ * 和 {@link com.hello.disruptor.BinarySlotEventDisruptor} 发布相同的字段, 但数据存放在
+ * {@link OffHeapRingBuffer} 的 direct ByteBuffer 中, 大 ringBuffer 不再占用堆和老年代.
+ * 消费者仍然是 disruptor 的 BatchEventProcessor, 每个处理器拿到自己的 {@link OffHeapSlot} 视图.
+ * <pre>
+ * hello.disruptor.off-heap.buffer-size=1048576
+ * hello.disruptor.off-heap.slot-size=256
+ * </pre>
+ * */
+public abstract class OffHeapEventDisruptor
+  extends AbstractDisruptorLifecycle<OffHeapRingBuffer> {
+
+  private OffHeapRingBuffer ringBuffer;
+  private final List<BatchEventProcessor<OffHeapSlot>> processors =
+    new ArrayList<>();
+  private final Set<Sequence> endOfChain = new LinkedHashSet<>();
+  private final List<Thread> threads = new ArrayList<>();
+
+  /**
+   * <h2>设置事件处理器, 用 {@link #handleEventsWith(EventHandler[])} 和 then 组织拓扑</h2>
+   * */
+  protected abstract void handleEvent();
+
+  /**
+   * <h2>第一组处理器, 直接跟在生产者后面</h2>
+   * */
+  @SafeVarargs
+  @SuppressWarnings("varargs")
+  protected final HandlerGroup handleEventsWith(
+    EventHandler<OffHeapSlot>... handlers
+  ) {
+    return createProcessors(new Sequence[0], handlers);
+  }
+
+  /**
+   * <h2>包装处理器, 记录服务时间, 批大小和 lag</h2>
+   * */
+  protected EventHandler<OffHeapSlot> instrument(
+    String handlerName,
+    EventHandler<OffHeapSlot> handler
+  ) {
+    return getMetrics().timed(handlerName, handler, ringBuffer, Tags.empty());
+  }
+
+  /**
+   * <h2>生产者, 发布基本类型字段</h2>
+   * */
+  public void onData(int type, long key, long value) {
+    ringBuffer.publish(type, key, value, null, 0, 0);
+  }
+
+  /**
+   * <h2>生产者, 发布基本类型字段和一段二进制数据</h2>
+   * */
+  public void onData(int type, long key, byte[] data, int offset, int length) {
+    ringBuffer.publish(type, key, 0L, data, offset, length);
+  }
+
+  /**
+   * <h2>非阻塞发布, ringBuffer 已满时立即返回 false</h2>
+   * */
+  public boolean tryPublish(
+    int type,
+    long key,
+    byte[] data,
+    int offset,
+    int length
+  ) {
+    return ringBuffer.tryPublish(type, key, 0L, data, offset, length);
+  }
+
+  @Override
+  protected String propertyPrefix() {
+    return "hello.disruptor.off-heap";
+  }
+
+  protected OffHeapRingBuffer getRingBuffer() {
+    return ringBuffer;
+  }
+
+  /**
+   * <h2>创建 ringBuffer 和处理器线程并启动</h2>
+   * */
+  @Override
+  protected void start() {
+    DisruptorProperties properties = getProperties();
+    ringBuffer =
+    OffHeapRingBuffer.create(
+      properties.getProducerType(),
+      properties.getBufferSize(),
+      properties.getSlotSize(),
+      properties.newWaitStrategy()
+    );
+    // 设置事件处理器
+    handleEvent();
+    // 只有最后一组处理器限制生产者, 前面的处理器由后面的处理器间接限制
+    ringBuffer.addGatingSequences(endOfChain.toArray(new Sequence[0]));
+    ThreadFactory threadFactory = threadFactory(properties);
+    for (BatchEventProcessor<OffHeapSlot> processor : processors) {
+      Thread thread = threadFactory.newThread(processor);
+      threads.add(thread);
+      thread.start();
+    }
+    addRingBuffer(ringBuffer, Tags.empty());
+  }
+
+  /**
+   * <h2>等已发布的事件处理完后停止消费者</h2>
+   * */
+  @Override
+  protected void stop() throws InterruptedException {
+    awaitDrained(ringBuffer, ringBuffer::getMinimumGatingSequence);
+    for (BatchEventProcessor<OffHeapSlot> processor : processors) {
+      processor.halt();
+    }
+    for (Thread thread : threads) {
+      thread.join(TimeUnit.SECONDS.toMillis(10));
+    }
+    threads.clear();
+  }
+
+  private HandlerGroup createProcessors(
+    Sequence[] barrierSequences,
+    EventHandler<OffHeapSlot>[] handlers
+  ) {
+    SequenceBarrier barrier = ringBuffer.newBarrier(barrierSequences);
+    Sequence[] sequences = new Sequence[handlers.length];
+    for (int i = 0; i < handlers.length; i++) {
+      BatchEventProcessor<OffHeapSlot> processor = new BatchEventProcessor<>(
+        ringBuffer.newDataProvider(),
+        barrier,
+        handlers[i]
+      );
+      processor.setExceptionHandler(getExceptionHandler());
+      processors.add(processor);
+      sequences[i] = processor.getSequence();
+    }
+    Arrays.asList(barrierSequences).forEach(endOfChain::remove);
+    endOfChain.addAll(Arrays.asList(sequences));
+    return new HandlerGroup(sequences);
+  }
+
+  /**
+   * <h1>一组并行的处理器, then 之后的处理器等这一组都处理完再处理</h1>
+   * */
+  public final class HandlerGroup {
+
+    private final Sequence[] sequences;
+
+    private HandlerGroup(Sequence[] sequences) {
+      this.sequences = sequences;
+    }
+
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    public final HandlerGroup then(EventHandler<OffHeapSlot>... handlers) {
+      return createProcessors(sequences, handlers);
+    }
+  }
+}
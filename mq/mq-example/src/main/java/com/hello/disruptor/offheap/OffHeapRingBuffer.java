@@ -0,0 +1,251 @@
+package com.hello.disruptor.offheap;
+
+import com.lmax.disruptor.Cursored;
+import com.lmax.disruptor.DataProvider;
+import com.lmax.disruptor.InsufficientCapacityException;
+import com.lmax.disruptor.MultiProducerSequencer;
+import com.lmax.disruptor.Sequence;
+import com.lmax.disruptor.SequenceBarrier;
+import com.lmax.disruptor.Sequenced;
+import com.lmax.disruptor.Sequencer;
+import com.lmax.disruptor.SingleProducerSequencer;
+import com.lmax.disruptor.WaitStrategy;
+import com.lmax.disruptor.dsl.ProducerType;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * <h1>槽位在堆外的 ringBuffer</h1>
+ *
+ * 序号的申请, 发布和等待沿用 disruptor 的 Sequencer, 只是数据不再是预分配的对象,
+ * 而是一块 bufferSize * slotSize 的 direct ByteBuffer. 堆上只剩这一个 ByteBuffer 对象,
+ * 没有上百万个长期存活的事件对象, 也没有写引用字段带来的 card marking.
+ * 所有读写都用绝对位置的方法, 不修改 ByteBuffer 的 position, 多个线程可以共用同一个 buffer,
+ * 可见性由 Sequencer 的发布和 SequenceBarrier 保证.
+ * <p>
+ * 除了 publish 方法, 也可以用 {@link #next(int)} 批量申请序号, 逐个用
+ * {@link #write(long, int, long, long, byte[], int, int)} 写入槽位, 最后在 finally 中
+ * {@link #publish(long, long)}; 申请的序号必须发布, 否则消费者会卡住.
+ * */
+public class OffHeapRingBuffer implements Cursored, Sequenced {
+
+  private final Sequencer sequencer;
+  private final ByteBuffer buffer;
+  private final int bufferSize;
+  private final int slotSize;
+  private final int mask;
+
+  OffHeapRingBuffer(Sequencer sequencer, int slotSize) {
+    if (slotSize < OffHeapSlot.HEADER_LENGTH || slotSize % Long.BYTES != 0) {
+      throw new IllegalArgumentException(
+        "slotSize must be a multiple of 8 and at least " +
+        OffHeapSlot.HEADER_LENGTH +
+        ": " +
+        slotSize
+      );
+    }
+    this.sequencer = sequencer;
+    this.bufferSize = sequencer.getBufferSize();
+    this.slotSize = slotSize;
+    this.mask = bufferSize - 1;
+    final int capacity;
+    try {
+      capacity = Math.multiplyExact(bufferSize, slotSize);
+    } catch (ArithmeticException ex) {
+      throw new IllegalArgumentException(
+        "bufferSize * slotSize exceeds 2GB: " + bufferSize + " * " + slotSize
+      );
+    }
+    this.buffer =
+    ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+  }
+
+  /**
+   * <h2>创建 off-heap ringBuffer, bufferSize 必须是 2 的幂</h2>
+   * */
+  public static OffHeapRingBuffer create(
+    ProducerType producerType,
+    int bufferSize,
+    int slotSize,
+    WaitStrategy waitStrategy
+  ) {
+    Sequencer sequencer = producerType == ProducerType.SINGLE
+      ? new SingleProducerSequencer(bufferSize, waitStrategy)
+      : new MultiProducerSequencer(bufferSize, waitStrategy);
+    return new OffHeapRingBuffer(sequencer, slotSize);
+  }
+
+  /**
+   * <h2>申请一个槽位, 写入后发布; 没有空位时等待</h2>
+   * */
+  public void publish(
+    int type,
+    long key,
+    long value,
+    byte[] data,
+    int offset,
+    int length
+  ) {
+    checkLength(length);
+    long sequence = sequencer.next();
+    try {
+      writeSlot(sequence, type, key, value, data, offset, length);
+    } finally {
+      sequencer.publish(sequence);
+    }
+  }
+
+  /**
+   * <h2>非阻塞发布, 没有空位时返回 false</h2>
+   * */
+  public boolean tryPublish(
+    int type,
+    long key,
+    long value,
+    byte[] data,
+    int offset,
+    int length
+  ) {
+    checkLength(length);
+    long sequence;
+    try {
+      sequence = sequencer.tryNext();
+    } catch (InsufficientCapacityException ex) {
+      return false;
+    }
+    try {
+      writeSlot(sequence, type, key, value, data, offset, length);
+    } finally {
+      sequencer.publish(sequence);
+    }
+    return true;
+  }
+
+  /**
+   * <h2>写入已申请但还没发布的序号对应的槽位</h2>
+   *
+   * @param sequence {@link #next()} 或 {@link #tryNext()} 返回的序号
+   * */
+  public void write(
+    long sequence,
+    int type,
+    long key,
+    long value,
+    byte[] data,
+    int offset,
+    int length
+  ) {
+    checkLength(length);
+    writeSlot(sequence, type, key, value, data, offset, length);
+  }
+
+  /**
+   * <h2>为一个消费者创建数据提供者, 内部持有一个只属于该消费者的 flyweight 视图</h2>
+   * */
+  public DataProvider<OffHeapSlot> newDataProvider() {
+    OffHeapSlot slot = new OffHeapSlot(buffer, slotSize, bufferSize);
+    return slot::wrap;
+  }
+
+  public SequenceBarrier newBarrier(Sequence... sequencesToTrack) {
+    return sequencer.newBarrier(sequencesToTrack);
+  }
+
+  public void addGatingSequences(Sequence... gatingSequences) {
+    sequencer.addGatingSequences(gatingSequences);
+  }
+
+  public boolean removeGatingSequence(Sequence sequence) {
+    return sequencer.removeGatingSequence(sequence);
+  }
+
+  public long getMinimumGatingSequence() {
+    return sequencer.getMinimumSequence();
+  }
+
+  public int getSlotSize() {
+    return slotSize;
+  }
+
+  /**
+   * <h2>每个槽位能放下的 payload 字节数</h2>
+   * */
+  public int getPayloadCapacity() {
+    return slotSize - OffHeapSlot.HEADER_LENGTH;
+  }
+
+  @Override
+  public long getCursor() {
+    return sequencer.getCursor();
+  }
+
+  @Override
+  public int getBufferSize() {
+    return bufferSize;
+  }
+
+  @Override
+  public boolean hasAvailableCapacity(int requiredCapacity) {
+    return sequencer.hasAvailableCapacity(requiredCapacity);
+  }
+
+  @Override
+  public long remainingCapacity() {
+    return sequencer.remainingCapacity();
+  }
+
+  @Override
+  public long next() {
+    return sequencer.next();
+  }
+
+  @Override
+  public long next(int n) {
+    return sequencer.next(n);
+  }
+
+  @Override
+  public long tryNext() throws InsufficientCapacityException {
+    return sequencer.tryNext();
+  }
+
+  @Override
+  public long tryNext(int n) throws InsufficientCapacityException {
+    return sequencer.tryNext(n);
+  }
+
+  @Override
+  public void publish(long sequence) {
+    sequencer.publish(sequence);
+  }
+
+  @Override
+  public void publish(long lo, long hi) {
+    sequencer.publish(lo, hi);
+  }
+
+  private void checkLength(int length) {
+    // 申请序号之后必须发布, 所以在申请之前校验长度
+    if (length > getPayloadCapacity()) {
+      throw new IllegalArgumentException(
+        "payload length " +
+        length +
+        " exceeds slot capacity " +
+        getPayloadCapacity()
+      );
+    }
+  }
+
+  private void writeSlot(
+    long sequence,
+    int type,
+    long key,
+    long value,
+    byte[] data,
+    int offset,
+    int length
+  ) {
+    int base = (int) (sequence & mask) * slotSize;
+    OffHeapSlot.write(buffer, base, type, key, value, data, offset, length);
+  }
+}
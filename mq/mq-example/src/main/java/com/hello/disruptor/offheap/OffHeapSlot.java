@@ -0,0 +1,142 @@
+package com.hello.disruptor.offheap;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <h1>off-heap 槽位的 flyweight 视图</h1>
+ *
+ * 槽位是 direct ByteBuffer 中一段定长的内存, 格式:
+ * <pre>
+ * int  type
+ * int  length      payload 的长度
+ * long key
+ * long value
+ * long timestamp   发布时的 System.nanoTime()
+ * byte[] payload   最多 slotSize - 32 字节
+ * </pre>
+ * 每个消费者持有自己的视图实例, 处理事件时只移动偏移量, 不创建对象.
+ * 视图只在 onEvent 调用期间有效, 需要保留数据时用 copyPayload 拷贝出来.
+ * */
+public final class OffHeapSlot {
+
+  static final int TYPE_OFFSET = 0;
+  static final int LENGTH_OFFSET = 4;
+  static final int KEY_OFFSET = 8;
+  static final int VALUE_OFFSET = 16;
+  static final int TIMESTAMP_OFFSET = 24;
+  public static final int HEADER_LENGTH = 32;
+
+  private final ByteBuffer buffer;
+  private final int slotSize;
+  private final int mask;
+  private long sequence = -1;
+  private int offset;
+
+  OffHeapSlot(ByteBuffer buffer, int slotSize, int bufferSize) {
+    this.buffer = buffer;
+    this.slotSize = slotSize;
+    this.mask = bufferSize - 1;
+  }
+
+  /**
+   * <h2>把视图移动到 sequence 对应的槽位</h2>
+   * */
+  OffHeapSlot wrap(long sequence) {
+    this.sequence = sequence;
+    this.offset = (int) (sequence & mask) * slotSize;
+    return this;
+  }
+
+  public long getSequence() {
+    return sequence;
+  }
+
+  public int getType() {
+    return buffer.getInt(offset + TYPE_OFFSET);
+  }
+
+  public long getKey() {
+    return buffer.getLong(offset + KEY_OFFSET);
+  }
+
+  public long getValue() {
+    return buffer.getLong(offset + VALUE_OFFSET);
+  }
+
+  public long getTimestamp() {
+    return buffer.getLong(offset + TIMESTAMP_OFFSET);
+  }
+
+  public int getLength() {
+    return buffer.getInt(offset + LENGTH_OFFSET);
+  }
+
+  /**
+   * <h2>读取 payload 的第 index 个字节</h2>
+   * */
+  public byte getByte(int index) {
+    if (index < 0 || index >= getLength()) {
+      throw new IndexOutOfBoundsException(index);
+    }
+    return buffer.get(offset + HEADER_LENGTH + index);
+  }
+
+  /**
+   * <h2>把 payload 拷贝到 dst 的 dstOffset 处, 返回拷贝的字节数</h2>
+   * */
+  public int copyPayload(byte[] dst, int dstOffset) {
+    int length = getLength();
+    buffer.get(offset + HEADER_LENGTH, dst, dstOffset, length);
+    return length;
+  }
+
+  /**
+   * <h2>把 payload 写入 dst 的当前位置, 返回拷贝的字节数</h2>
+   * */
+  public int copyPayload(ByteBuffer dst) {
+    int length = getLength();
+    dst.put(dst.position(), buffer, offset + HEADER_LENGTH, length);
+    dst.position(dst.position() + length);
+    return length;
+  }
+
+  /**
+   * <h2>把字段写入 buffer 中从 base 开始的槽位, 发布之前调用</h2>
+   * */
+  static void write(
+    ByteBuffer buffer,
+    int base,
+    int type,
+    long key,
+    long value,
+    byte[] data,
+    int offset,
+    int length
+  ) {
+    buffer.putInt(base + TYPE_OFFSET, type);
+    buffer.putInt(base + LENGTH_OFFSET, length);
+    buffer.putLong(base + KEY_OFFSET, key);
+    buffer.putLong(base + VALUE_OFFSET, value);
+    buffer.putLong(base + TIMESTAMP_OFFSET, System.nanoTime());
+    if (length > 0) {
+      buffer.put(base + HEADER_LENGTH, data, offset, length);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return (
+      "OffHeapSlot(sequence=" +
+      sequence +
+      ", type=" +
+      getType() +
+      ", key=" +
+      getKey() +
+      ", value=" +
+      getValue() +
+      ", length=" +
+      getLength() +
+      ")"
+    );
+  }
+}
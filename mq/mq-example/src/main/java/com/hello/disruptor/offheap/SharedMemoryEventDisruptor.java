@@ -0,0 +1,220 @@
+package com.hello.disruptor.offheap;
+
+import com.hello.disruptor.AbstractDisruptorLifecycle;
+import com.hello.disruptor.DisruptorProperties;
+import com.hello.disruptor.DisruptorProperties.WaitStrategyType;
+import com.lmax.disruptor.BatchStartAware;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.LifecycleAware;
+import io.micrometer.core.instrument.Tags;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <h1>跨进程的 disruptor, 同一台机器上的两个 JVM 通过共享内存文件传递事件</h1>
+ *
+ * 编程模型和 {@link OffHeapEventDisruptor} 一样: 生产者进程调用 onData, 消费者进程在
+ * {@link #handleEvent()} 中用 {@link #handleEventsWith(EventHandler)} 注册处理器,
+ * 处理器拿到的是共享内存中槽位的 {@link OffHeapSlot} 视图. 两个进程配置同一个 path,
+ * 底层是 {@link SharedMemoryRingBuffer}, 只支持一个生产者线程和一个处理器.
+ * 生产者进程不注册处理器即可, 不会启动消费者线程.
+ * <p>
+ * 跨进程没有锁和条件变量可用, 消费者按 wait-strategy 选择空闲时的行为:
+ * BUSY_SPIN 一直自旋, 延迟最低; YIELDING 自旋后让出 CPU; 其他策略在让出 CPU 后 park.
+ * <pre>
+ * hello.disruptor.shared-memory.path=/dev/shm/hello-disruptor.ring
+ * hello.disruptor.shared-memory.buffer-size=65536
+ * hello.disruptor.shared-memory.slot-size=256
+ * hello.disruptor.shared-memory.wait-strategy=busy_spin
+ * </pre>
+ * */
+public abstract class SharedMemoryEventDisruptor
+  extends AbstractDisruptorLifecycle<SharedMemoryRingBuffer> {
+
+  /** 空闲时先自旋, 再让出 CPU 的次数 */
+  private static final int SPIN_TRIES = 100;
+  private static final int YIELD_TRIES = 100;
+  private static final long PARK_NANOS = 1_000;
+
+  private SharedMemoryRingBuffer ringBuffer;
+  private EventHandler<OffHeapSlot> handler;
+  private volatile boolean running;
+  private Thread thread;
+
+  /**
+   * <h2>设置事件处理器, 只在消费者进程中注册; 生产者进程留空</h2>
+   * */
+  protected abstract void handleEvent();
+
+  /**
+   * <h2>注册唯一的处理器</h2>
+   * */
+  protected final void handleEventsWith(EventHandler<OffHeapSlot> handler) {
+    if (this.handler != null) {
+      throw new IllegalStateException(
+        "shared memory ring buffer supports a single handler"
+      );
+    }
+    this.handler = handler;
+  }
+
+  /**
+   * <h2>包装处理器, 记录服务时间, 批大小和 lag</h2>
+   * */
+  protected EventHandler<OffHeapSlot> instrument(
+    String handlerName,
+    EventHandler<OffHeapSlot> handler
+  ) {
+    return getMetrics().timed(handlerName, handler, ringBuffer, Tags.empty());
+  }
+
+  /**
+   * <h2>生产者, 发布基本类型字段</h2>
+   * */
+  public void onData(int type, long key, long value) {
+    ringBuffer.publish(type, key, value, null, 0, 0);
+  }
+
+  /**
+   * <h2>生产者, 发布基本类型字段和一段二进制数据</h2>
+   * */
+  public void onData(int type, long key, byte[] data, int offset, int length) {
+    ringBuffer.publish(type, key, 0L, data, offset, length);
+  }
+
+  /**
+   * <h2>非阻塞发布, 消费者没跟上导致没有空位时立即返回 false</h2>
+   * */
+  public boolean tryPublish(
+    int type,
+    long key,
+    byte[] data,
+    int offset,
+    int length
+  ) {
+    return ringBuffer.tryPublish(type, key, 0L, data, offset, length);
+  }
+
+  @Override
+  protected String propertyPrefix() {
+    return "hello.disruptor.shared-memory";
+  }
+
+  protected SharedMemoryRingBuffer getRingBuffer() {
+    return ringBuffer;
+  }
+
+  /**
+   * <h2>打开共享文件, 注册了处理器时启动消费者线程</h2>
+   * */
+  @Override
+  protected void start() throws IOException {
+    DisruptorProperties properties = getProperties();
+    if (properties.getPath() == null || properties.getPath().isEmpty()) {
+      throw new IllegalStateException(propertyPrefix() + ".path is required");
+    }
+    ringBuffer =
+    SharedMemoryRingBuffer.open(
+      Path.of(properties.getPath()),
+      properties.getBufferSize(),
+      properties.getSlotSize()
+    );
+    // 设置事件处理器
+    handleEvent();
+    if (handler != null) {
+      running = true;
+      thread = threadFactory(properties).newThread(this::consume);
+      thread.start();
+    }
+    addRingBuffer(ringBuffer, Tags.empty());
+  }
+
+  /**
+   * <h2>停止消费者线程</h2>
+   *
+   * 不等待没处理的事件, 它们留在共享内存中, 消费者重启后从文件中的序号继续处理.
+   * */
+  @Override
+  protected void stop() throws InterruptedException {
+    running = false;
+    if (thread != null) {
+      thread.join(TimeUnit.SECONDS.toMillis(10));
+      thread = null;
+    }
+  }
+
+  private void consume() {
+    OffHeapSlot slot = ringBuffer.newSlot();
+    notifyStart();
+    try {
+      long next = ringBuffer.getConsumerSequence() + 1;
+      int idle = 0;
+      while (running) {
+        long available = ringBuffer.getCursor();
+        if (available < next) {
+          idle(idle);
+          if (idle <= SPIN_TRIES + YIELD_TRIES) {
+            idle++;
+          }
+          continue;
+        }
+        idle = 0;
+        if (handler instanceof BatchStartAware) {
+          ((BatchStartAware) handler).onBatchStart(available - next + 1);
+        }
+        for (long sequence = next; sequence <= available; sequence++) {
+          try {
+            handler.onEvent(
+              slot.wrap(sequence),
+              sequence,
+              sequence == available
+            );
+          } catch (Throwable ex) {
+            getExceptionHandler().handleEventException(ex, sequence, slot);
+          }
+        }
+        // 整批处理完再通知生产者, 减少对共享缓存行的写
+        ringBuffer.setConsumerSequence(available);
+        next = available + 1;
+      }
+    } finally {
+      notifyShutdown();
+    }
+  }
+
+  private void idle(int idle) {
+    WaitStrategyType waitStrategy = getProperties().getWaitStrategy();
+    if (waitStrategy == WaitStrategyType.BUSY_SPIN || idle < SPIN_TRIES) {
+      Thread.onSpinWait();
+    } else if (
+      waitStrategy == WaitStrategyType.YIELDING ||
+      idle < SPIN_TRIES + YIELD_TRIES
+    ) {
+      Thread.yield();
+    } else {
+      LockSupport.parkNanos(PARK_NANOS);
+    }
+  }
+
+  private void notifyStart() {
+    if (handler instanceof LifecycleAware) {
+      try {
+        ((LifecycleAware) handler).onStart();
+      } catch (Throwable ex) {
+        getExceptionHandler().handleOnStartException(ex);
+      }
+    }
+  }
+
+  private void notifyShutdown() {
+    if (handler instanceof LifecycleAware) {
+      try {
+        ((LifecycleAware) handler).onShutdown();
+      } catch (Throwable ex) {
+        getExceptionHandler().handleOnShutdownException(ex);
+      }
+    }
+  }
+}
@@ -0,0 +1,397 @@
+package com.hello.disruptor.offheap;
+
+import com.lmax.disruptor.Cursored;
+import com.lmax.disruptor.InsufficientCapacityException;
+import com.lmax.disruptor.Sequenced;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <h1>基于内存映射文件的单生产者单消费者 ringBuffer, 同一台机器上的两个进程共享</h1>
+ *
+ * 文件格式, 头部占一个页, 两个序号各占一个缓存行, 避免生产者和消费者伪共享:
+ * <pre>
+ * 0     int  magic
+ * 4     int  version
+ * 8     int  bufferSize
+ * 12    int  slotSize
+ * 128   long cursor      生产者已发布的最大序号
+ * 256   long consumer    消费者已处理的最大序号
+ * 4096  bufferSize 个 slotSize 字节的槽位, 格式同 {@link OffHeapSlot}
+ * </pre>
+ * 生产者写完槽位后用 release 语义写 cursor, 消费者用 acquire 语义读 cursor 之后再读槽位;
+ * 消费者处理完后用 release 语义写 consumer, 生产者 acquire 读到之后才会覆盖这些槽位.
+ * 两个序号都保存在文件中, 任意一方重启后从文件中的序号继续, 文件放在 /dev/shm 下时不会写盘.
+ * 只允许一个进程中的一个线程发布, 一个进程中的一个线程消费, 这里不做检查.
+ * 槽位中的 timestamp 是生产者的 System.nanoTime(), Linux 上同一台机器的进程共用单调时钟, 可以直接算跨进程延迟.
+ * <p>
+ * 生产者也可以用 {@link #next(int)} 批量申请序号, 逐个用
+ * {@link #write(long, int, long, long, byte[], int, int)} 写入槽位, 最后 {@link #publish(long, long)}.
+ * */
+public class SharedMemoryRingBuffer implements Cursored, Sequenced {
+
+  static final int MAGIC = 0x48524E47;
+  static final int VERSION = 1;
+  static final int BUFFER_SIZE_OFFSET = 8;
+  static final int SLOT_SIZE_OFFSET = 12;
+  static final int CURSOR_OFFSET = 128;
+  static final int CONSUMER_OFFSET = 256;
+  public static final int HEADER_SIZE = 4096;
+
+  private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(
+    int[].class,
+    ByteOrder.nativeOrder()
+  );
+  private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(
+    long[].class,
+    ByteOrder.nativeOrder()
+  );
+
+  private final Path path;
+  private final MappedByteBuffer mapped;
+  private final ByteBuffer slots;
+  private final int bufferSize;
+  private final int slotSize;
+  private final int mask;
+
+  /** 生产者已申请的最大序号, 只在生产者进程中使用 */
+  private long nextValue;
+  /** 生产者缓存的消费者序号, 减少对共享缓存行的读取 */
+  private long cachedConsumer;
+
+  private SharedMemoryRingBuffer(
+    Path path,
+    MappedByteBuffer mapped,
+    int bufferSize,
+    int slotSize
+  ) {
+    this.path = path;
+    this.mapped = mapped;
+    this.bufferSize = bufferSize;
+    this.slotSize = slotSize;
+    this.mask = bufferSize - 1;
+    this.slots =
+    mapped
+      .slice(HEADER_SIZE, bufferSize * slotSize)
+      .order(ByteOrder.nativeOrder());
+    this.nextValue = getCursor();
+    this.cachedConsumer = getConsumerSequence();
+  }
+
+  /**
+   * <h2>打开共享文件, 文件不存在或者还没有初始化时按参数创建, 已存在时参数必须一致</h2>
+   *
+   * 初始化过程持有文件锁, 两个进程同时打开时只有一个会创建.
+   * */
+  public static SharedMemoryRingBuffer open(
+    Path path,
+    int bufferSize,
+    int slotSize
+  ) throws IOException {
+    if (Integer.bitCount(bufferSize) != 1) {
+      throw new IllegalArgumentException(
+        "bufferSize must be a power of 2: " + bufferSize
+      );
+    }
+    if (slotSize < OffHeapSlot.HEADER_LENGTH || slotSize % Long.BYTES != 0) {
+      throw new IllegalArgumentException(
+        "slotSize must be a multiple of 8 and at least " +
+        OffHeapSlot.HEADER_LENGTH +
+        ": " +
+        slotSize
+      );
+    }
+    final int size;
+    try {
+      size =
+      Math.addExact(HEADER_SIZE, Math.multiplyExact(bufferSize, slotSize));
+    } catch (ArithmeticException ex) {
+      throw new IllegalArgumentException(
+        "bufferSize * slotSize exceeds 2GB: " + bufferSize + " * " + slotSize
+      );
+    }
+    try (
+      FileChannel channel = FileChannel.open(
+        path,
+        StandardOpenOption.CREATE,
+        StandardOpenOption.READ,
+        StandardOpenOption.WRITE
+      )
+    ) {
+      FileLock lock = channel.lock();
+      try {
+        boolean initialized = channel.size() >= HEADER_SIZE;
+        // 映射在 channel 关闭后仍然有效, 直到 buffer 被回收
+        MappedByteBuffer mapped = channel.map(
+          FileChannel.MapMode.READ_WRITE,
+          0,
+          Math.max(size, channel.size())
+        );
+        mapped.order(ByteOrder.nativeOrder());
+        if (initialized && (int) INT.getAcquire(mapped, 0) == MAGIC) {
+          verify(path, mapped, bufferSize, slotSize);
+        } else {
+          initialize(mapped, bufferSize, slotSize);
+        }
+        return new SharedMemoryRingBuffer(path, mapped, bufferSize, slotSize);
+      } finally {
+        lock.release();
+      }
+    }
+  }
+
+  /**
+   * <h2>生产者, 申请一个槽位, 写入后发布; 消费者没跟上时等待</h2>
+   * */
+  public void publish(
+    int type,
+    long key,
+    long value,
+    byte[] data,
+    int offset,
+    int length
+  ) {
+    checkLength(length);
+    long sequence = next();
+    writeSlot(sequence, type, key, value, data, offset, length);
+    publish(sequence);
+  }
+
+  /**
+   * <h2>生产者, 非阻塞发布, 没有空位时返回 false</h2>
+   * */
+  public boolean tryPublish(
+    int type,
+    long key,
+    long value,
+    byte[] data,
+    int offset,
+    int length
+  ) {
+    checkLength(length);
+    long sequence;
+    try {
+      sequence = tryNext();
+    } catch (InsufficientCapacityException ex) {
+      return false;
+    }
+    writeSlot(sequence, type, key, value, data, offset, length);
+    publish(sequence);
+    return true;
+  }
+
+  /**
+   * <h2>生产者, 写入已申请但还没发布的序号对应的槽位</h2>
+   *
+   * @param sequence {@link #next()} 或 {@link #tryNext()} 返回的序号
+   * */
+  public void write(
+    long sequence,
+    int type,
+    long key,
+    long value,
+    byte[] data,
+    int offset,
+    int length
+  ) {
+    checkLength(length);
+    writeSlot(sequence, type, key, value, data, offset, length);
+  }
+
+  /**
+   * <h2>消费者, 创建一个只属于当前消费者的 flyweight 视图</h2>
+   * */
+  public OffHeapSlot newSlot() {
+    return new OffHeapSlot(slots, slotSize, bufferSize);
+  }
+
+  /**
+   * <h2>消费者已处理的最大序号</h2>
+   * */
+  public long getConsumerSequence() {
+    return (long) LONG.getAcquire(mapped, CONSUMER_OFFSET);
+  }
+
+  /**
+   * <h2>消费者, 处理完 sequence 及之前的事件后调用, 生产者之后可以覆盖这些槽位</h2>
+   * */
+  public void setConsumerSequence(long sequence) {
+    LONG.setRelease(mapped, CONSUMER_OFFSET, sequence);
+  }
+
+  public Path getPath() {
+    return path;
+  }
+
+  public int getSlotSize() {
+    return slotSize;
+  }
+
+  /**
+   * <h2>每个槽位能放下的 payload 字节数</h2>
+   * */
+  public int getPayloadCapacity() {
+    return slotSize - OffHeapSlot.HEADER_LENGTH;
+  }
+
+  /**
+   * <h2>生产者已发布的最大序号</h2>
+   * */
+  @Override
+  public long getCursor() {
+    return (long) LONG.getAcquire(mapped, CURSOR_OFFSET);
+  }
+
+  @Override
+  public int getBufferSize() {
+    return bufferSize;
+  }
+
+  @Override
+  public boolean hasAvailableCapacity(int requiredCapacity) {
+    long wrapPoint = nextValue + requiredCapacity - bufferSize;
+    if (wrapPoint > cachedConsumer) {
+      cachedConsumer = getConsumerSequence();
+      return wrapPoint <= cachedConsumer;
+    }
+    return true;
+  }
+
+  /**
+   * <h2>剩余空位数, 按已发布的序号计算, 两个进程中都可以调用</h2>
+   * */
+  @Override
+  public long remainingCapacity() {
+    return bufferSize - (getCursor() - getConsumerSequence());
+  }
+
+  @Override
+  public long next() {
+    return next(1);
+  }
+
+  @Override
+  public long next(int n) {
+    checkBatch(n);
+    long next = nextValue + n;
+    long wrapPoint = next - bufferSize;
+    if (wrapPoint > cachedConsumer) {
+      long consumer;
+      while (wrapPoint > (consumer = getConsumerSequence())) {
+        LockSupport.parkNanos(1L);
+      }
+      cachedConsumer = consumer;
+    }
+    nextValue = next;
+    return next;
+  }
+
+  @Override
+  public long tryNext() throws InsufficientCapacityException {
+    return tryNext(1);
+  }
+
+  @Override
+  public long tryNext(int n) throws InsufficientCapacityException {
+    checkBatch(n);
+    if (!hasAvailableCapacity(n)) {
+      throw InsufficientCapacityException.INSTANCE;
+    }
+    nextValue += n;
+    return nextValue;
+  }
+
+  @Override
+  public void publish(long sequence) {
+    LONG.setRelease(mapped, CURSOR_OFFSET, sequence);
+  }
+
+  /**
+   * <h2>单生产者按顺序申请, 发布 hi 即发布了 lo 到 hi</h2>
+   * */
+  @Override
+  public void publish(long lo, long hi) {
+    publish(hi);
+  }
+
+  private static void initialize(
+    MappedByteBuffer mapped,
+    int bufferSize,
+    int slotSize
+  ) {
+    mapped.putInt(4, VERSION);
+    mapped.putInt(BUFFER_SIZE_OFFSET, bufferSize);
+    mapped.putInt(SLOT_SIZE_OFFSET, slotSize);
+    LONG.setRelease(mapped, CURSOR_OFFSET, -1L);
+    LONG.setRelease(mapped, CONSUMER_OFFSET, -1L);
+    // magic 最后写, 另一个进程看到 magic 时其他字段已经可见
+    INT.setRelease(mapped, 0, MAGIC);
+  }
+
+  private static void verify(
+    Path path,
+    MappedByteBuffer mapped,
+    int bufferSize,
+    int slotSize
+  ) {
+    int version = mapped.getInt(4);
+    int existingBufferSize = mapped.getInt(BUFFER_SIZE_OFFSET);
+    int existingSlotSize = mapped.getInt(SLOT_SIZE_OFFSET);
+    if (
+      version != VERSION ||
+      existingBufferSize != bufferSize ||
+      existingSlotSize != slotSize
+    ) {
+      throw new IllegalStateException(
+        path +
+        " was created with version=" +
+        version +
+        " bufferSize=" +
+        existingBufferSize +
+        " slotSize=" +
+        existingSlotSize
+      );
+    }
+  }
+
+  private void checkBatch(int n) {
+    if (n < 1 || n > bufferSize) {
+      throw new IllegalArgumentException(
+        "n must be > 0 and <= " + bufferSize + ": " + n
+      );
+    }
+  }
+
+  private void checkLength(int length) {
+    if (length > getPayloadCapacity()) {
+      throw new IllegalArgumentException(
+        "payload length " +
+        length +
+        " exceeds slot capacity " +
+        getPayloadCapacity()
+      );
+    }
+  }
+
+  private void writeSlot(
+    long sequence,
+    int type,
+    long key,
+    long value,
+    byte[] data,
+    int offset,
+    int length
+  ) {
+    int base = (int) (sequence & mask) * slotSize;
+    OffHeapSlot.write(slots, base, type, key, value, data, offset, length);
+  }
+}
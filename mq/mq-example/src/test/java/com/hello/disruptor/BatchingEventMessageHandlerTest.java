@@ -0,0 +1,68 @@
+package com.hello.disruptor;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.hello.disruptor.BatchingEventMessageHandler.FlushReason;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class BatchingEventMessageHandlerTest {
+
+  private final List<List<String>> flushed = new ArrayList<>();
+
+  @Test
+  public void testFlushOnEndOfBatchAndMaxSize() throws Exception {
+    BatchingEventMessageHandler<String> handler = new BatchingEventMessageHandler<>(
+      "batching-handler",
+      batch -> flushed.add(new ArrayList<>(batch)),
+      3,
+      Duration.ofMinutes(1)
+    );
+
+    long sequence = 0;
+    for (String obj : List.of("a", "b", "c", "d")) {
+      handler.onEvent(event(obj), sequence++, false);
+    }
+    handler.onEvent(event("e"), sequence, true);
+
+    assertEquals(List.of(List.of("a", "b", "c"), List.of("d", "e")), flushed);
+    assertEquals(1, handler.getFlushCount(FlushReason.MAX_SIZE));
+    assertEquals(1, handler.getFlushCount(FlushReason.END_OF_BATCH));
+    // 大小为 2 的批次落在第 1 个桶, 大小为 3 的批次落在第 2 个桶
+    assertArrayEquals(new long[] { 0, 1, 1 }, handler.getBatchSizeHistogram());
+  }
+
+  @Test
+  public void testFlushOnMaxDelayAndShutdown() throws Exception {
+    BatchingEventMessageHandler<String> handler = new BatchingEventMessageHandler<>(
+      "batching-handler",
+      batch -> flushed.add(new ArrayList<>(batch)),
+      100,
+      Duration.ZERO
+    );
+
+    handler.onEvent(event("a"), 0, false);
+    handler.onEvent(event("b"), 1, false);
+    assertEquals(List.of(List.of("a"), List.of("b")), flushed);
+    assertEquals(2, handler.getFlushCount(FlushReason.MAX_DELAY));
+
+    flushed.clear();
+    handler = new BatchingEventMessageHandler<>(
+      "batching-handler",
+      batch -> flushed.add(new ArrayList<>(batch)),
+      100,
+      Duration.ofMinutes(1)
+    );
+    handler.onEvent(event("c"), 2, false);
+    handler.onShutdown();
+    assertEquals(List.of(List.of("c")), flushed);
+    assertEquals(1, handler.getFlushCount(FlushReason.SHUTDOWN));
+  }
+
+  private static EventMessage event(Object obj) {
+    return EventMessage.builder().obj(obj).build();
+  }
+}
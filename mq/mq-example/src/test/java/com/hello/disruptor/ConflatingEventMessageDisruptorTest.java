@@ -0,0 +1,50 @@
+package com.hello.disruptor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+public class ConflatingEventMessageDisruptorTest {
+
+  private final List<String> received = new CopyOnWriteArrayList<>();
+  private final CountDownLatch blocked = new CountDownLatch(1);
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  @Test
+  public void testOnlyLatestValuePerKey() throws Exception {
+    TestDisruptor disruptor = TestDisruptors.start(new TestDisruptor());
+    // 先让消费者阻塞, 后面的更新都会在 pending 中合并
+    disruptor.onData("warmup", 0);
+    assertTrue(blocked.await(5, TimeUnit.SECONDS));
+    for (int i = 1; i <= 100; i++) {
+      disruptor.onData("a", i);
+    }
+    for (int i = 1; i <= 50; i++) {
+      disruptor.onData("b", i);
+    }
+    assertEquals(2, disruptor.pendingCount());
+    release.countDown();
+    disruptor.destroy();
+
+    assertEquals(List.of("warmup=0", "a=100", "b=50"), received);
+    assertEquals(99 + 49, disruptor.getConflatedCount());
+    assertEquals(0, disruptor.pendingCount());
+  }
+
+  private class TestDisruptor extends ConflatingEventMessageDisruptor {
+
+    @Override
+    protected void onLatest(Object key, Object value) throws Exception {
+      received.add(key + "=" + value);
+      if ("warmup".equals(key)) {
+        blocked.countDown();
+        release.await(5, TimeUnit.SECONDS);
+      }
+    }
+  }
+}
@@ -1,7 +1,10 @@
 package com.hello.disruptor;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
 import com.hello.disruptor.impl.EventHandlerEventMessageDisruptor;
 import com.hello.disruptor.impl.WorkHandlerEventMessageDisruptor;
+import com.lmax.disruptor.dsl.ProducerType;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -29,4 +32,21 @@ public class DisruptorTest {
     disruptor01.onData("01");
     disruptor02.onData("01");
   }
+
+  @Test
+  public void testDisruptorProperties() {
+    assertEquals(
+      ProducerType.MULTI,
+      disruptor01.getProperties().getProducerType()
+    );
+    assertEquals(
+      DisruptorProperties.WaitStrategyType.BLOCKING,
+      disruptor01.getProperties().getWaitStrategy()
+    );
+    assertEquals(
+      DisruptorProperties.WaitStrategyType.SLEEPING,
+      disruptor02.getProperties().getWaitStrategy()
+    );
+    assertEquals(65536, disruptor02.getProperties().getBufferSize());
+  }
 }
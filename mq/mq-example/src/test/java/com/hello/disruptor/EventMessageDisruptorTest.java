@@ -0,0 +1,70 @@
+package com.hello.disruptor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.lmax.disruptor.EventHandler;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class EventMessageDisruptorTest {
+
+  private final CountDownLatch release = new CountDownLatch(1);
+  private final List<Object> received = new CopyOnWriteArrayList<>();
+  private BlockedDisruptor disruptor;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    disruptor =
+    TestDisruptors.start(
+      new BlockedDisruptor(),
+      "hello.disruptor.buffer-size=4"
+    );
+  }
+
+  @AfterEach
+  public void tearDown() throws Exception {
+    release.countDown();
+    disruptor.destroy();
+  }
+
+  @Test
+  public void testBackpressure() throws Exception {
+    assertEquals(0.0, disruptor.fillRatio());
+    assertTrue(disruptor.tryPublishAll(List.of("a", "b", "c", "d")));
+    assertEquals(0, disruptor.remainingCapacity());
+    assertEquals(1.0, disruptor.fillRatio());
+
+    // 处理器被阻塞, ringBuffer 已满
+    assertFalse(disruptor.tryPublish("e"));
+    assertFalse(disruptor.publish("e", 20, TimeUnit.MILLISECONDS));
+    assertFalse(disruptor.tryPublishAll(List.of("e")));
+
+    release.countDown();
+    assertTrue(disruptor.publish("e", 5, TimeUnit.SECONDS));
+    disruptor.publishAll(List.of("f", "g", "h", "i", "j", "k"));
+    disruptor.destroy();
+    assertEquals(
+      List.of("a", "b", "c", "d", "e", "f", "g", "h", "i", "j", "k"),
+      received
+    );
+  }
+
+  private class BlockedDisruptor extends EventMessageDisruptor {
+
+    @Override
+    protected void handleEvent() {
+      EventHandler<EventMessage> handler = (event, sequence, endOfBatch) -> {
+        release.await();
+        received.add(event.getObj());
+      };
+      disruptor.handleEventsWith(handler);
+    }
+  }
+}
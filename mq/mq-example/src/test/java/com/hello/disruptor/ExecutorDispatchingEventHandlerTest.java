@@ -0,0 +1,112 @@
+package com.hello.disruptor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.lmax.disruptor.WorkHandler;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+public class ExecutorDispatchingEventHandlerTest {
+
+  private static final int MAX_IN_FLIGHT = 8;
+
+  private final AtomicInteger running = new AtomicInteger();
+  private final AtomicInteger maxRunning = new AtomicInteger();
+  private final Set<Object> received = ConcurrentHashMap.newKeySet();
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private CountDownLatch gate = new CountDownLatch(0);
+  private ExecutorDispatchingEventHandler dispatcher;
+
+  @Test
+  public void testBoundedConcurrentBlockingHandlers() throws Exception {
+    DispatchingDisruptor disruptor = TestDisruptors.start(
+      new DispatchingDisruptor()
+    );
+    long start = System.nanoTime();
+    for (int i = 0; i < 64; i++) {
+      disruptor.onData(i);
+    }
+    disruptor.destroy();
+    long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+    assertEquals(64, received.size());
+    assertEquals(63, dispatcher.getCompletedSequence());
+    assertEquals(0, dispatcher.getInFlight());
+    // 许可限制了并发, 但阻塞的处理器确实在并行执行
+    assertTrue(maxRunning.get() <= MAX_IN_FLIGHT);
+    assertTrue(maxRunning.get() > 1);
+    assertTrue(elapsedMillis < 64 * 20, "elapsed " + elapsedMillis + "ms");
+  }
+
+  /**
+   * 分发后还在 executor 中执行的事件计入 lag.
+   */
+  @Test
+  public void testLagIncludesRunningEvents() throws Exception {
+    gate = new CountDownLatch(1);
+    DispatchingDisruptor disruptor = new DispatchingDisruptor();
+    disruptor.setMeterRegistry(registry);
+    TestDisruptors.start(disruptor);
+    for (int i = 0; i < 4; i++) {
+      disruptor.onData(i);
+    }
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (dispatcher.getInFlight() < 4 && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+    Gauge lag = registry
+      .get("disruptor.handler.lag")
+      .tag("handler", "dispatcher")
+      .gauge();
+    assertEquals(4, lag.value());
+
+    gate.countDown();
+    while (lag.value() > 0 && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+    assertEquals(0, lag.value());
+    disruptor.destroy();
+  }
+
+  private class DispatchingDisruptor extends EventMessageDisruptor {
+
+    @Override
+    protected void handleEvent() {
+      WorkHandler<EventMessage> blocking = event -> {
+        gate.await(5, TimeUnit.SECONDS);
+        int now = running.incrementAndGet();
+        maxRunning.accumulateAndGet(now, Math::max);
+        // 模拟阻塞 I/O
+        Thread.sleep(20);
+        received.add(event.getObj());
+        running.decrementAndGet();
+      };
+      ExecutorService executor = Executors.newCachedThreadPool();
+      dispatcher =
+      new ExecutorDispatchingEventHandler(
+        blocking,
+        executor,
+        MAX_IN_FLIGHT,
+        new EventMessageExceptionHandler(getMetrics())
+      );
+      disruptor.handleEventsWith(
+        dispatcher.processorFactory(
+          instrument(
+            "dispatcher",
+            dispatcher,
+            dispatcher::getCompletedSequence
+          )
+        )
+      );
+    }
+  }
+}
@@ -0,0 +1,117 @@
+package com.hello.disruptor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class RequestReplyDisruptorTest {
+
+  private final ExecutorService callbacks = Executors.newFixedThreadPool(2);
+  private final AtomicInteger completions = new AtomicInteger();
+  private final AtomicInteger handled = new AtomicInteger();
+  private final CountDownLatch blocked = new CountDownLatch(1);
+  private final CountDownLatch release = new CountDownLatch(1);
+  private TestDisruptor disruptor;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    disruptor = TestDisruptors.start(new TestDisruptor());
+  }
+
+  @AfterEach
+  public void tearDown() throws Exception {
+    release.countDown();
+    disruptor.destroy();
+    callbacks.shutdown();
+  }
+
+  @Test
+  public void testSubmitReturnsResult() throws Exception {
+    List<CompletableFuture<Integer>> futures = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      futures.add(disruptor.submit(i));
+    }
+    for (int i = 0; i < 100; i++) {
+      assertEquals(i * 2, futures.get(i).get(5, TimeUnit.SECONDS));
+    }
+    assertEquals(100, completions.get());
+
+    ExecutionException ex = assertThrows(
+      ExecutionException.class,
+      () -> disruptor.submit(-1).get(5, TimeUnit.SECONDS)
+    );
+    assertInstanceOf(IllegalArgumentException.class, ex.getCause());
+  }
+
+  @Test
+  public void testTimeoutAndFullRingBuffer() throws Exception {
+    CompletableFuture<Integer> blocking = disruptor.submit(1000);
+    assertTrue(blocked.await(5, TimeUnit.SECONDS));
+    // 消费者被阻塞, 后面的请求超时, 剩下的 15 个槽位占满后 trySubmit 被拒绝
+    List<CompletableFuture<Integer>> futures = new ArrayList<>();
+    for (int i = 0; i < 15; i++) {
+      futures.add(disruptor.trySubmit(i));
+    }
+    ExecutionException rejected = assertThrows(
+      ExecutionException.class,
+      () -> disruptor.trySubmit(15).get()
+    );
+    assertInstanceOf(RejectedExecutionException.class, rejected.getCause());
+
+    ExecutionException timeout = assertThrows(
+      ExecutionException.class,
+      () -> futures.get(0).get(5, TimeUnit.SECONDS)
+    );
+    assertInstanceOf(TimeoutException.class, timeout.getCause());
+
+    // 超时的请求不会再被处理
+    CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+      .handle((result, ex) -> null)
+      .get(5, TimeUnit.SECONDS);
+    release.countDown();
+    assertEquals(2000, disruptor.submit(1000).get(5, TimeUnit.SECONDS));
+    assertEquals(2, handled.get());
+    assertTrue(blocking.isCompletedExceptionally());
+  }
+
+  private class TestDisruptor extends RequestReplyDisruptor<Integer, Integer> {
+
+    @Override
+    protected Executor completionExecutor() {
+      return command -> {
+        completions.incrementAndGet();
+        callbacks.execute(command);
+      };
+    }
+
+    @Override
+    protected Integer handleRequest(Integer payload) throws Exception {
+      if (payload < 0) {
+        throw new IllegalArgumentException("negative payload " + payload);
+      }
+      handled.incrementAndGet();
+      if (payload == 1000 && blocked.getCount() > 0) {
+        blocked.countDown();
+        release.await(5, TimeUnit.SECONDS);
+      }
+      return payload * 2;
+    }
+  }
+}
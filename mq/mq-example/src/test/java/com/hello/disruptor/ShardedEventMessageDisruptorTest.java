@@ -0,0 +1,76 @@
+package com.hello.disruptor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.lmax.disruptor.EventHandler;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+public class ShardedEventMessageDisruptorTest {
+
+  private static final int KEYS = 16;
+  private static final int EVENTS_PER_KEY = 1000;
+
+  private final Map<Object, List<Object>> received = new ConcurrentHashMap<>();
+  private final Map<Object, String> threads = new ConcurrentHashMap<>();
+  private final List<String> errors = new CopyOnWriteArrayList<>();
+  private final CountDownLatch latch = new CountDownLatch(KEYS * EVENTS_PER_KEY);
+
+  @Test
+  public void testPerKeyOrdering() throws Exception {
+    TestDisruptor disruptor = TestDisruptors.start(new TestDisruptor());
+    assertEquals(4, disruptor.getShardCount());
+
+    // 每个 key 由一个生产者线程按顺序发布, 多个 key 并发发布
+    ExecutorService producers = Executors.newFixedThreadPool(4);
+    for (int key = 0; key < KEYS; key++) {
+      final String orderId = "order-" + key;
+      producers.execute(() -> {
+        for (int i = 0; i < EVENTS_PER_KEY; i++) {
+          disruptor.onData(orderId, i);
+        }
+      });
+    }
+    assertTrue(latch.await(10, TimeUnit.SECONDS));
+    producers.shutdown();
+    disruptor.destroy();
+
+    assertEquals(List.of(), errors);
+    assertEquals(KEYS, received.size());
+    received.forEach((key, values) -> {
+      assertEquals(EVENTS_PER_KEY, values.size());
+      for (int i = 0; i < EVENTS_PER_KEY; i++) {
+        assertEquals(i, values.get(i));
+      }
+    });
+  }
+
+  private class TestDisruptor extends ShardedEventMessageDisruptor {
+
+    @Override
+    protected EventHandler<EventMessage> createShardHandler(int shard) {
+      return (event, sequence, endOfBatch) -> {
+        Object key = event.getKey();
+        if (shardOf(key) != shard) {
+          errors.add(key + " routed to shard " + shard);
+        }
+        String thread = Thread.currentThread().getName();
+        if (!thread.equals(threads.computeIfAbsent(key, k -> thread))) {
+          errors.add(key + " handled by more than one thread");
+        }
+        received
+          .computeIfAbsent(key, k -> new CopyOnWriteArrayList<>())
+          .add(event.getObj());
+        latch.countDown();
+      };
+    }
+  }
+}
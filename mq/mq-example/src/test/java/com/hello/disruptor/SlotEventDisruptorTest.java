@@ -0,0 +1,100 @@
+package com.hello.disruptor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.dsl.EventHandlerGroup;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class SlotEventDisruptorTest {
+
+  private final List<String> received = new CopyOnWriteArrayList<>();
+  private final CountDownLatch latch = new CountDownLatch(4);
+  private TestDisruptor disruptor;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    disruptor = TestDisruptors.start(new TestDisruptor());
+  }
+
+  @AfterEach
+  public void tearDown() throws Exception {
+    disruptor.destroy();
+  }
+
+  @Test
+  public void testPublishAndClearSlots() throws Exception {
+    byte[] hello = "hello".getBytes(StandardCharsets.UTF_8);
+    disruptor.onData(1, 100L, 42L);
+    disruptor.onData(2, 200L, hello, 0, hello.length);
+    disruptor.publishEvent(BinarySlotEvent.BYTES, hello);
+    disruptor.publish(hello, 1, 3);
+
+    assertTrue(latch.await(5, TimeUnit.SECONDS));
+    assertEquals(
+      List.of("1:100:42:", "2:200:0:hello", "0:0:0:hello", "0:0:0:ell"),
+      received
+    );
+
+    // destroy 会等所有阶段处理完, 之后槽位应该已经被清空
+    disruptor.destroy();
+    for (long sequence = 0; sequence < 4; sequence++) {
+      BinarySlotEvent event = disruptor.getRingBuffer().get(sequence);
+      assertEquals(0, event.getType());
+      assertEquals(0L, event.getKey());
+      assertEquals(0, event.getLength());
+    }
+  }
+
+  @Test
+  public void testPayloadLargerThanSlot() {
+    byte[] tooLarge = new byte[65];
+    assertThrows(
+      IllegalArgumentException.class,
+      () -> disruptor.onData(1, 1L, tooLarge, 0, tooLarge.length)
+    );
+    assertThrows(
+      IllegalArgumentException.class,
+      () -> disruptor.publish(tooLarge, 0, tooLarge.length)
+    );
+  }
+
+  private class TestDisruptor extends BinarySlotEventDisruptor {
+
+    @Override
+    protected int slotCapacity() {
+      return 64;
+    }
+
+    @Override
+    protected EventHandlerGroup<BinarySlotEvent> handleSlotEvent() {
+      EventHandler<BinarySlotEvent> handler = (event, sequence, endOfBatch) -> {
+        received.add(
+          event.getType() +
+          ":" +
+          event.getKey() +
+          ":" +
+          event.getValue() +
+          ":" +
+          new String(
+            event.getData(),
+            0,
+            event.getLength(),
+            StandardCharsets.UTF_8
+          )
+        );
+        latch.countDown();
+      };
+      return disruptor.handleEventsWith(handler);
+    }
+  }
+}
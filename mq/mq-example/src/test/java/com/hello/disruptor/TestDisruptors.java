@@ -0,0 +1,37 @@
+package com.hello.disruptor;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.support.ResourcePropertySource;
+
+/**
+ * <h1>单元测试不启动 Spring 容器, 直接创建并启动 disruptor</h1>
+ *
+ * 配置来自 disruptor-test.properties, 测试可以再传入 key=value 覆盖,
+ * 和容器中一样按各个 disruptor 自己的属性前缀绑定.
+ * */
+public final class TestDisruptors {
+
+  private TestDisruptors() {}
+
+  /**
+   * <h2>设置 Environment 后调用 afterPropertiesSet, 返回传入的 disruptor</h2>
+   * */
+  public static <D extends InitializingBean & EnvironmentAware> D start(
+    D disruptor,
+    String... properties
+  ) throws Exception {
+    StandardEnvironment environment = new StandardEnvironment();
+    environment
+      .getPropertySources()
+      .addFirst(
+        new ResourcePropertySource("classpath:disruptor-test.properties")
+      );
+    TestPropertyValues.of(properties).applyTo(environment);
+    disruptor.setEnvironment(environment);
+    disruptor.afterPropertiesSet();
+    return disruptor;
+  }
+}
@@ -0,0 +1,23 @@
+package com.hello.disruptor.benchmark;
+
+/**
+ * <h1>压测消息, 携带发布时间用于计算发布到处理的延迟</h1>
+ * */
+public final class BenchmarkPayload {
+
+  private final long publishNanos;
+  private final byte[] data;
+
+  public BenchmarkPayload(long publishNanos, byte[] data) {
+    this.publishNanos = publishNanos;
+    this.data = data;
+  }
+
+  public long getPublishNanos() {
+    return publishNanos;
+  }
+
+  public byte[] getData() {
+    return data;
+  }
+}
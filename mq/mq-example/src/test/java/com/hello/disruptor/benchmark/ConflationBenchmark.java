@@ -0,0 +1,146 @@
+package com.hello.disruptor.benchmark;
+
+import com.hello.disruptor.ConflatingEventMessageDisruptor;
+import com.hello.disruptor.DisruptorProperties;
+import com.hello.disruptor.EventMessage;
+import com.hello.disruptor.EventMessageDisruptor;
+import com.lmax.disruptor.EventHandler;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * <h1>按 key 合并与普通 ringBuffer 的对照压测</h1>
+ *
+ * 生产者随机更新 keys 个 key 中的一个, 处理器每条消息消耗 work 个 token 的 CPU,
+ * 处理器比生产者慢时就是突发更新的场景. 吞吐量是每秒发布的更新数,
+ * 结束时打印处理器实际处理的事件数与发布数之比, PLAIN 恒为 1, CONFLATING 越小说明合并得越多.
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConflationBenchmark {
+
+  public enum Publisher {
+    PLAIN,
+    CONFLATING,
+  }
+
+  @Param({ "PLAIN", "CONFLATING" })
+  private Publisher mode;
+
+  @Param({ "16", "1024" })
+  private int keys;
+
+  @Param({ "200" })
+  private int work;
+
+  @Param({ "65536" })
+  private int bufferSize;
+
+  private final LongAdder published = new LongAdder();
+  private final LongAdder handled = new LongAdder();
+  private EventMessageDisruptor plain;
+  private ConflatingEventMessageDisruptor conflating;
+  private Long[] values;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    values = new Long[keys];
+    for (int i = 0; i < keys; i++) {
+      values[i] = (long) i;
+    }
+    if (mode == Publisher.PLAIN) {
+      plain = new PlainDisruptor();
+      plain.afterPropertiesSet();
+    } else {
+      conflating = new BenchmarkConflatingDisruptor();
+      conflating.afterPropertiesSet();
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    if (plain != null) {
+      plain.destroy();
+    }
+    if (conflating != null) {
+      conflating.destroy();
+    }
+    System.out.printf(
+      "%n%s keys=%d handled/published=%.4f (%d/%d)%n",
+      mode,
+      keys,
+      (double) handled.sum() / published.sum(),
+      handled.sum(),
+      published.sum()
+    );
+  }
+
+  @Benchmark
+  public void publish() {
+    Long key = values[ThreadLocalRandom.current().nextInt(keys)];
+    if (mode == Publisher.PLAIN) {
+      plain.onData(key);
+    } else {
+      conflating.onData(key, key);
+    }
+    published.increment();
+  }
+
+  private DisruptorProperties properties() {
+    DisruptorProperties properties = new DisruptorProperties();
+    properties.setBufferSize(bufferSize);
+    properties.setThreadNamePrefix("benchmark-" + mode);
+    return properties;
+  }
+
+  private class PlainDisruptor extends EventMessageDisruptor {
+
+    @Override
+    protected DisruptorProperties defaultProperties() {
+      return properties();
+    }
+
+    @Override
+    protected void handleEvent() {
+      EventHandler<EventMessage> handler = (event, sequence, endOfBatch) -> {
+        Blackhole.consumeCPU(work);
+        handled.increment();
+      };
+      disruptor.handleEventsWith(handler);
+    }
+  }
+
+  private class BenchmarkConflatingDisruptor
+    extends ConflatingEventMessageDisruptor {
+
+    @Override
+    protected DisruptorProperties defaultProperties() {
+      return properties();
+    }
+
+    @Override
+    protected void onLatest(Object key, Object value) {
+      Blackhole.consumeCPU(work);
+      handled.increment();
+    }
+  }
+}
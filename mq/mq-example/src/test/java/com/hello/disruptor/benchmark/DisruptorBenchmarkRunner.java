@@ -0,0 +1,38 @@
+package com.hello.disruptor.benchmark;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * <h1>压测入口, 按生产者数量逐轮运行 disruptor, 基线和合并压测</h1>
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *   -Dexec.mainClass=com.hello.disruptor.benchmark.DisruptorBenchmarkRunner \
+ *   -Dexec.args="-p handlers=2 -p payloadSize=16"
+ * </pre>
+ *
+ * 参数与 JMH 命令行相同; 系统属性 producers 指定生产者数量, 默认 1,2,4.
+ * */
+public class DisruptorBenchmarkRunner {
+
+  public static void main(String[] args)
+    throws RunnerException, CommandLineOptionException {
+    CommandLineOptions commandLine = new CommandLineOptions(args);
+    String[] producers = System.getProperty("producers", "1,2,4").split(",");
+    for (String producer : producers) {
+      Options options = new OptionsBuilder()
+        .parent(commandLine)
+        .include(DisruptorPipelineBenchmark.class.getSimpleName())
+        .include(QueueBaselineBenchmark.class.getSimpleName())
+        .include(ConflationBenchmark.class.getSimpleName())
+        .threads(Integer.parseInt(producer.trim()))
+        .build();
+      new Runner(options).run();
+    }
+  }
+}
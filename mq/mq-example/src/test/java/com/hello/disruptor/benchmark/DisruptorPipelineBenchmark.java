@@ -0,0 +1,140 @@
+package com.hello.disruptor.benchmark;
+
+import com.hello.disruptor.DisruptorProperties;
+import com.hello.disruptor.EventMessage;
+import com.hello.disruptor.EventMessageDisruptor;
+import com.hello.disruptor.impl.EventHandlerEventMessageDisruptor;
+import com.hello.disruptor.impl.WorkHandlerEventMessageDisruptor;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.WorkHandler;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.IterationParams;
+
+/**
+ * <h1>disruptor 流水线压测</h1>
+ *
+ * BROADCAST 对应 {@link EventHandlerEventMessageDisruptor} 的 handleEventsWith 拓扑,
+ * WORK_POOL 对应 {@link WorkHandlerEventMessageDisruptor} 的 handleEventsWithWorkerPool 拓扑.
+ * 两个 bean 的处理器是写死的日志处理器, 这里用同样的拓扑换成记录延迟的处理器,
+ * 处理器数量和等待策略由参数决定. 生产者数量由 {@link DisruptorBenchmarkRunner} 的线程数决定.
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DisruptorPipelineBenchmark {
+
+  public enum Topology {
+    BROADCAST,
+    WORK_POOL,
+  }
+
+  @Param({ "BROADCAST", "WORK_POOL" })
+  private Topology topology;
+
+  @Param({ "1", "2", "4" })
+  private int handlers;
+
+  @Param({ "BLOCKING", "SLEEPING", "YIELDING" })
+  private DisruptorProperties.WaitStrategyType waitStrategy;
+
+  @Param({ "16", "1024" })
+  private int payloadSize;
+
+  @Param({ "65536" })
+  private int bufferSize;
+
+  private final LatencyRecorder latency = new LatencyRecorder();
+  private BenchmarkDisruptor disruptor;
+  private byte[] data;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    data = new byte[payloadSize];
+    ThreadLocalRandom.current().nextBytes(data);
+    disruptor = new BenchmarkDisruptor();
+    disruptor.afterPropertiesSet();
+  }
+
+  @TearDown(Level.Iteration)
+  public void endIteration(IterationParams params) {
+    latency.endIteration(params);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    disruptor.destroy();
+    latency.report(
+      topology + " handlers=" + handlers + " " + waitStrategy + " " + payloadSize + "B"
+    );
+  }
+
+  @Benchmark
+  public void publish() {
+    // 每条消息复制一份 payload, 让 payloadSize 体现在分配和缓存行传递上
+    disruptor.onData(new BenchmarkPayload(System.nanoTime(), data.clone()));
+  }
+
+  /**
+   * <h2>与两个 bean 相同的拓扑, 处理器换成延迟记录器</h2>
+   * */
+  private class BenchmarkDisruptor extends EventMessageDisruptor {
+
+    @Override
+    protected DisruptorProperties defaultProperties() {
+      DisruptorProperties properties = new DisruptorProperties();
+      properties.setBufferSize(bufferSize);
+      properties.setWaitStrategy(waitStrategy);
+      properties.setThreadNamePrefix("benchmark-" + topology);
+      return properties;
+    }
+
+    @Override
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    protected void handleEvent() {
+      if (topology == Topology.BROADCAST) {
+        EventHandler<EventMessage>[] eventHandlers = new EventHandler[handlers];
+        for (int i = 0; i < handlers; i++) {
+          eventHandlers[i] = new LatencyHandler();
+        }
+        disruptor.handleEventsWith(eventHandlers);
+      } else {
+        WorkHandler<EventMessage>[] workHandlers = new WorkHandler[handlers];
+        for (int i = 0; i < handlers; i++) {
+          workHandlers[i] = new LatencyHandler();
+        }
+        disruptor.handleEventsWithWorkerPool(workHandlers);
+      }
+    }
+  }
+
+  private class LatencyHandler
+    implements EventHandler<EventMessage>, WorkHandler<EventMessage> {
+
+    @Override
+    public void onEvent(EventMessage event, long sequence, boolean endOfBatch) {
+      onEvent(event);
+    }
+
+    @Override
+    public void onEvent(EventMessage event) {
+      latency.record((BenchmarkPayload) event.getObj());
+    }
+  }
+}
@@ -0,0 +1,55 @@
+package com.hello.disruptor.benchmark;
+
+import java.util.concurrent.atomic.LongAdder;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+
+/**
+ * <h1>发布到处理的延迟记录器</h1>
+ *
+ * 消费者线程调用 {@link #record(BenchmarkPayload)}, 读取整个 payload 模拟处理消息,
+ * 只累计 measurement 迭代的数据,
+ * trial 结束时输出 p50/p99/p99.9.
+ * */
+public final class LatencyRecorder {
+
+  private final Recorder recorder = new Recorder(3);
+  private final Histogram total = new Histogram(3);
+
+  /** 多个消费者线程累加读到的字节, 防止处理逻辑被 JIT 消除 */
+  private final LongAdder checksum = new LongAdder();
+
+  public void record(BenchmarkPayload payload) {
+    recorder.recordValue(System.nanoTime() - payload.getPublishNanos());
+    long sum = 0;
+    for (byte b : payload.getData()) {
+      sum += b;
+    }
+    checksum.add(sum);
+  }
+
+  /**
+   * <h2>每个迭代结束时调用, 丢弃 warmup 迭代的数据</h2>
+   * */
+  public void endIteration(IterationParams params) {
+    Histogram interval = recorder.getIntervalHistogram();
+    if (params.getType() == IterationType.MEASUREMENT) {
+      total.add(interval);
+    }
+  }
+
+  public void report(String label) {
+    System.out.printf(
+      "%n[latency] %s count=%d p50=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus (checksum=%d)%n",
+      label,
+      total.getTotalCount(),
+      total.getValueAtPercentile(50) / 1000.0,
+      total.getValueAtPercentile(99) / 1000.0,
+      total.getValueAtPercentile(99.9) / 1000.0,
+      total.getMaxValue() / 1000.0,
+      checksum.sum()
+    );
+  }
+}
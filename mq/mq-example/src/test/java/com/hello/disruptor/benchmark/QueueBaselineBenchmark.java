@@ -0,0 +1,134 @@
+package com.hello.disruptor.benchmark;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedTransferQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.IterationParams;
+
+/**
+ * <h1>JDK 队列基线压测, 与 {@link DisruptorPipelineBenchmark} 的 WORK_POOL 拓扑对照</h1>
+ *
+ * 所有基线都是多个消费者共享一个队列, 每条消息只被处理一次.
+ * LinkedTransferQueue 和 ExecutorService 是无界的, 用与 ringBuffer 等大的信号量限制在途消息数,
+ * 否则生产者跑得比消费者快时只是在测内存分配.
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueueBaselineBenchmark {
+
+  public enum QueueType {
+    ARRAY_BLOCKING_QUEUE,
+    LINKED_TRANSFER_QUEUE,
+    EXECUTOR_SERVICE,
+  }
+
+  @Param({ "ARRAY_BLOCKING_QUEUE", "LINKED_TRANSFER_QUEUE", "EXECUTOR_SERVICE" })
+  private QueueType queueType;
+
+  @Param({ "1", "2", "4" })
+  private int handlers;
+
+  @Param({ "16", "1024" })
+  private int payloadSize;
+
+  @Param({ "65536" })
+  private int capacity;
+
+  private final LatencyRecorder latency = new LatencyRecorder();
+  private BlockingQueue<BenchmarkPayload> queue;
+  private Semaphore inFlight;
+  private ExecutorService consumers;
+  private byte[] data;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    data = new byte[payloadSize];
+    ThreadLocalRandom.current().nextBytes(data);
+    inFlight = new Semaphore(capacity);
+    consumers = Executors.newFixedThreadPool(handlers);
+    if (queueType == QueueType.EXECUTOR_SERVICE) {
+      return;
+    }
+    queue =
+    queueType == QueueType.ARRAY_BLOCKING_QUEUE
+      ? new ArrayBlockingQueue<>(capacity)
+      : new LinkedTransferQueue<>();
+    for (int i = 0; i < handlers; i++) {
+      consumers.execute(this::consume);
+    }
+  }
+
+  @TearDown(Level.Iteration)
+  public void endIteration(IterationParams params) {
+    latency.endIteration(params);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws InterruptedException {
+    consumers.shutdownNow();
+    consumers.awaitTermination(1, TimeUnit.MINUTES);
+    latency.report(
+      queueType + " handlers=" + handlers + " " + payloadSize + "B"
+    );
+  }
+
+  @Benchmark
+  public void publish() throws InterruptedException {
+    BenchmarkPayload payload = new BenchmarkPayload(
+      System.nanoTime(),
+      data.clone()
+    );
+    switch (queueType) {
+      case ARRAY_BLOCKING_QUEUE:
+        queue.put(payload);
+        break;
+      case LINKED_TRANSFER_QUEUE:
+        inFlight.acquire();
+        queue.put(payload);
+        break;
+      default:
+        inFlight.acquire();
+        consumers.execute(() -> handle(payload));
+        break;
+    }
+  }
+
+  private void consume() {
+    try {
+      while (!Thread.currentThread().isInterrupted()) {
+        handle(queue.take());
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void handle(BenchmarkPayload payload) {
+    latency.record(payload);
+    if (queueType != QueueType.ARRAY_BLOCKING_QUEUE) {
+      inFlight.release();
+    }
+  }
+}
@@ -0,0 +1,198 @@
+package com.hello.disruptor.journal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.hello.disruptor.EventMessage;
+import com.hello.disruptor.TestDisruptors;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.dsl.EventHandlerGroup;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class JournaledEventMessageDisruptorTest {
+
+  private static final int SEGMENT_SIZE = 256;
+
+  @TempDir
+  Path directory;
+
+  private final List<Object> received = new CopyOnWriteArrayList<>();
+
+  @Test
+  public void testReplayUnprocessedTail() throws Exception {
+    // 模拟崩溃前的状态: 日志里有 4 条记录, 只处理完了前 2 条
+    MappedJournal journal = new MappedJournal(
+      directory,
+      SEGMENT_SIZE,
+      EventMessageCodec.UTF8_STRING
+    );
+    long index = 1;
+    for (String obj : List.of("a", "b", "c", "d")) {
+      journal.append(index++, obj);
+    }
+    journal.close();
+    JournalCheckpoint checkpoint = new JournalCheckpoint(
+      directory.resolve("checkpoint")
+    );
+    checkpoint.set(2);
+    checkpoint.close();
+
+    TestDisruptor disruptor = TestDisruptors.start(new TestDisruptor());
+    disruptor.onData("e");
+    disruptor.destroy();
+    assertEquals(List.of("c", "d", "e"), received);
+
+    // 全部处理完后再次启动, 没有需要重放的消息
+    received.clear();
+    disruptor = TestDisruptors.start(new TestDisruptor());
+    disruptor.destroy();
+    assertEquals(List.of(), received);
+  }
+
+  @Test
+  public void testCrashDuringReplay() throws Exception {
+    MappedJournal journal = new MappedJournal(
+      directory,
+      SEGMENT_SIZE,
+      EventMessageCodec.UTF8_STRING
+    );
+    long index = 1;
+    for (String obj : List.of("a", "b", "c", "d")) {
+      journal.append(index++, obj);
+    }
+    journal.close();
+    JournalCheckpoint checkpoint = new JournalCheckpoint(
+      directory.resolve("checkpoint")
+    );
+    checkpoint.set(2);
+    checkpoint.close();
+
+    // 重放到 "d" 时中断, "c" 已经以序号 5 再次写入日志并处理完
+    EventMessageCodec crashing = new EventMessageCodec() {
+      @Override
+      public byte[] encode(Object obj) {
+        return EventMessageCodec.UTF8_STRING.encode(obj);
+      }
+
+      @Override
+      public Object decode(ByteBuffer buffer, int length) {
+        Object obj = EventMessageCodec.UTF8_STRING.decode(buffer, length);
+        if ("d".equals(obj)) {
+          throw new IllegalStateException("crash");
+        }
+        return obj;
+      }
+    };
+    TestDisruptor disruptor = new TestDisruptor(crashing);
+    assertThrows(
+      IllegalStateException.class,
+      () -> TestDisruptors.start(disruptor)
+    );
+    disruptor.destroy();
+    assertEquals(List.of("c"), received);
+
+    // checkpoint 没有越过 "d", 再次启动时旧的尾部和已写入的重放记录都会重放
+    received.clear();
+    TestDisruptor restarted = TestDisruptors.start(new TestDisruptor());
+    restarted.destroy();
+    assertEquals(List.of("c", "d", "c"), received);
+
+    received.clear();
+    restarted = TestDisruptors.start(new TestDisruptor());
+    restarted.destroy();
+    assertEquals(List.of(), received);
+  }
+
+  @Test
+  public void testEncodingFailureRejectsPublish() throws Exception {
+    TestDisruptor disruptor = TestDisruptors.start(new TestDisruptor());
+    assertThrows(IllegalArgumentException.class, () -> disruptor.onData(1));
+    assertThrows(
+      IllegalArgumentException.class,
+      () -> disruptor.publishAll(List.of("a", 2))
+    );
+    assertThrows(
+      IllegalArgumentException.class,
+      () -> disruptor.onData("x".repeat(SEGMENT_SIZE))
+    );
+    disruptor.onData("b");
+    disruptor.destroy();
+    assertEquals(List.of("b"), received);
+
+    // 被拒绝的消息没有写入日志, 也不会在重启时重放
+    received.clear();
+    TestDisruptor restarted = TestDisruptors.start(new TestDisruptor());
+    restarted.destroy();
+    assertEquals(List.of(), received);
+  }
+
+  @Test
+  public void testSegmentRollingAndCleanup() throws Exception {
+    TestDisruptor disruptor = TestDisruptors.start(new TestDisruptor());
+    for (int i = 0; i < 100; i++) {
+      disruptor.onData("message-" + i);
+    }
+    disruptor.destroy();
+    assertEquals(100, received.size());
+
+    // 每条记录 25 或 26 字节, 一个段放不下 100 条, 已处理完的旧段在滚动时被删除
+    try (Stream<Path> files = Files.list(directory)) {
+      long segments = files
+        .filter(path -> path.toString().endsWith(".journal"))
+        .count();
+      assertTrue(segments < 10);
+    }
+    MappedJournal journal = new MappedJournal(
+      directory,
+      SEGMENT_SIZE,
+      EventMessageCodec.UTF8_STRING
+    );
+    assertEquals(100, journal.getLastIndex());
+    journal.close();
+  }
+
+  private class TestDisruptor extends JournaledEventMessageDisruptor {
+
+    private final EventMessageCodec codec;
+
+    TestDisruptor() {
+      this(EventMessageCodec.UTF8_STRING);
+    }
+
+    TestDisruptor(EventMessageCodec codec) {
+      this.codec = codec;
+    }
+
+    @Override
+    protected Path journalDirectory() {
+      return directory;
+    }
+
+    @Override
+    protected int journalSegmentSize() {
+      return SEGMENT_SIZE;
+    }
+
+    @Override
+    protected EventMessageCodec journalCodec() {
+      return codec;
+    }
+
+    @Override
+    protected EventHandlerGroup<EventMessage> handleJournaledEvent(
+      EventHandlerGroup<EventMessage> journaled
+    ) {
+      EventHandler<EventMessage> business = (event, sequence, endOfBatch) ->
+        received.add(event.getObj());
+      return journaled.then(business);
+    }
+  }
+}
@@ -0,0 +1,142 @@
+package com.hello.disruptor.kafka;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.hello.disruptor.TestDisruptors;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class KafkaDisruptorBridgeTest {
+
+  private static final String TOPIC = "orders";
+  private static final TopicPartition PARTITION = new TopicPartition(TOPIC, 0);
+
+  private final MockConsumer<String, String> consumer = new MockConsumer<>(
+    OffsetResetStrategy.EARLIEST
+  );
+  private final Set<Long> processed = ConcurrentHashMap.newKeySet();
+  private final Map<Long, CountDownLatch> blocked = new ConcurrentHashMap<>();
+  private TestDisruptor disruptor;
+  private KafkaDisruptorBridge<String, String> bridge;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    disruptor = TestDisruptors.start(new TestDisruptor());
+    bridge = new KafkaDisruptorBridge<>(consumer, List.of(TOPIC), disruptor);
+    bridge.setCommitInterval(Duration.ZERO);
+    bridge.setPollTimeout(Duration.ofMillis(1));
+  }
+
+  @AfterEach
+  public void tearDown() throws Exception {
+    blocked.values().forEach(CountDownLatch::countDown);
+    bridge.close();
+    disruptor.destroy();
+  }
+
+  @Test
+  public void testCommitOnlyContiguousOffsets() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    blocked.put(2L, release);
+    assignAndAdd(0, 10);
+    bridge.start("kafka-bridge");
+
+    // offset 2 没处理完, 后面的记录都处理完了也只能提交到 2
+    await(() -> processed.size() == 9);
+    await(() -> committed() == 2);
+    Thread.sleep(50);
+    assertEquals(2, committed());
+
+    release.countDown();
+    await(() -> committed() == 10);
+    assertEquals(10, processed.size());
+  }
+
+  @Test
+  public void testPauseWhenRingBufferFull() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    for (long offset = 0; offset < 24; offset++) {
+      blocked.put(offset, release);
+    }
+    assignAndAdd(0, 24);
+    bridge.start("kafka-bridge");
+
+    // ringBuffer 只有 16 个槽位, 第 17 条发布失败后暂停并 seek 回去
+    await(() -> bridge.isPaused());
+    await(() -> consumer.paused().contains(PARTITION));
+    assertEquals(16, position());
+
+    // MockConsumer 不会重新返回已经 poll 过的记录, 这里模拟恢复后重新拉取
+    consumer.schedulePollTask(() -> addRecords(16, 24));
+    release.countDown();
+    await(() -> committed() == 24);
+    assertEquals(24, processed.size());
+    assertFalse(bridge.isPaused());
+  }
+
+  private void assignAndAdd(long from, long to) {
+    consumer.schedulePollTask(() -> {
+      consumer.rebalance(List.of(PARTITION));
+      consumer.updateBeginningOffsets(Map.of(PARTITION, 0L));
+      addRecords(from, to);
+    });
+  }
+
+  private void addRecords(long from, long to) {
+    for (long offset = from; offset < to; offset++) {
+      consumer.addRecord(
+        new ConsumerRecord<>(TOPIC, 0, offset, "key", "value-" + offset)
+      );
+    }
+  }
+
+  private long committed() {
+    OffsetAndMetadata offset = consumer
+      .committed(Set.of(PARTITION))
+      .get(PARTITION);
+    return offset == null ? -1 : offset.offset();
+  }
+
+  private long position() {
+    synchronized (consumer) {
+      return consumer.position(PARTITION);
+    }
+  }
+
+  private static void await(BooleanSupplier condition) throws Exception {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.nanoTime() < deadline, "condition not met in time");
+      Thread.sleep(1);
+    }
+  }
+
+  private class TestDisruptor extends KafkaRecordDisruptor<String, String> {
+
+    @Override
+    protected void handleRecord(ConsumerRecord<String, String> record)
+      throws Exception {
+      CountDownLatch latch = blocked.get(record.offset());
+      if (latch != null) {
+        latch.await(10, TimeUnit.SECONDS);
+      }
+      processed.add(record.offset());
+    }
+  }
+}
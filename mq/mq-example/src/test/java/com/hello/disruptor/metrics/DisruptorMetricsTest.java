@@ -0,0 +1,96 @@
+package com.hello.disruptor.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.hello.disruptor.EventMessage;
+import com.hello.disruptor.EventMessageDisruptor;
+import com.hello.disruptor.TestDisruptors;
+import com.lmax.disruptor.EventHandler;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+public class DisruptorMetricsTest {
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final CountDownLatch processed = new CountDownLatch(10);
+
+  @Test
+  public void testHandlerAndRingBufferMetrics() throws Exception {
+    MetricsDisruptor disruptor = new MetricsDisruptor();
+    disruptor.setBeanName("metricsDisruptor");
+    disruptor.setMeterRegistry(registry);
+    TestDisruptors.start(disruptor);
+    for (int i = 0; i < 10; i++) {
+      disruptor.onData(i == 3 ? "boom" : "message-" + i);
+    }
+    processed.await(5, TimeUnit.SECONDS);
+
+    assertEquals(
+      10,
+      registry
+        .get("disruptor.published")
+        .tag("disruptor", "metricsDisruptor")
+        .functionCounter()
+        .count()
+    );
+    assertEquals(
+      16,
+      registry.get("disruptor.ring.buffer.size").gauge().value()
+    );
+    // 计时和序号在 countDown 之后记录, 等 lag 归零后再检查处理器指标
+    Gauge lag = registry.get("disruptor.handler.lag").gauge();
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (lag.value() > 0 && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+    assertEquals(0, lag.value());
+    assertEquals(
+      10,
+      registry
+        .get("disruptor.handler.service.time")
+        .tag("handler", "counting")
+        .timer()
+        .count()
+    );
+    assertEquals(
+      10,
+      registry.get("disruptor.handler.batch.size").summary().totalAmount()
+    );
+    assertEquals(
+      1,
+      registry
+        .get("disruptor.handler.exceptions")
+        .tag("phase", "event")
+        .tag("exception", "IllegalStateException")
+        .counter()
+        .count()
+    );
+    assertEquals(
+      16,
+      registry.get("disruptor.ring.remaining.capacity").gauge().value()
+    );
+    assertEquals(0, registry.get("disruptor.ring.backlog").gauge().value());
+
+    // 关闭后指标被移除
+    disruptor.destroy();
+    assertNull(registry.find("disruptor.published").functionCounter());
+  }
+
+  private class MetricsDisruptor extends EventMessageDisruptor {
+
+    @Override
+    protected void handleEvent() {
+      EventHandler<EventMessage> counting = (event, sequence, endOfBatch) -> {
+        processed.countDown();
+        if ("boom".equals(event.getObj())) {
+          throw new IllegalStateException("boom");
+        }
+      };
+      disruptor.handleEventsWith(instrument("counting", counting));
+    }
+  }
+}
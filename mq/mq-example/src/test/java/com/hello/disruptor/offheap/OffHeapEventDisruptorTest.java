@@ -0,0 +1,122 @@
+package com.hello.disruptor.offheap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.hello.disruptor.TestDisruptors;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.dsl.ProducerType;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class OffHeapEventDisruptorTest {
+
+  private final List<String> decoded = new CopyOnWriteArrayList<>();
+  private final List<Long> stages = new CopyOnWriteArrayList<>();
+  private final CountDownLatch release = new CountDownLatch(1);
+  private TestDisruptor disruptor;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    disruptor = TestDisruptors.start(new TestDisruptor());
+  }
+
+  @AfterEach
+  public void tearDown() throws Exception {
+    release.countDown();
+    disruptor.destroy();
+  }
+
+  @Test
+  public void testPublishThroughPipeline() throws Exception {
+    release.countDown();
+    for (int i = 0; i < 40; i++) {
+      byte[] data = ("message-" + i).getBytes(StandardCharsets.UTF_8);
+      disruptor.onData(i % 3, i, data, 0, data.length);
+    }
+    disruptor.onData(7, 100L, 42L);
+    // 批量申请后逐个写入槽位, 一次发布
+    OffHeapRingBuffer ringBuffer = disruptor.getRingBuffer();
+    long hi = ringBuffer.next(2);
+    try {
+      ringBuffer.write(hi - 1, 8, 200L, 1L, null, 0, 0);
+      ringBuffer.write(hi, 8, 201L, 2L, null, 0, 0);
+    } finally {
+      ringBuffer.publish(hi - 1, hi);
+    }
+    disruptor.destroy();
+
+    // 40 条消息超过 bufferSize, 槽位被复用后内容仍然正确
+    List<String> expected = new ArrayList<>();
+    for (int i = 0; i < 40; i++) {
+      expected.add((i % 3) + ":" + i + ":0:message-" + i);
+    }
+    expected.add("7:100:42:");
+    expected.add("8:200:1:");
+    expected.add("8:201:2:");
+    assertEquals(expected, decoded);
+    // 第二阶段看到的序号顺序和第一阶段一致
+    assertEquals(43, stages.size());
+    for (int i = 0; i < stages.size(); i++) {
+      assertEquals(i, stages.get(i));
+    }
+  }
+
+  @Test
+  public void testBackpressureAndPayloadLimit() {
+    byte[] data = new byte[8];
+    for (int i = 0; i < 16; i++) {
+      assertTrue(disruptor.tryPublish(1, i, data, 0, data.length));
+    }
+    // 处理器被阻塞, ringBuffer 已满
+    assertFalse(disruptor.tryPublish(1, 16, data, 0, data.length));
+    assertEquals(1.0, disruptor.fillRatio());
+
+    byte[] tooLarge = new byte[33];
+    assertThrows(
+      IllegalArgumentException.class,
+      () -> disruptor.onData(1, 1L, tooLarge, 0, tooLarge.length)
+    );
+  }
+
+  @Test
+  public void testInvalidSlotSize() {
+    assertThrows(
+      IllegalArgumentException.class,
+      () -> OffHeapRingBuffer.create(ProducerType.SINGLE, 16, 36, null)
+    );
+  }
+
+  private class TestDisruptor extends OffHeapEventDisruptor {
+
+    @Override
+    protected void handleEvent() {
+      byte[] scratch = new byte[getRingBuffer().getPayloadCapacity()];
+      EventHandler<OffHeapSlot> decoder = (slot, sequence, endOfBatch) -> {
+        release.await(5, TimeUnit.SECONDS);
+        int length = slot.copyPayload(scratch, 0);
+        decoded.add(
+          slot.getType() +
+          ":" +
+          slot.getKey() +
+          ":" +
+          slot.getValue() +
+          ":" +
+          new String(scratch, 0, length, StandardCharsets.UTF_8)
+        );
+      };
+      EventHandler<OffHeapSlot> after = (slot, sequence, endOfBatch) ->
+        stages.add(slot.getSequence());
+      handleEventsWith(instrument("decoder", decoder)).then(after);
+    }
+  }
+}
@@ -0,0 +1,183 @@
+package com.hello.disruptor.offheap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.hello.disruptor.TestDisruptors;
+import com.lmax.disruptor.EventHandler;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+@EnabledOnOs(OS.LINUX)
+public class SharedMemoryEventDisruptorTest {
+
+  private static final int EVENTS = 200_000;
+
+  @TempDir
+  Path dir;
+
+  @Test
+  public void testEventsFromAnotherJvm() throws Exception {
+    Path path = dir.resolve("ipc.ring");
+    AtomicLong received = new AtomicLong();
+    AtomicReference<String> error = new AtomicReference<>();
+    CountDownLatch done = new CountDownLatch(1);
+    TestDisruptor consumer = start(
+      path,
+      (slot, sequence, endOfBatch) -> {
+        long expected = received.get();
+        if (slot.getKey() != expected || slot.getValue() != expected * 31) {
+          error.compareAndSet(null, "unexpected " + slot + " at " + expected);
+        }
+        if (received.incrementAndGet() == EVENTS) {
+          done.countDown();
+        }
+      }
+    );
+    try {
+      Process producer = new ProcessBuilder(
+        Paths
+          .get(System.getProperty("java.home"), "bin", "java")
+          .toString(),
+        "-cp",
+        System.getProperty("java.class.path"),
+        Producer.class.getName(),
+        path.toString(),
+        String.valueOf(EVENTS)
+      )
+        .inheritIO()
+        .start();
+      assertTrue(producer.waitFor(60, TimeUnit.SECONDS), "producer hangs");
+      assertEquals(0, producer.exitValue());
+      // 20 万条远大于 bufferSize, 生产者进程要等消费者进程释放槽位
+      assertTrue(done.await(30, TimeUnit.SECONDS));
+      assertEquals(null, error.get());
+      assertEquals(EVENTS - 1, consumer.getRingBuffer().getConsumerSequence());
+    } finally {
+      consumer.destroy();
+    }
+  }
+
+  @Test
+  public void testConsumerResumesFromSharedSequence() throws Exception {
+    Path path = dir.resolve("resume.ring");
+    TestDisruptor producer = start(path, null);
+    for (int i = 0; i < 10; i++) {
+      producer.onData(1, i, i);
+    }
+
+    List<Long> keys = new CopyOnWriteArrayList<>();
+    TestDisruptor first = start(
+      path,
+      (slot, sequence, endOfBatch) -> keys.add(slot.getKey())
+    );
+    await(keys, 10);
+    first.destroy();
+
+    // 消费者不在时事件留在共享内存中, 新的消费者从文件中的序号继续
+    byte[] data = { 1, 2, 3 };
+    for (int i = 10; i < 13; i++) {
+      producer.onData(2, i, data, 0, data.length);
+    }
+    // 批量申请后逐个写入槽位, 一次发布
+    SharedMemoryRingBuffer ringBuffer = producer.getRingBuffer();
+    long hi = ringBuffer.next(2);
+    ringBuffer.write(hi - 1, 2, 13, 0L, data, 0, data.length);
+    ringBuffer.write(hi, 2, 14, 0L, data, 0, data.length);
+    ringBuffer.publish(hi - 1, hi);
+    List<Long> resumed = new CopyOnWriteArrayList<>();
+    TestDisruptor second = start(
+      path,
+      (slot, sequence, endOfBatch) -> {
+        assertEquals(3, slot.getLength());
+        resumed.add(slot.getKey());
+      }
+    );
+    await(resumed, 5);
+    second.destroy();
+    producer.destroy();
+
+    assertEquals(List.of(0L, 1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L), keys);
+    assertEquals(List.of(10L, 11L, 12L, 13L, 14L), resumed);
+  }
+
+  @Test
+  public void testBackpressureAndMismatchedLayout() throws Exception {
+    Path path = dir.resolve("full.ring");
+    TestDisruptor producer = start(path, null);
+    int bufferSize = producer.getBufferSize();
+    for (int i = 0; i < bufferSize; i++) {
+      assertTrue(producer.tryPublish(1, i, null, 0, 0));
+    }
+    // 没有消费者, ringBuffer 已满
+    assertFalse(producer.tryPublish(1, bufferSize, null, 0, 0));
+    assertEquals(1.0, producer.fillRatio());
+    producer.destroy();
+
+    assertThrows(
+      IllegalStateException.class,
+      () -> SharedMemoryRingBuffer.open(path, bufferSize * 2, 64)
+    );
+  }
+
+  private static TestDisruptor start(
+    Path path,
+    EventHandler<OffHeapSlot> handler
+  ) throws Exception {
+    return TestDisruptors.start(
+      new TestDisruptor(handler),
+      "hello.disruptor.shared-memory.path=" + path
+    );
+  }
+
+  private static void await(List<?> list, int size) throws Exception {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (list.size() < size) {
+      assertTrue(System.nanoTime() < deadline, "events not received in time");
+      Thread.sleep(1);
+    }
+  }
+
+  /**
+   * <h2>子进程入口, 作为生产者发布 count 条事件后退出</h2>
+   * */
+  public static class Producer {
+
+    public static void main(String[] args) throws Exception {
+      TestDisruptor producer = start(Path.of(args[0]), null);
+      long count = Long.parseLong(args[1]);
+      for (long i = 0; i < count; i++) {
+        producer.onData(1, i, i * 31);
+      }
+      producer.destroy();
+    }
+  }
+
+  private static class TestDisruptor extends SharedMemoryEventDisruptor {
+
+    private final EventHandler<OffHeapSlot> handler;
+
+    private TestDisruptor(EventHandler<OffHeapSlot> handler) {
+      this.handler = handler;
+    }
+
+    @Override
+    protected void handleEvent() {
+      if (handler != null) {
+        handleEventsWith(instrument("ipc-consumer", handler));
+      }
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package com.hello.redis.cache;
+
+/**
+ * An intrusive doubly linked list of cache entries in access order, from the
+ * least recently used at the head to the most recently used at the tail.
+ *
+ * <p>This class is not thread-safe; callers must hold a lock.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+final class AccessOrderDeque<K, V> {
+
+  private final CacheEntry<K, V> sentinel = new CacheEntry<>(null, null, 0);
+
+  AccessOrderDeque() {
+    sentinel.previousInAccessOrder = sentinel;
+    sentinel.nextInAccessOrder = sentinel;
+  }
+
+  /**
+   * Returns the least recently used entry, or null if the deque is empty.
+   */
+  CacheEntry<K, V> peekFirst() {
+    return next(sentinel);
+  }
+
+  /**
+   * Returns the entry after the given one towards the tail, or null.
+   */
+  CacheEntry<K, V> next(CacheEntry<K, V> entry) {
+    CacheEntry<K, V> next = entry.nextInAccessOrder;
+    return next == sentinel ? null : next;
+  }
+
+  /**
+   * Links the entry at the tail as the most recently used.
+   */
+  void addLast(CacheEntry<K, V> entry) {
+    entry.previousInAccessOrder = sentinel.previousInAccessOrder;
+    entry.nextInAccessOrder = sentinel;
+    sentinel.previousInAccessOrder.nextInAccessOrder = entry;
+    sentinel.previousInAccessOrder = entry;
+  }
+
+  /**
+   * Moves a linked entry to the tail.
+   */
+  void moveToBack(CacheEntry<K, V> entry) {
+    if (sentinel.previousInAccessOrder != entry) {
+      remove(entry);
+      addLast(entry);
+    }
+  }
+
+  /**
+   * Unlinks the entry, which must belong to this deque.
+   */
+  void remove(CacheEntry<K, V> entry) {
+    entry.previousInAccessOrder.nextInAccessOrder = entry.nextInAccessOrder;
+    entry.nextInAccessOrder.previousInAccessOrder = entry.previousInAccessOrder;
+    entry.previousInAccessOrder = null;
+    entry.nextInAccessOrder = null;
+  }
+
+  /**
+   * Unlinks every entry and marks it as not belonging to any queue.
+   */
+  void clear() {
+    CacheEntry<K, V> entry = sentinel.nextInAccessOrder;
+    while (entry != sentinel) {
+      CacheEntry<K, V> next = entry.nextInAccessOrder;
+      entry.previousInAccessOrder = null;
+      entry.nextInAccessOrder = null;
+      entry.queue = WindowTinyLfuPolicy.NONE;
+      entry = next;
+    }
+    sentinel.previousInAccessOrder = sentinel;
+    sentinel.nextInAccessOrder = sentinel;
+  }
+}
@@ -0,0 +1,154 @@
+package com.hello.redis.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * A cache implementation using Caffeine's AsyncLoadingCache.
+ * This implementation stores futures instead of values, so callers never
+ * block on the cache: a miss returns the loader's future, and concurrent
+ * misses on the same key share it. Entries older than the refresh interval
+ * are reloaded in the background on their next read, and the current value
+ * keeps being returned until the reload completes.
+ *
+ * @param <K> the type of keys maintained by this cache
+ * @param <V> the type of mapped values
+ */
+public class AsyncCaffeineCache<K, V> {
+
+  private final CacheMetrics metrics = new CacheMetrics();
+  private final AsyncLoadingCache<K, V> cache;
+
+  /**
+   * Creates a new asynchronous Caffeine cache.
+   *
+   * @param maximumSize the maximum number of entries the cache may contain
+   * @param expireAfterWriteSeconds the duration after which entries should be automatically removed
+   * @param refreshAfterWriteSeconds the age after which a read triggers a background reload
+   * @param loader loads the value of a key, also used for reloads
+   */
+  public AsyncCaffeineCache(
+    long maximumSize,
+    long expireAfterWriteSeconds,
+    long refreshAfterWriteSeconds,
+    Function<? super K, CompletableFuture<V>> loader
+  ) {
+    this(
+      maximumSize,
+      expireAfterWriteSeconds,
+      refreshAfterWriteSeconds,
+      loader,
+      Ticker.systemTicker()
+    );
+  }
+
+  /**
+   * Creates a new asynchronous Caffeine cache reading the time from the
+   * given ticker, for tests.
+   */
+  AsyncCaffeineCache(
+    long maximumSize,
+    long expireAfterWriteSeconds,
+    long refreshAfterWriteSeconds,
+    Function<? super K, CompletableFuture<V>> loader,
+    Ticker ticker
+  ) {
+    this.cache =
+    Caffeine
+      .newBuilder()
+      .maximumSize(maximumSize)
+      .expireAfterWrite(expireAfterWriteSeconds, TimeUnit.SECONDS)
+      .refreshAfterWrite(refreshAfterWriteSeconds, TimeUnit.SECONDS)
+      .ticker(ticker)
+      .recordStats(() -> new CaffeineStatsCounter(metrics))
+      .buildAsync(CaffeineCache.<K, V>asyncLoader(loader));
+  }
+
+  /**
+   * Returns the future value associated with the given key, loading it if necessary.
+   *
+   * @param key the key whose associated value is to be returned
+   * @return the current or in-flight future value associated with the key
+   */
+  public CompletableFuture<V> get(K key) {
+    return cache.get(key);
+  }
+
+  /**
+   * Returns the future value associated with the given key, or null if there is no cached value.
+   *
+   * @param key the key whose associated value is to be returned
+   * @return the future value associated with the key, or null if not present
+   */
+  public CompletableFuture<V> getIfPresent(K key) {
+    return cache.getIfPresent(key);
+  }
+
+  /**
+   * Associates the specified value with the specified key in this cache.
+   *
+   * @param key the key with which the specified value is to be associated
+   * @param value the value to be associated with the specified key
+   */
+  public void put(K key, V value) {
+    cache.put(key, CompletableFuture.completedFuture(value));
+  }
+
+  /**
+   * Discards any cached value for the key.
+   *
+   * @param key the key whose mapping is to be removed from the cache
+   */
+  public void invalidate(K key) {
+    cache.synchronous().invalidate(key);
+  }
+
+  /**
+   * Discards all entries in the cache.
+   */
+  public void invalidateAll() {
+    cache.synchronous().invalidateAll();
+  }
+
+  /**
+   * Returns the approximate number of entries in this cache.
+   *
+   * @return the approximate number of entries in this cache
+   */
+  public long estimatedSize() {
+    return cache.synchronous().estimatedSize();
+  }
+
+  /**
+   * Publishes the statistics of this cache to the registry, tagged with the
+   * given cache name; see {@link CacheMetrics} for the meters.
+   *
+   * @param registry the registry to publish to
+   * @param name the name of this cache
+   */
+  public void registerMetrics(MeterRegistry registry, String name) {
+    metrics.bindTo(
+      registry,
+      name,
+      cache.synchronous(),
+      Cache::estimatedSize,
+      CaffeineCache::weightedSize
+    );
+  }
+
+  /**
+   * Returns a string representation of cache statistics, for logging; use
+   * {@link #registerMetrics} for monitoring.
+   *
+   * @return a string representation of cache statistics
+   */
+  public String stats() {
+    return cache.synchronous().stats().toString();
+  }
+}
@@ -0,0 +1,74 @@
+package com.hello.redis.cache;
+
+/**
+ * A cache entry that holds a key, a value and its expiration time. An entry
+ * may also have an earlier refresh time, after which it is still served but
+ * stale, see {@link CustomConcurrentMapCache#setStaleWhileRevalidate}.
+ * The wheel links are owned by the {@link TimerWheel} and the access order
+ * links by the {@link WindowTinyLfuPolicy}; both are only touched while the
+ * cache's maintenance lock is held.
+ *
+ * @param <K> the type of the key
+ * @param <V> the type of the value
+ */
+class CacheEntry<K, V> {
+
+  private final K key;
+  private final V value;
+  private final long refreshTime;
+  private final long expirationTime;
+  private final int weight;
+
+  CacheEntry<K, V> previousInWheel;
+  CacheEntry<K, V> nextInWheel;
+  CacheEntry<K, V> previousInAccessOrder;
+  CacheEntry<K, V> nextInAccessOrder;
+  /** the access order queue holding this entry, see {@link WindowTinyLfuPolicy} */
+  int queue;
+
+  CacheEntry(K key, V value, long expirationTime) {
+    this(key, value, expirationTime, 1);
+  }
+
+  CacheEntry(K key, V value, long expirationTime, int weight) {
+    this(key, value, expirationTime, expirationTime, weight);
+  }
+
+  CacheEntry(
+    K key,
+    V value,
+    long refreshTime,
+    long expirationTime,
+    int weight
+  ) {
+    this.key = key;
+    this.value = value;
+    this.refreshTime = refreshTime;
+    this.expirationTime = expirationTime;
+    this.weight = weight;
+  }
+
+  K getKey() {
+    return key;
+  }
+
+  V getValue() {
+    return value;
+  }
+
+  long getExpirationTime() {
+    return expirationTime;
+  }
+
+  int getWeight() {
+    return weight;
+  }
+
+  boolean isStale(long now) {
+    return now > refreshTime;
+  }
+
+  boolean isExpired(long now) {
+    return now > expirationTime;
+  }
+}
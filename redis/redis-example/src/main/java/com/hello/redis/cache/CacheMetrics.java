@@ -0,0 +1,236 @@
+package com.hello.redis.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Records the statistics of one cache and publishes them to Micrometer.
+ *
+ * <p>Every cache wrapper of this package owns an instance, records into it
+ * from the first operation on and publishes it with its
+ * {@code registerMetrics} method. Counts are kept in {@link LongAdder}s and
+ * read by the registry when it polls, so recording a hit does not touch a
+ * meter. The Caffeine based wrappers record into it through a
+ * {@link CaffeineStatsCounter}, which makes Caffeine's own {@code stats()}
+ * report the same numbers; the other wrappers do not depend on Caffeine.
+ *
+ * <p>All meters are tagged with {@code cache=<name>}:
+ * <pre>
+ * cache.gets              lookups, tagged result=hit|miss
+ * cache.loads             loader calls and their latency, tagged result=success|failure,
+ *                         with a percentile histogram
+ * cache.evictions         evicted entries, tagged cause=size|expired|collected
+ * cache.eviction.weight   total weight of the evicted entries
+ * cache.size              estimated number of entries
+ * cache.weighted.size     total weight of the entries, the entry count without a weigher
+ * </pre>
+ * The hit ratio for alerting is
+ * {@code rate(cache.gets{result=hit}) / rate(cache.gets)}. Load latencies are
+ * only recorded into the timers after registration, loads before that are
+ * only counted.
+ */
+public class CacheMetrics {
+
+  /** Why an entry was evicted, the {@code cause} tag of cache.evictions. */
+  enum EvictionCause {
+    /** the cache was over its maximum size or weight */
+    SIZE,
+    /** the entry's time to live had passed */
+    EXPIRED,
+    /** the garbage collector cleared a weak or soft reference */
+    COLLECTED,
+  }
+
+  private final LongAdder hitCount = new LongAdder();
+  private final LongAdder missCount = new LongAdder();
+  private final LongAdder loadSuccessCount = new LongAdder();
+  private final LongAdder loadFailureCount = new LongAdder();
+  private final LongAdder totalLoadTime = new LongAdder();
+  private final LongAdder evictionWeight = new LongAdder();
+  private final Map<EvictionCause, LongAdder> evictionCounts =
+    newEvictionCounts();
+  private final LongSupplier hits;
+  private final LongSupplier misses;
+  private volatile Timer loadSuccessTimer;
+  private volatile Timer loadFailureTimer;
+
+  /**
+   * Creates metrics that count hits and misses from {@link #recordHits} and
+   * {@link #recordMisses}.
+   */
+  public CacheMetrics() {
+    this.hits = hitCount::sum;
+    this.misses = missCount::sum;
+  }
+
+  /**
+   * Creates metrics for a cache that counts its own hits and misses, such as
+   * a Guava cache whose stats counter cannot be replaced.
+   */
+  CacheMetrics(LongSupplier hits, LongSupplier misses) {
+    this.hits = hits;
+    this.misses = misses;
+  }
+
+  public void recordHits(int count) {
+    hitCount.add(count);
+  }
+
+  public void recordMisses(int count) {
+    missCount.add(count);
+  }
+
+  public void recordLoadSuccess(long loadTime) {
+    loadSuccessCount.increment();
+    totalLoadTime.add(loadTime);
+    Timer timer = loadSuccessTimer;
+    if (timer != null) {
+      timer.record(loadTime, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  public void recordLoadFailure(long loadTime) {
+    loadFailureCount.increment();
+    totalLoadTime.add(loadTime);
+    Timer timer = loadFailureTimer;
+    if (timer != null) {
+      timer.record(loadTime, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  /**
+   * Records an evicted entry; explicit invalidations and replacements are not
+   * evictions and are not recorded.
+   */
+  void recordEviction(int weight, EvictionCause cause) {
+    evictionCounts.get(cause).increment();
+    evictionWeight.add(weight);
+  }
+
+  long hitCount() {
+    return hits.getAsLong();
+  }
+
+  long missCount() {
+    return misses.getAsLong();
+  }
+
+  long loadSuccessCount() {
+    return loadSuccessCount.sum();
+  }
+
+  long loadFailureCount() {
+    return loadFailureCount.sum();
+  }
+
+  long totalLoadTime() {
+    return totalLoadTime.sum();
+  }
+
+  /**
+   * Returns the number of evicted entries, for all causes.
+   */
+  long evictionCount() {
+    long evictions = 0;
+    for (LongAdder count : evictionCounts.values()) {
+      evictions += count.sum();
+    }
+    return evictions;
+  }
+
+  long evictionWeight() {
+    return evictionWeight.sum();
+  }
+
+  /**
+   * Registers the meters of this cache. Should be called once per cache; a
+   * later call moves the load timers to the new registry.
+   *
+   * @param registry the registry to publish to
+   * @param name the value of the cache tag
+   * @param cache the object the size gauges read from
+   * @param size returns the estimated number of entries
+   * @param weightedSize returns the total weight of the entries
+   */
+  public <C> void bindTo(
+    MeterRegistry registry,
+    String name,
+    C cache,
+    ToDoubleFunction<C> size,
+    ToDoubleFunction<C> weightedSize
+  ) {
+    Tags tags = Tags.of("cache", name);
+    FunctionCounter
+      .builder("cache.gets", hits, LongSupplier::getAsLong)
+      .tags(tags)
+      .tag("result", "hit")
+      .description("cache lookups that found a value")
+      .register(registry);
+    FunctionCounter
+      .builder("cache.gets", misses, LongSupplier::getAsLong)
+      .tags(tags)
+      .tag("result", "miss")
+      .description("cache lookups that found no value")
+      .register(registry);
+    for (
+      Map.Entry<EvictionCause, LongAdder> count : evictionCounts.entrySet()
+    ) {
+      FunctionCounter
+        .builder("cache.evictions", count.getValue(), LongAdder::sum)
+        .tags(tags)
+        .tag("cause", count.getKey().name().toLowerCase(Locale.ROOT))
+        .description("entries evicted from the cache")
+        .register(registry);
+    }
+    FunctionCounter
+      .builder("cache.eviction.weight", evictionWeight, LongAdder::sum)
+      .tags(tags)
+      .description("total weight of the evicted entries")
+      .register(registry);
+    Gauge
+      .builder("cache.size", cache, size)
+      .tags(tags)
+      .description("estimated number of entries")
+      .register(registry);
+    Gauge
+      .builder("cache.weighted.size", cache, weightedSize)
+      .tags(tags)
+      .description("total weight of the entries")
+      .register(registry);
+    this.loadSuccessTimer = loadTimer(registry, tags, "success");
+    this.loadFailureTimer = loadTimer(registry, tags, "failure");
+  }
+
+  private static Map<EvictionCause, LongAdder> newEvictionCounts() {
+    Map<EvictionCause, LongAdder> counts = new EnumMap<>(EvictionCause.class);
+    for (EvictionCause cause : EvictionCause.values()) {
+      counts.put(cause, new LongAdder());
+    }
+    return counts;
+  }
+
+  private static Timer loadTimer(
+    MeterRegistry registry,
+    Tags tags,
+    String result
+  ) {
+    return Timer
+      .builder("cache.loads")
+      .tags(tags)
+      .tag("result", result)
+      .description("time spent loading values")
+      .publishPercentiles(0.5, 0.99, 0.999)
+      .publishPercentileHistogram()
+      .register(registry);
+  }
+}
@@ -1,7 +1,23 @@
 package com.hello.redis.cache;
 
 import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
@@ -10,12 +26,27 @@ import java.util.function.Function;
  * This implementation provides high-performance caching with features like
  * automatic loading, expiration, and size constraints.
  *
+ * <p>When created with an asynchronous loader and a refresh interval, an entry
+ * that is older than the interval is reloaded in the background on its next
+ * read while callers keep getting the current value; only a read after the
+ * entry has expired waits for the loader.
+ *
+ * <p>When created with a default time to live instead of a fixed
+ * expiration, every entry has its own expiration time, set by
+ * {@link #put(Object, Object, Duration)} or returned by the loader with the
+ * value, and kept in Caffeine's timer wheel. Each time to live can be
+ * shortened by a random jitter, so that entries loaded together, for example
+ * when warming the cache, do not all expire and reload at the same moment.
+ *
  * @param <K> the type of keys maintained by this cache
  * @param <V> the type of mapped values
  */
-public class CaffeineCache<K, V> {
+public class CaffeineCache<K, V> implements LocalCache<K, V> {
 
+  private final CacheMetrics metrics = new CacheMetrics();
   private final Cache<K, V> cache;
+  /** null unless entries have their own expiration time */
+  private final JitteredExpiry<K, V> expiry;
 
   /**
    * Creates a new Caffeine cache with the specified maximum size and expiration time.
@@ -24,15 +55,154 @@ public class CaffeineCache<K, V> {
    * @param expireAfterWriteSeconds the duration after which entries should be automatically removed
    */
   public CaffeineCache(long maximumSize, long expireAfterWriteSeconds) {
+    this.expiry = null;
     this.cache =
     Caffeine
       .newBuilder()
       .maximumSize(maximumSize)
       .expireAfterWrite(expireAfterWriteSeconds, TimeUnit.SECONDS)
-      .recordStats()
+      .recordStats(() -> new CaffeineStatsCounter(metrics))
       .build();
   }
 
+  /**
+   * Creates a new Caffeine cache that loads missing entries with the given
+   * asynchronous loader and reloads entries in the background once they are
+   * older than the refresh interval.
+   *
+   * @param maximumSize the maximum number of entries the cache may contain
+   * @param expireAfterWriteSeconds the duration after which entries should be automatically removed
+   * @param refreshAfterWriteSeconds the age after which a read triggers a background reload
+   * @param loader loads the value of a key, also used for reloads
+   */
+  public CaffeineCache(
+    long maximumSize,
+    long expireAfterWriteSeconds,
+    long refreshAfterWriteSeconds,
+    Function<? super K, CompletableFuture<V>> loader
+  ) {
+    this(
+      maximumSize,
+      expireAfterWriteSeconds,
+      refreshAfterWriteSeconds,
+      loader,
+      Ticker.systemTicker()
+    );
+  }
+
+  /**
+   * Creates a new refreshing Caffeine cache reading the time from the given
+   * ticker, for tests.
+   */
+  CaffeineCache(
+    long maximumSize,
+    long expireAfterWriteSeconds,
+    long refreshAfterWriteSeconds,
+    Function<? super K, CompletableFuture<V>> loader,
+    Ticker ticker
+  ) {
+    this.expiry = null;
+    this.cache =
+    Caffeine
+      .newBuilder()
+      .maximumSize(maximumSize)
+      .expireAfterWrite(expireAfterWriteSeconds, TimeUnit.SECONDS)
+      .refreshAfterWrite(refreshAfterWriteSeconds, TimeUnit.SECONDS)
+      .ticker(ticker)
+      .recordStats(() -> new CaffeineStatsCounter(metrics))
+      .build(asyncLoader(loader));
+  }
+
+  /**
+   * Creates a new Caffeine cache whose entries expire after their own time
+   * to live, the default one unless given to
+   * {@link #put(Object, Object, Duration)}.
+   *
+   * @param maximumSize the maximum number of entries the cache may contain
+   * @param defaultTtl the time to live of entries written without one
+   * @param jitter the largest fraction, from 0 to 1, by which a time to live is randomly shortened
+   */
+  public CaffeineCache(long maximumSize, Duration defaultTtl, double jitter) {
+    this(maximumSize, defaultTtl, jitter, null, Ticker.systemTicker());
+  }
+
+  /**
+   * Creates a new Caffeine cache whose entries expire after their own time
+   * to live, loading missing entries with a loader that returns the time to
+   * live along with the value.
+   *
+   * @param maximumSize the maximum number of entries the cache may contain
+   * @param defaultTtl the time to live of entries written without one
+   * @param jitter the largest fraction, from 0 to 1, by which a time to live is randomly shortened
+   * @param loader loads the value of a key and its time to live
+   */
+  public CaffeineCache(
+    long maximumSize,
+    Duration defaultTtl,
+    double jitter,
+    Function<? super K, ExpiringValue<V>> loader
+  ) {
+    this(
+      maximumSize,
+      defaultTtl,
+      jitter,
+      Objects.requireNonNull(loader, "loader"),
+      Ticker.systemTicker()
+    );
+  }
+
+  /**
+   * Creates a new Caffeine cache with per-entry expiration reading the time
+   * from the given ticker, for tests.
+   */
+  CaffeineCache(
+    long maximumSize,
+    Duration defaultTtl,
+    double jitter,
+    Function<? super K, ExpiringValue<V>> loader,
+    Ticker ticker
+  ) {
+    this.expiry = new JitteredExpiry<>(defaultTtl, jitter);
+    Caffeine<K, V> builder = Caffeine
+      .newBuilder()
+      .maximumSize(maximumSize)
+      .expireAfter(expiry)
+      .ticker(ticker)
+      .recordStats(() -> new CaffeineStatsCounter(metrics));
+    this.cache =
+    loader == null ? builder.build() : builder.build(expiry.loader(loader));
+  }
+
+  /**
+   * Adapts an asynchronous loading function to a Caffeine loader. Reloads
+   * return the loader's future without waiting for it, so the thread that
+   * triggers a refresh is not blocked.
+   */
+  static <K, V> CacheLoader<K, V> asyncLoader(
+    Function<? super K, CompletableFuture<V>> loader
+  ) {
+    return new CacheLoader<K, V>() {
+      @Override
+      public V load(K key) {
+        return loader.apply(key).join();
+      }
+
+      @Override
+      public CompletableFuture<V> asyncLoad(K key, Executor executor) {
+        return loader.apply(key);
+      }
+
+      @Override
+      public CompletableFuture<V> asyncReload(
+        K key,
+        V oldValue,
+        Executor executor
+      ) {
+        return loader.apply(key);
+      }
+    };
+  }
+
   /**
    * Creates a new Caffeine cache with default settings:
    * - Maximum size: 1000 entries
@@ -50,16 +220,52 @@ public class CaffeineCache<K, V> {
    * @param mappingFunction the function to compute a value
    * @return the current (existing or computed) value associated with the specified key
    */
+  @Override
   public V get(K key, Function<K, V> mappingFunction) {
     return cache.get(key, mappingFunction);
   }
 
+  /**
+   * Returns the values associated with the given keys, computing the missing
+   * ones with a single call of the given function.
+   *
+   * @param keys the keys whose associated values are to be returned
+   * @param mappingFunction computes the values of the missing keys; keys it leaves out are not cached
+   * @return the values of the keys that are cached or were loaded
+   */
+  @Override
+  public Map<K, V> getAll(
+    Iterable<? extends K> keys,
+    Function<Set<K>, Map<K, V>> mappingFunction
+  ) {
+    return cache.getAll(
+      keys,
+      missing -> mappingFunction.apply(Collections.unmodifiableSet(missing))
+    );
+  }
+
+  /**
+   * Returns the value associated with the given key, loading it with the
+   * loader given at construction if necessary.
+   *
+   * @param key the key whose associated value is to be returned
+   * @return the value associated with the key
+   * @throws IllegalStateException if the cache was created without a loader
+   */
+  public V get(K key) {
+    if (!(cache instanceof LoadingCache)) {
+      throw new IllegalStateException("cache was created without a loader");
+    }
+    return ((LoadingCache<K, V>) cache).get(key);
+  }
+
   /**
    * Returns the value associated with the given key, or null if there is no cached value.
    *
    * @param key the key whose associated value is to be returned
    * @return the value associated with the key, or null if not present
    */
+  @Override
   public V getIfPresent(K key) {
     return cache.getIfPresent(key);
   }
@@ -71,15 +277,39 @@ public class CaffeineCache<K, V> {
    * @param key the key with which the specified value is to be associated
    * @param value the value to be associated with the specified key
    */
+  @Override
   public void put(K key, V value) {
     cache.put(key, value);
   }
 
+  /**
+   * Associates the value with the key, expiring it after the given time to
+   * live less the jitter instead of the default one.
+   *
+   * @param key the key with which the specified value is to be associated
+   * @param value the value to be associated with the specified key
+   * @param ttl how long the entry may be served
+   * @throws IllegalStateException if the cache was created with a fixed expiration
+   */
+  public void put(K key, V value, Duration ttl) {
+    if (expiry == null) {
+      throw new IllegalStateException(
+        "cache was created without per-entry expiration"
+      );
+    }
+    cache
+      .policy()
+      .expireVariably()
+      .orElseThrow()
+      .put(key, value, expiry.jittered(ttl), TimeUnit.NANOSECONDS);
+  }
+
   /**
    * Discards any cached value for the key.
    *
    * @param key the key whose mapping is to be removed from the cache
    */
+  @Override
   public void invalidate(K key) {
     cache.invalidate(key);
   }
@@ -87,6 +317,7 @@ public class CaffeineCache<K, V> {
   /**
    * Discards all entries in the cache.
    */
+  @Override
   public void invalidateAll() {
     cache.invalidateAll();
   }
@@ -96,16 +327,171 @@ public class CaffeineCache<K, V> {
    *
    * @return the approximate number of entries in this cache
    */
+  @Override
   public long estimatedSize() {
     return cache.estimatedSize();
   }
 
   /**
-   * Returns a string representation of cache statistics.
+   * Publishes the statistics of this cache to the registry, tagged with the
+   * given cache name; see {@link CacheMetrics} for the meters.
+   *
+   * @param registry the registry to publish to
+   * @param name the name of this cache
+   */
+  @Override
+  public void registerMetrics(MeterRegistry registry, String name) {
+    metrics.bindTo(
+      registry,
+      name,
+      cache,
+      Cache::estimatedSize,
+      CaffeineCache::weightedSize
+    );
+  }
+
+  /**
+   * Returns the total weight of the entries of a Caffeine cache, which is the
+   * entry count unless the cache has a weigher.
+   */
+  static long weightedSize(Cache<?, ?> cache) {
+    return cache
+      .policy()
+      .eviction()
+      .map(Policy.Eviction::weightedSize)
+      .orElse(OptionalLong.empty())
+      .orElse(cache.estimatedSize());
+  }
+
+  /**
+   * Returns a string representation of cache statistics, for logging; use
+   * {@link #registerMetrics} for monitoring.
    *
    * @return a string representation of cache statistics
    */
   public String stats() {
     return cache.stats().toString();
   }
+
+  /**
+   * A value returned by a loader together with the time to live of its entry.
+   *
+   * @param <V> the type of the value
+   */
+  public static final class ExpiringValue<V> {
+
+    private final V value;
+    private final Duration ttl;
+
+    private ExpiringValue(V value, Duration ttl) {
+      this.value = value;
+      this.ttl = ttl;
+    }
+
+    /**
+     * Returns the value to cache for the given time.
+     *
+     * @param value the loaded value
+     * @param ttl how long the entry may be served
+     * @return the value with its time to live
+     */
+    public static <V> ExpiringValue<V> of(V value, Duration ttl) {
+      return new ExpiringValue<>(value, Objects.requireNonNull(ttl, "ttl"));
+    }
+
+    public V getValue() {
+      return value;
+    }
+
+    public Duration getTtl() {
+      return ttl;
+    }
+  }
+
+  /**
+   * Expires each entry after its own time to live, shortened by a random
+   * jitter. The time to live returned by a loader is handed over through a
+   * map keyed by the entry's key: Caffeine calls the expiry for a loaded value
+   * within the same computation that called the loader, which holds the
+   * key's lock, so the hand-over cannot be taken by another write of the key.
+   */
+  private static final class JitteredExpiry<K, V> implements Expiry<K, V> {
+
+    private final long defaultTtlNanos;
+    private final double jitter;
+    private final ConcurrentHashMap<K, Long> loadedTtls =
+      new ConcurrentHashMap<>();
+
+    JitteredExpiry(Duration defaultTtl, double jitter) {
+      if (!(jitter >= 0 && jitter <= 1)) {
+        throw new IllegalArgumentException(
+          "jitter must be between 0 and 1: " + jitter
+        );
+      }
+      this.defaultTtlNanos = toNanos(defaultTtl);
+      this.jitter = jitter;
+    }
+
+    CacheLoader<K, V> loader(Function<? super K, ExpiringValue<V>> loader) {
+      return key -> {
+        ExpiringValue<V> loaded = loader.apply(key);
+        if (loaded == null || loaded.getValue() == null) {
+          return null;
+        }
+        loadedTtls.put(key, jittered(loaded.getTtl()));
+        return loaded.getValue();
+      };
+    }
+
+    long jittered(Duration ttl) {
+      return jittered(toNanos(ttl));
+    }
+
+    @Override
+    public long expireAfterCreate(K key, V value, long currentTime) {
+      return ttlOf(key);
+    }
+
+    @Override
+    public long expireAfterUpdate(
+      K key,
+      V value,
+      long currentTime,
+      long currentDuration
+    ) {
+      // a plain put or a reload starts a new time to live
+      return ttlOf(key);
+    }
+
+    @Override
+    public long expireAfterRead(
+      K key,
+      V value,
+      long currentTime,
+      long currentDuration
+    ) {
+      return currentDuration;
+    }
+
+    private long ttlOf(K key) {
+      Long loaded = loadedTtls.remove(key);
+      return loaded != null ? loaded : jittered(defaultTtlNanos);
+    }
+
+    private long jittered(long ttlNanos) {
+      if (jitter == 0) {
+        return ttlNanos;
+      }
+      double fraction = jitter * ThreadLocalRandom.current().nextDouble();
+      return ttlNanos - (long) (ttlNanos * fraction);
+    }
+
+    private static long toNanos(Duration duration) {
+      try {
+        return Math.max(0, duration.toNanos());
+      } catch (ArithmeticException ex) {
+        return Long.MAX_VALUE;
+      }
+    }
+  }
 }
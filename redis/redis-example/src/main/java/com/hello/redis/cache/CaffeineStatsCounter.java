@@ -0,0 +1,73 @@
+package com.hello.redis.cache;
+
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
+import com.hello.redis.cache.CacheMetrics.EvictionCause;
+
+/**
+ * Lets a Caffeine cache record its statistics into {@link CacheMetrics}, so
+ * that Caffeine's {@code stats()} and the published meters read the same
+ * counters. Used by {@link CaffeineCache} and {@link AsyncCaffeineCache}.
+ */
+final class CaffeineStatsCounter implements StatsCounter {
+
+  private final CacheMetrics metrics;
+
+  CaffeineStatsCounter(CacheMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  @Override
+  public void recordHits(int count) {
+    metrics.recordHits(count);
+  }
+
+  @Override
+  public void recordMisses(int count) {
+    metrics.recordMisses(count);
+  }
+
+  @Override
+  public void recordLoadSuccess(long loadTime) {
+    metrics.recordLoadSuccess(loadTime);
+  }
+
+  @Override
+  public void recordLoadFailure(long loadTime) {
+    metrics.recordLoadFailure(loadTime);
+  }
+
+  /**
+   * Records an eviction; explicit invalidations and replacements are ignored.
+   */
+  @Override
+  public void recordEviction(int weight, RemovalCause cause) {
+    switch (cause) {
+      case SIZE:
+        metrics.recordEviction(weight, EvictionCause.SIZE);
+        break;
+      case EXPIRED:
+        metrics.recordEviction(weight, EvictionCause.EXPIRED);
+        break;
+      case COLLECTED:
+        metrics.recordEviction(weight, EvictionCause.COLLECTED);
+        break;
+      default:
+        break;
+    }
+  }
+
+  @Override
+  public CacheStats snapshot() {
+    return CacheStats.of(
+      metrics.hitCount(),
+      metrics.missCount(),
+      metrics.loadSuccessCount(),
+      metrics.loadFailureCount(),
+      metrics.totalLoadTime(),
+      metrics.evictionCount(),
+      metrics.evictionWeight()
+    );
+  }
+}
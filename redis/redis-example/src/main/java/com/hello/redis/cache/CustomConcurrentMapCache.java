@@ -1,20 +1,79 @@
 package com.hello.redis.cache;
 
+import com.hello.redis.cache.CacheMetrics.EvictionCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.ToIntBiFunction;
 
 /**
  * A simple cache implementation using ConcurrentHashMap.
  * This implementation provides basic caching functionality with optional expiration.
  *
+ * <p>Expired entries are removed by a {@link TimerWheel} instead of scanning
+ * the whole map, so reads and writes stay O(1) as the cache grows. Writes
+ * record the wheel update in a buffer that is drained under a lock with
+ * {@code tryLock}, and the wheel is advanced by the same maintenance pass
+ * whenever a read or write observes that the clock has moved. Reads never
+ * wait for the lock; an entry that has expired but has not been removed yet
+ * is treated as absent. Callers that want expired entries removed while the
+ * cache is idle can schedule {@link #cleanUp()}.
+ *
+ * <p>The cache can be bounded by entry count or by total weight, in which
+ * case entries are evicted by a {@link WindowTinyLfuPolicy}. Reads record the
+ * hit in a lossy {@link ReadBuffer} without locking; the buffered reads are
+ * replayed against the policy and the eviction runs during the same
+ * maintenance pass, so the bound may be exceeded briefly until it runs.
+ * Writers fall back to a blocking maintenance pass when too many writes are
+ * pending, which keeps the overshoot bounded.
+ *
+ * <p>Concurrent misses on the same key share a single call of the mapping
+ * function: the first caller registers an in-flight future and the others
+ * wait for it, so an expiring hot key does not send every caller to the
+ * loader at once. With {@link #setStaleWhileRevalidate} an expired entry can
+ * also keep being served for a while as one reload runs in the background.
+ *
  * @param <K> the type of keys maintained by this cache
  * @param <V> the type of mapped values
  */
-public class CustomConcurrentMapCache<K, V> {
+public class CustomConcurrentMapCache<K, V> implements LocalCache<K, V> {
+
+  /** Pending writes after which writers wait for the maintenance lock. */
+  private static final int WRITE_BUFFER_MAXIMUM = 1024;
 
-  private final ConcurrentHashMap<K, CacheEntry<V>> cache;
+  private final ConcurrentHashMap<K, CacheEntry<K, V>> cache;
   private final long defaultExpirationTimeMillis;
+  private final LongSupplier clock;
+  private final TimerWheel<K, V> timerWheel;
+  private final ToIntBiFunction<? super K, ? super V> weigher;
+  private final WindowTinyLfuPolicy<K, V> policy;
+  private final ReadBuffer<CacheEntry<K, V>> readBuffer;
+  private final Queue<Runnable> writeBuffer = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger pendingWrites = new AtomicInteger();
+  private final ReentrantLock maintenanceLock = new ReentrantLock();
+  private final ConcurrentHashMap<K, CompletableFuture<V>> loading =
+    new ConcurrentHashMap<>();
+  private final CacheMetrics metrics = new CacheMetrics();
+  private volatile long lastMaintenanceTime;
+  private volatile long staleWhileRevalidateMillis;
+  private volatile Executor refreshExecutor = ForkJoinPool.commonPool();
 
   /**
    * Creates a new cache with default expiration time of 1 hour.
@@ -29,29 +88,229 @@ public class CustomConcurrentMapCache<K, V> {
    * @param defaultExpirationTimeMillis the default expiration time in milliseconds
    */
   public CustomConcurrentMapCache(long defaultExpirationTimeMillis) {
+    this(defaultExpirationTimeMillis, System::currentTimeMillis);
+  }
+
+  /**
+   * Creates a new cache holding at most the given number of entries.
+   *
+   * @param defaultExpirationTimeMillis the default expiration time in milliseconds
+   * @param maximumSize the maximum number of entries the cache may contain
+   */
+  public CustomConcurrentMapCache(
+    long defaultExpirationTimeMillis,
+    long maximumSize
+  ) {
+    this(
+      defaultExpirationTimeMillis,
+      maximumSize,
+      null,
+      System::currentTimeMillis
+    );
+  }
+
+  /**
+   * Creates a new cache whose entries weigh at most the given total weight.
+   *
+   * @param defaultExpirationTimeMillis the default expiration time in milliseconds
+   * @param maximumWeight the maximum total weight of the entries
+   * @param weigher computes the non-negative weight of an entry when it is written
+   */
+  public CustomConcurrentMapCache(
+    long defaultExpirationTimeMillis,
+    long maximumWeight,
+    ToIntBiFunction<? super K, ? super V> weigher
+  ) {
+    this(
+      defaultExpirationTimeMillis,
+      maximumWeight,
+      Objects.requireNonNull(weigher, "weigher"),
+      System::currentTimeMillis
+    );
+  }
+
+  /**
+   * Creates a new unbounded cache reading the time from the given clock, for tests.
+   *
+   * @param defaultExpirationTimeMillis the default expiration time in milliseconds
+   * @param clock the time source in milliseconds
+   */
+  CustomConcurrentMapCache(
+    long defaultExpirationTimeMillis,
+    LongSupplier clock
+  ) {
+    this(defaultExpirationTimeMillis, Long.MAX_VALUE, null, clock);
+  }
+
+  /**
+   * Creates a new cache reading the time from the given clock, for tests.
+   *
+   * @param defaultExpirationTimeMillis the default expiration time in milliseconds
+   * @param maximumWeight the maximum total weight, {@code Long.MAX_VALUE} for unbounded
+   * @param weigher computes the weight of an entry, null if every entry weighs 1
+   * @param clock the time source in milliseconds
+   */
+  CustomConcurrentMapCache(
+    long defaultExpirationTimeMillis,
+    long maximumWeight,
+    ToIntBiFunction<? super K, ? super V> weigher,
+    LongSupplier clock
+  ) {
+    if (maximumWeight < 0) {
+      throw new IllegalArgumentException("maximum must not be negative");
+    }
     this.cache = new ConcurrentHashMap<>();
     this.defaultExpirationTimeMillis = defaultExpirationTimeMillis;
+    this.clock = clock;
+    this.lastMaintenanceTime = clock.getAsLong();
+    this.timerWheel = new TimerWheel<>(lastMaintenanceTime);
+    this.weigher = weigher;
+    boolean bounded = maximumWeight != Long.MAX_VALUE;
+    this.policy =
+    bounded ? new WindowTinyLfuPolicy<>(maximumWeight, weigher != null) : null;
+    this.readBuffer = bounded ? new ReadBuffer<>() : null;
+  }
+
+  /**
+   * Keeps serving an entry for up to the given time after it expires, while
+   * the next read reloads it on the executor with the mapping function it was
+   * given. Only one reload per key runs at a time, and its result is dropped
+   * if the entry was replaced or removed in the meantime. Applies to entries
+   * written after the call.
+   *
+   * @param maxStaleMillis how long an expired entry may still be served, 0 to disable
+   * @param executor runs the background reloads
+   */
+  public void setStaleWhileRevalidate(long maxStaleMillis, Executor executor) {
+    if (maxStaleMillis < 0) {
+      throw new IllegalArgumentException("maxStaleMillis must not be negative");
+    }
+    this.refreshExecutor = Objects.requireNonNull(executor, "executor");
+    this.staleWhileRevalidateMillis = maxStaleMillis;
   }
 
   /**
    * Returns the value associated with the given key, or computes it using the given function
-   * if it's not present in the cache or has expired.
+   * if it's not present in the cache or has expired. Callers missing the same key at the same
+   * time wait for a single computation and see its value or exception; the function must not
+   * read the same key from this cache.
    *
    * @param key the key whose associated value is to be returned
    * @param mappingFunction the function to compute a value
    * @return the current (existing or computed) value associated with the specified key
    */
+  @Override
   public V get(K key, Function<K, V> mappingFunction) {
-    cleanupExpiredEntries();
-
-    CacheEntry<V> entry = cache.get(key);
-    if (entry != null && !entry.isExpired()) {
+    long now = clock.getAsLong();
+    CacheEntry<K, V> entry = cache.get(key);
+    if (entry != null && !entry.isExpired(now)) {
+      metrics.recordHits(1);
+      afterRead(entry, now);
+      if (entry.isStale(now)) {
+        refresh(entry, mappingFunction);
+      }
       return entry.getValue();
     }
+    metrics.recordMisses(1);
+    return load(key, mappingFunction);
+  }
+
+  /**
+   * Returns the values associated with the given keys, computing the missing
+   * ones with a single call of the given function. Keys that are already
+   * being loaded by another caller are not passed to the function; their
+   * values are taken from that load instead.
+   *
+   * @param keys the keys whose associated values are to be returned
+   * @param mappingFunction computes the values of the missing keys; keys it leaves out are not cached
+   * @return the values of the keys that are cached or were loaded, in iteration order of the keys
+   */
+  @Override
+  public Map<K, V> getAll(
+    Iterable<? extends K> keys,
+    Function<Set<K>, Map<K, V>> mappingFunction
+  ) {
+    long now = clock.getAsLong();
+    Map<K, V> result = new LinkedHashMap<>();
+    Map<K, CompletableFuture<V>> owned = new LinkedHashMap<>();
+    Map<K, CompletableFuture<V>> waiting = new HashMap<>();
+    for (K key : keys) {
+      if (result.containsKey(key)) {
+        continue;
+      }
+      // reserve the position so that the result follows the key order
+      result.put(key, null);
+      CacheEntry<K, V> entry = cache.get(key);
+      if (entry != null && !entry.isExpired(now)) {
+        metrics.recordHits(1);
+        afterRead(entry, now);
+        if (entry.isStale(now)) {
+          refresh(entry, k -> mappingFunction.apply(Set.of(k)).get(k));
+        }
+        result.put(key, entry.getValue());
+        continue;
+      }
+      metrics.recordMisses(1);
+      CompletableFuture<V> future = new CompletableFuture<>();
+      CompletableFuture<V> inFlight = loading.putIfAbsent(key, future);
+      if (inFlight != null) {
+        waiting.put(key, inFlight);
+        continue;
+      }
+      entry = cache.get(key);
+      if (entry != null && !entry.isStale(clock.getAsLong())) {
+        result.put(key, entry.getValue());
+        future.complete(entry.getValue());
+        loading.remove(key, future);
+      } else {
+        owned.put(key, future);
+      }
+    }
 
-    V value = mappingFunction.apply(key);
-    put(key, value);
-    return value;
+    if (!owned.isEmpty()) {
+      try {
+        Map<K, V> loaded = timed(
+          Collections.unmodifiableSet(owned.keySet()),
+          mappingFunction
+        );
+        for (Map.Entry<K, CompletableFuture<V>> load : owned.entrySet()) {
+          V value = loaded.get(load.getKey());
+          if (value != null) {
+            put(load.getKey(), value);
+            result.put(load.getKey(), value);
+          }
+          load.getValue().complete(value);
+        }
+      } catch (Throwable ex) {
+        owned.values().forEach(future -> future.completeExceptionally(ex));
+        throw ex;
+      } finally {
+        owned.forEach(loading::remove);
+      }
+    }
+    waiting.forEach((key, future) -> result.put(key, join(future)));
+    result.values().removeIf(Objects::isNull);
+    return result;
+  }
+
+  /**
+   * Returns the value associated with the given key, or null if there is no
+   * value or it has expired.
+   *
+   * @param key the key whose associated value is to be returned
+   * @return the value associated with the key, or null if not present
+   */
+  @Override
+  public V getIfPresent(K key) {
+    long now = clock.getAsLong();
+    CacheEntry<K, V> entry = cache.get(key);
+    if (entry == null || entry.isExpired(now)) {
+      metrics.recordMisses(1);
+      return null;
+    }
+    metrics.recordHits(1);
+    afterRead(entry, now);
+    return entry.getValue();
   }
 
   /**
@@ -61,6 +320,7 @@ public class CustomConcurrentMapCache<K, V> {
    * @param key the key with which the specified value is to be associated
    * @param value the value to be associated with the specified key
    */
+  @Override
   public void put(K key, V value) {
     put(key, value, defaultExpirationTimeMillis);
   }
@@ -74,8 +334,9 @@ public class CustomConcurrentMapCache<K, V> {
    * @param expirationTimeMillis the expiration time in milliseconds
    */
   public void put(K key, V value, long expirationTimeMillis) {
-    long expirationTime = System.currentTimeMillis() + expirationTimeMillis;
-    cache.put(key, new CacheEntry<>(value, expirationTime));
+    CacheEntry<K, V> entry = newEntry(key, value, expirationTimeMillis);
+    CacheEntry<K, V> previous = cache.put(key, entry);
+    afterWrite(() -> link(entry, previous));
   }
 
   /**
@@ -85,15 +346,49 @@ public class CustomConcurrentMapCache<K, V> {
    * @return the previous value associated with the key, or null if there was no mapping
    */
   public V remove(K key) {
-    CacheEntry<V> entry = cache.remove(key);
-    return (entry != null) ? entry.getValue() : null;
+    CacheEntry<K, V> entry = cache.remove(key);
+    if (entry == null) {
+      return null;
+    }
+    afterWrite(() -> unlink(entry));
+    return entry.getValue();
+  }
+
+  /**
+   * Discards any cached value for the key, same as {@link #remove} without
+   * returning the value.
+   *
+   * @param key the key whose mapping is to be removed from the cache
+   */
+  @Override
+  public void invalidate(K key) {
+    remove(key);
+  }
+
+  /**
+   * Discards all entries in the cache, same as {@link #clear()}.
+   */
+  @Override
+  public void invalidateAll() {
+    clear();
   }
 
   /**
    * Removes all of the mappings from this cache.
    */
   public void clear() {
-    cache.clear();
+    maintenanceLock.lock();
+    try {
+      writeBuffer.clear();
+      pendingWrites.set(0);
+      timerWheel.clear();
+      if (policy != null) {
+        policy.clear();
+      }
+      cache.clear();
+    } finally {
+      maintenanceLock.unlock();
+    }
   }
 
   /**
@@ -102,38 +397,279 @@ public class CustomConcurrentMapCache<K, V> {
    * @return the number of key-value mappings in this cache
    */
   public int size() {
-    cleanupExpiredEntries();
+    cleanUp();
     return cache.size();
   }
 
   /**
-   * Removes expired entries from the cache.
+   * Returns the number of mappings without running maintenance, which may
+   * still count entries that have expired or are about to be evicted.
+   *
+   * @return the approximate number of entries in this cache
+   */
+  @Override
+  public long estimatedSize() {
+    return cache.mappingCount();
+  }
+
+  /**
+   * Returns the total weight of the entries as of the last maintenance pass,
+   * or the number of mappings if the cache is unbounded.
+   *
+   * @return the approximate total weight of the entries
    */
-  private void cleanupExpiredEntries() {
-    cache.entrySet().removeIf(entry -> entry.getValue().isExpired());
+  public long weightedSize() {
+    return policy == null ? cache.mappingCount() : policy.weightedSize();
   }
 
   /**
-   * A cache entry that holds a value and its expiration time.
+   * Publishes the statistics of this cache to the registry, tagged with the
+   * given cache name; see {@link CacheMetrics} for the meters. Loads include
+   * the background reloads of stale entries.
    *
-   * @param <V> the type of the value
+   * @param registry the registry to publish to
+   * @param name the name of this cache
    */
-  private static class CacheEntry<V> {
+  @Override
+  public void registerMetrics(MeterRegistry registry, String name) {
+    metrics.bindTo(
+      registry,
+      name,
+      this,
+      CustomConcurrentMapCache::estimatedSize,
+      CustomConcurrentMapCache::weightedSize
+    );
+  }
 
-    private final V value;
-    private final long expirationTime;
+  /**
+   * Applies the pending writes and removes the expired entries, waiting for
+   * a concurrent maintenance pass if necessary.
+   */
+  public void cleanUp() {
+    maintenanceLock.lock();
+    try {
+      maintenance();
+    } finally {
+      maintenanceLock.unlock();
+    }
+  }
 
-    public CacheEntry(V value, long expirationTime) {
-      this.value = value;
-      this.expirationTime = expirationTime;
+  /**
+   * Records a read for the eviction policy and runs maintenance when the
+   * read buffer is full or the clock has moved.
+   */
+  private void afterRead(CacheEntry<K, V> entry, long now) {
+    boolean drain = readBuffer != null && readBuffer.offer(entry);
+    if (drain || now != lastMaintenanceTime) {
+      tryMaintenance();
     }
+  }
 
-    public V getValue() {
+  /**
+   * Computes the value on a miss, unless another caller is already computing
+   * it, in which case this waits for and returns that caller's result.
+   */
+  private V load(K key, Function<K, V> mappingFunction) {
+    CompletableFuture<V> future = new CompletableFuture<>();
+    CompletableFuture<V> inFlight;
+    while ((inFlight = loading.putIfAbsent(key, future)) != null) {
+      V value = join(inFlight);
+      // a bulk load completes with null for the keys it did not return
+      if (value != null) {
+        return value;
+      }
+    }
+    try {
+      // a load that finished after our read of the map has already stored it
+      CacheEntry<K, V> entry = cache.get(key);
+      V value;
+      if (entry != null && !entry.isStale(clock.getAsLong())) {
+        value = entry.getValue();
+      } else {
+        value = timed(key, mappingFunction);
+        put(key, value);
+      }
+      future.complete(value);
       return value;
+    } catch (Throwable ex) {
+      future.completeExceptionally(ex);
+      throw ex;
+    } finally {
+      loading.remove(key, future);
+    }
+  }
+
+  /**
+   * Reloads a stale entry on the refresh executor unless a load of the key is
+   * already in flight. A failed reload keeps the stale value until the next
+   * read retries it or the entry expires.
+   */
+  private void refresh(CacheEntry<K, V> stale, Function<K, V> mappingFunction) {
+    K key = stale.getKey();
+    CompletableFuture<V> future = new CompletableFuture<>();
+    if (loading.putIfAbsent(key, future) != null) {
+      return;
     }
+    try {
+      refreshExecutor.execute(() -> {
+        try {
+          V value = timed(key, mappingFunction);
+          CacheEntry<K, V> entry = newEntry(
+            key,
+            value,
+            defaultExpirationTimeMillis
+          );
+          if (cache.replace(key, stale, entry)) {
+            afterWrite(() -> link(entry, stale));
+          }
+          future.complete(value);
+        } catch (Throwable ex) {
+          future.completeExceptionally(ex);
+        } finally {
+          loading.remove(key, future);
+        }
+      });
+    } catch (RejectedExecutionException ex) {
+      loading.remove(key, future);
+      future.completeExceptionally(ex);
+    }
+  }
 
-    public boolean isExpired() {
-      return System.currentTimeMillis() > expirationTime;
+  /**
+   * Applies the mapping function and records the load time, a null value
+   * counts as a failed load.
+   */
+  private <T, R> R timed(T argument, Function<T, R> mappingFunction) {
+    long start = System.nanoTime();
+    try {
+      R value = mappingFunction.apply(argument);
+      if (value == null) {
+        metrics.recordLoadFailure(System.nanoTime() - start);
+      } else {
+        metrics.recordLoadSuccess(System.nanoTime() - start);
+      }
+      return value;
+    } catch (Throwable ex) {
+      metrics.recordLoadFailure(System.nanoTime() - start);
+      throw ex;
+    }
+  }
+
+  private static <V> V join(CompletableFuture<V> future) {
+    try {
+      return future.join();
+    } catch (CompletionException ex) {
+      if (ex.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) ex.getCause();
+      }
+      if (ex.getCause() instanceof Error) {
+        throw (Error) ex.getCause();
+      }
+      throw ex;
+    }
+  }
+
+  private CacheEntry<K, V> newEntry(K key, V value, long expirationTimeMillis) {
+    long refreshTime = clock.getAsLong() + expirationTimeMillis;
+    int weight = weigher == null ? 1 : weigher.applyAsInt(key, value);
+    if (weight < 0) {
+      throw new IllegalArgumentException("negative weight for key: " + key);
+    }
+    return new CacheEntry<>(
+      key,
+      value,
+      refreshTime,
+      refreshTime + staleWhileRevalidateMillis,
+      weight
+    );
+  }
+
+  /**
+   * Adds a written entry to the timer wheel and the eviction policy in place
+   * of the entry it replaced. Must hold the lock.
+   */
+  private void link(CacheEntry<K, V> entry, CacheEntry<K, V> previous) {
+    if (previous != null) {
+      unlink(previous);
+    }
+    // a later write may already have replaced this entry
+    if (cache.get(entry.getKey()) == entry) {
+      timerWheel.schedule(entry);
+      if (policy != null) {
+        policy.onAdd(entry);
+      }
+    }
+  }
+
+  /**
+   * Buffers a policy update and runs maintenance, waiting for the lock if
+   * the buffer has grown too large.
+   */
+  private void afterWrite(Runnable task) {
+    writeBuffer.add(task);
+    if (pendingWrites.incrementAndGet() > WRITE_BUFFER_MAXIMUM) {
+      cleanUp();
+    } else {
+      tryMaintenance();
+    }
+  }
+
+  /**
+   * Removes an entry from the timer wheel and the eviction policy.
+   */
+  private void unlink(CacheEntry<K, V> entry) {
+    timerWheel.deschedule(entry);
+    if (policy != null) {
+      policy.onRemove(entry);
+    }
+  }
+
+  /**
+   * Runs a maintenance pass unless another thread is already running one.
+   */
+  private void tryMaintenance() {
+    if (maintenanceLock.tryLock()) {
+      try {
+        maintenance();
+      } finally {
+        maintenanceLock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Replays the buffered reads and writes, advances the timer wheel and
+   * evicts entries over the bound. Must hold the lock.
+   */
+  private void maintenance() {
+    if (readBuffer != null) {
+      readBuffer.drainTo(policy::onAccess);
+    }
+    Runnable task;
+    while ((task = writeBuffer.poll()) != null) {
+      pendingWrites.decrementAndGet();
+      task.run();
+    }
+    long now = clock.getAsLong();
+    timerWheel.advance(
+      now,
+      entry -> {
+        if (cache.remove(entry.getKey(), entry)) {
+          metrics.recordEviction(entry.getWeight(), EvictionCause.EXPIRED);
+        }
+        if (policy != null) {
+          policy.onRemove(entry);
+        }
+      }
+    );
+    if (policy != null) {
+      policy.evict(entry -> {
+        if (cache.remove(entry.getKey(), entry)) {
+          metrics.recordEviction(entry.getWeight(), EvictionCause.SIZE);
+        }
+        timerWheel.deschedule(entry);
+      });
     }
+    lastMaintenanceTime = now;
   }
 }
@@ -0,0 +1,114 @@
+package com.hello.redis.cache;
+
+/**
+ * A count-min sketch of 4-bit counters estimating how often keys were used.
+ *
+ * <p>Each key maps to four counters, one per hash function, packed sixteen
+ * to a {@code long}; its frequency is the smallest of the four. Counters
+ * saturate at 15, and once the number of increments reaches ten times the
+ * table width every counter is halved, so the sketch favours recent
+ * popularity over the all-time count.
+ *
+ * <p>This class is not thread-safe; callers must hold a lock.
+ */
+final class FrequencySketch {
+
+  private static final long[] SEEDS = {
+    0x97cb3127L,
+    0xb1d5e2b9L,
+    0xf2b47c79L,
+    0x8a2bd7e3L,
+  };
+  private static final long RESET_MASK = 0x7777777777777777L;
+  private static final int MAXIMUM_LENGTH = 1 << 20;
+
+  private long[] table = new long[16];
+  private int tableMask = table.length - 1;
+  private int sampleSize = sampleSizeOf(table.length);
+  private int size;
+
+  /**
+   * Grows the table so that it has at least one counter per entry, up to a
+   * fixed maximum. Growing discards the collected frequencies.
+   *
+   * @param entries the number of entries the cache currently holds
+   */
+  void ensureCapacity(long entries) {
+    int length = (int) Math.min(entries, MAXIMUM_LENGTH);
+    if (length <= table.length) {
+      return;
+    }
+    length = Integer.highestOneBit(length - 1) << 1;
+    table = new long[length];
+    tableMask = length - 1;
+    sampleSize = sampleSizeOf(length);
+    size = 0;
+  }
+
+  /**
+   * Returns the estimated number of times the key was used, at most 15.
+   */
+  int frequency(Object key) {
+    int hash = spread(key.hashCode());
+    int frequency = Integer.MAX_VALUE;
+    for (long seed : SEEDS) {
+      int index = index(hash, seed);
+      int offset = offset(hash, seed);
+      frequency =
+      Math.min(frequency, (int) ((table[index] >>> offset) & 0xfL));
+    }
+    return frequency;
+  }
+
+  /**
+   * Records one use of the key.
+   */
+  void increment(Object key) {
+    int hash = spread(key.hashCode());
+    boolean added = false;
+    for (long seed : SEEDS) {
+      int index = index(hash, seed);
+      int offset = offset(hash, seed);
+      long mask = 0xfL << offset;
+      if ((table[index] & mask) != mask) {
+        table[index] += 1L << offset;
+        added = true;
+      }
+    }
+    if (added && ++size >= sampleSize) {
+      reset();
+    }
+  }
+
+  private void reset() {
+    for (int i = 0; i < table.length; i++) {
+      table[i] = (table[i] >>> 1) & RESET_MASK;
+    }
+    size >>>= 1;
+  }
+
+  private int index(int hash, long seed) {
+    long h = (hash + seed) * seed;
+    h += h >>> 32;
+    return (int) h & tableMask;
+  }
+
+  /**
+   * Returns the number of increments between two halvings of the counters,
+   * ten per element of a table of the given length.
+   */
+  private static int sampleSizeOf(int length) {
+    return 10 * length;
+  }
+
+  private static int offset(int hash, long seed) {
+    long h = (hash ^ seed) * 0x9e3779b97f4a7c15L;
+    return (int) (h >>> 60) << 2;
+  }
+
+  private static int spread(int hash) {
+    hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+    hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+    return (hash >>> 16) ^ hash;
+  }
+}
@@ -1,22 +1,45 @@
 package com.hello.redis.cache;
 
+import com.google.common.base.Ticker;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.hello.redis.cache.CacheMetrics.EvictionCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * A cache implementation using Guava's LoadingCache.
  * This implementation provides caching functionality with automatic loading,
  * expiration, and size constraints.
  *
+ * <p>When created with an asynchronous loader and a refresh interval, an entry
+ * that is older than the interval is reloaded in the background on its next
+ * read while callers keep getting the current value.
+ *
  * @param <K> the type of keys maintained by this cache
  * @param <V> the type of mapped values
  */
-public class GuavaLoadingCache<K, V> {
+public class GuavaLoadingCache<K, V> implements LocalCache<K, V> {
 
+  /** hits and misses come from Guava's statistics, the rest is recorded here */
+  private final CacheMetrics metrics = new CacheMetrics(
+    this::hitCount,
+    this::missCount
+  );
   private final LoadingCache<K, V> cache;
 
   /**
@@ -34,7 +57,79 @@ public class GuavaLoadingCache<K, V> {
     CacheLoader<K, V> loader = new CacheLoader<K, V>() {
       @Override
       public V load(K key) {
-        return loadingFunction.apply(key);
+        return timed(() -> loadingFunction.apply(key));
+      }
+    };
+
+    this.cache =
+    CacheBuilder
+      .newBuilder()
+      .maximumSize(maximumSize)
+      .expireAfterWrite(expireAfterWriteSeconds, TimeUnit.SECONDS)
+      .recordStats()
+      .removalListener(this::onRemoval)
+      .build(loader);
+  }
+
+  /**
+   * Creates a new Guava cache that loads missing entries with the given
+   * asynchronous loader and reloads entries in the background once they are
+   * older than the refresh interval.
+   *
+   * @param asyncLoader loads the value of a key, also used for reloads
+   * @param maximumSize the maximum number of entries the cache may contain
+   * @param expireAfterWriteSeconds the duration after which entries should be automatically removed
+   * @param refreshAfterWriteSeconds the age after which a read triggers a background reload
+   */
+  public GuavaLoadingCache(
+    Function<? super K, CompletableFuture<V>> asyncLoader,
+    long maximumSize,
+    long expireAfterWriteSeconds,
+    long refreshAfterWriteSeconds
+  ) {
+    this(
+      asyncLoader,
+      maximumSize,
+      expireAfterWriteSeconds,
+      refreshAfterWriteSeconds,
+      Ticker.systemTicker()
+    );
+  }
+
+  /**
+   * Creates a new refreshing Guava cache reading the time from the given
+   * ticker, for tests.
+   */
+  GuavaLoadingCache(
+    Function<? super K, CompletableFuture<V>> asyncLoader,
+    long maximumSize,
+    long expireAfterWriteSeconds,
+    long refreshAfterWriteSeconds,
+    Ticker ticker
+  ) {
+    CacheLoader<K, V> loader = new CacheLoader<K, V>() {
+      @Override
+      public V load(K key) {
+        return timed(() -> asyncLoader.apply(key).join());
+      }
+
+      @Override
+      public ListenableFuture<V> reload(K key, V oldValue) {
+        // hand back the loader's future instead of waiting on the reading thread
+        SettableFuture<V> future = SettableFuture.create();
+        long start = System.nanoTime();
+        asyncLoader
+          .apply(key)
+          .whenComplete((value, ex) -> {
+            if (ex != null) {
+              metrics.recordLoadFailure(System.nanoTime() - start);
+              future.setException(ex);
+            } else {
+              metrics.recordLoadSuccess(System.nanoTime() - start);
+              future.set(value);
+            }
+          });
+        return future;
       }
     };
 
@@ -43,7 +138,10 @@ public class GuavaLoadingCache<K, V> {
       .newBuilder()
       .maximumSize(maximumSize)
       .expireAfterWrite(expireAfterWriteSeconds, TimeUnit.SECONDS)
+      .refreshAfterWrite(refreshAfterWriteSeconds, TimeUnit.SECONDS)
+      .ticker(ticker)
       .recordStats()
+      .removalListener(this::onRemoval)
       .build(loader);
   }
 
@@ -73,6 +171,76 @@ public class GuavaLoadingCache<K, V> {
     }
   }
 
+  /**
+   * Returns the value associated with the given key, or computes it using the given function
+   * instead of the loader if it's not present in the cache.
+   *
+   * @param key the key whose associated value is to be returned
+   * @param mappingFunction the function to compute a value
+   * @return the current (existing or computed) value associated with the specified key
+   * @throws RuntimeException if an exception was thrown while computing the value
+   */
+  @Override
+  public V get(K key, Function<K, V> mappingFunction) {
+    try {
+      return cache.get(key, () -> timed(() -> mappingFunction.apply(key)));
+    } catch (ExecutionException e) {
+      throw new RuntimeException("Error loading value for key: " + key, e);
+    }
+  }
+
+  /**
+   * Returns the value associated with the given key, or null if there is no cached value.
+   *
+   * @param key the key whose associated value is to be returned
+   * @return the value associated with the key, or null if not present
+   */
+  @Override
+  public V getIfPresent(K key) {
+    return cache.getIfPresent(key);
+  }
+
+  /**
+   * Returns the values associated with the given keys, computing the missing
+   * ones with a single call of the given function instead of the loader.
+   *
+   * @param keys the keys whose associated values are to be returned
+   * @param mappingFunction computes the values of the missing keys; keys it leaves out are not cached
+   * @return the values of the keys that are cached or were loaded, in iteration order of the keys
+   */
+  @Override
+  public Map<K, V> getAll(
+    Iterable<? extends K> keys,
+    Function<Set<K>, Map<K, V>> mappingFunction
+  ) {
+    Map<K, V> result = new LinkedHashMap<>();
+    Set<K> missing = new LinkedHashSet<>();
+    for (K key : keys) {
+      if (!result.containsKey(key)) {
+        V value = cache.getIfPresent(key);
+        // reserve the position so that the result follows the key order
+        result.put(key, value);
+        if (value == null) {
+          missing.add(key);
+        }
+      }
+    }
+    if (!missing.isEmpty()) {
+      Map<K, V> loaded = timed(() ->
+        mappingFunction.apply(Collections.unmodifiableSet(missing))
+      );
+      for (K key : missing) {
+        V value = loaded.get(key);
+        if (value != null) {
+          cache.put(key, value);
+          result.put(key, value);
+        }
+      }
+    }
+    result.values().removeIf(value -> value == null);
+    return result;
+  }
+
   /**
    * Associates the specified value with the specified key in this cache.
    * If the cache previously contained a value for the key, the old value is replaced.
@@ -80,6 +248,7 @@ public class GuavaLoadingCache<K, V> {
    * @param key the key with which the specified value is to be associated
    * @param value the value to be associated with the specified key
    */
+  @Override
   public void put(K key, V value) {
     cache.put(key, value);
   }
@@ -89,6 +258,7 @@ public class GuavaLoadingCache<K, V> {
    *
    * @param key the key whose mapping is to be removed from the cache
    */
+  @Override
   public void invalidate(K key) {
     cache.invalidate(key);
   }
@@ -96,6 +266,7 @@ public class GuavaLoadingCache<K, V> {
   /**
    * Discards all entries in the cache.
    */
+  @Override
   public void invalidateAll() {
     cache.invalidateAll();
   }
@@ -110,11 +281,103 @@ public class GuavaLoadingCache<K, V> {
   }
 
   /**
-   * Returns a string representation of cache statistics.
+   * Returns the approximate number of entries in this cache, same as {@link #size()}.
+   *
+   * @return the approximate number of entries in this cache
+   */
+  @Override
+  public long estimatedSize() {
+    return cache.size();
+  }
+
+  /**
+   * Publishes the statistics of this cache to the registry, tagged with the
+   * given cache name; see {@link CacheMetrics} for the meters. Entries are
+   * not weighed, so the weighted size is the entry count.
+   *
+   * @param registry the registry to publish to
+   * @param name the name of this cache
+   */
+  @Override
+  public void registerMetrics(MeterRegistry registry, String name) {
+    metrics.bindTo(
+      registry,
+      name,
+      cache,
+      LoadingCache::size,
+      LoadingCache::size
+    );
+  }
+
+  /**
+   * Returns the number of lookups that found a value.
+   *
+   * @return the hit count from Guava's statistics
+   */
+  public long hitCount() {
+    return cache.stats().hitCount();
+  }
+
+  /**
+   * Returns the number of lookups that found no value.
+   *
+   * @return the miss count from Guava's statistics
+   */
+  public long missCount() {
+    return cache.stats().missCount();
+  }
+
+  /**
+   * Returns a string representation of cache statistics, for logging; use
+   * {@link #registerMetrics} for monitoring.
    *
    * @return a string representation of cache statistics
    */
   public String stats() {
     return cache.stats().toString();
   }
+
+  /**
+   * Calls a loader and records its latency; a null value counts as a failure,
+   * as Guava rejects it.
+   */
+  private <T> T timed(Supplier<T> loader) {
+    long start = System.nanoTime();
+    try {
+      T value = loader.get();
+      if (value == null) {
+        metrics.recordLoadFailure(System.nanoTime() - start);
+      } else {
+        metrics.recordLoadSuccess(System.nanoTime() - start);
+      }
+      return value;
+    } catch (RuntimeException | Error ex) {
+      metrics.recordLoadFailure(System.nanoTime() - start);
+      throw ex;
+    }
+  }
+
+  private void onRemoval(RemovalNotification<K, V> notification) {
+    EvictionCause cause = evictionCause(notification.getCause());
+    if (cause != null) {
+      metrics.recordEviction(1, cause);
+    }
+  }
+
+  /**
+   * Returns the eviction cause for a Guava removal cause, or null for
+   * explicit invalidations and replacements.
+   */
+  private static EvictionCause evictionCause(RemovalCause cause) {
+    switch (cause) {
+      case SIZE:
+        return EvictionCause.SIZE;
+      case EXPIRED:
+        return EvictionCause.EXPIRED;
+      case COLLECTED:
+        return EvictionCause.COLLECTED;
+      default:
+        return null;
+    }
+  }
 }
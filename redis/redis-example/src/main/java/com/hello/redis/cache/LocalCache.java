@@ -0,0 +1,84 @@
+package com.hello.redis.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * The operations shared by the local cache implementations of this package,
+ * so that callers and benchmarks can switch between them.
+ *
+ * @param <K> the type of keys maintained by this cache
+ * @param <V> the type of mapped values
+ */
+public interface LocalCache<K, V> {
+  /**
+   * Returns the value associated with the given key, or computes it using the given function
+   * if it's not present in the cache.
+   *
+   * @param key the key whose associated value is to be returned
+   * @param mappingFunction the function to compute a value
+   * @return the current (existing or computed) value associated with the specified key
+   */
+  V get(K key, Function<K, V> mappingFunction);
+
+  /**
+   * Returns the values associated with the given keys, computing the missing
+   * ones with a single call of the given function.
+   *
+   * @param keys the keys whose associated values are to be returned
+   * @param mappingFunction computes the values of the missing keys; keys it leaves out are not cached
+   * @return the values of the keys that are cached or were loaded
+   */
+  Map<K, V> getAll(
+    Iterable<? extends K> keys,
+    Function<Set<K>, Map<K, V>> mappingFunction
+  );
+
+  /**
+   * Returns the value associated with the given key, or null if there is no cached value.
+   *
+   * @param key the key whose associated value is to be returned
+   * @return the value associated with the key, or null if not present
+   */
+  V getIfPresent(K key);
+
+  /**
+   * Associates the specified value with the specified key in this cache.
+   * If the cache previously contained a value for the key, the old value is replaced.
+   *
+   * @param key the key with which the specified value is to be associated
+   * @param value the value to be associated with the specified key
+   */
+  void put(K key, V value);
+
+  /**
+   * Discards any cached value for the key.
+   *
+   * @param key the key whose mapping is to be removed from the cache
+   */
+  void invalidate(K key);
+
+  /**
+   * Discards all entries in the cache.
+   */
+  void invalidateAll();
+
+  /**
+   * Returns the approximate number of entries in this cache.
+   *
+   * @return the approximate number of entries in this cache
+   */
+  long estimatedSize();
+
+  /**
+   * Publishes the hit, miss, load, eviction and size metrics of this cache
+   * to the registry, tagged with the given cache name.
+   *
+   * @param registry the registry to publish to
+   * @param name the name of this cache
+   * @see CacheMetrics
+   */
+  void registerMetrics(MeterRegistry registry, String name);
+}
@@ -0,0 +1,475 @@
+package com.hello.redis.cache;
+
+import com.hello.redis.cache.CacheMetrics.EvictionCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Objects;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongFunction;
+import java.util.function.LongSupplier;
+
+/**
+ * A cache keyed by primitive {@code long}s, for the caches keyed by a numeric
+ * id such as a user or product id.
+ *
+ * <p>{@link CustomConcurrentMapCache CustomConcurrentMapCache&lt;Long, V&gt;}
+ * boxes every key and holds each value in a {@link CacheEntry} behind a
+ * {@code ConcurrentHashMap} node, which costs about a hundred bytes per entry
+ * and an allocation per lookup of a key outside the {@code Long} cache. Here
+ * the keys, their expiration times and the values are stored inline in three
+ * parallel arrays of an open-addressing hash table with linear probing, so
+ * an entry takes 20 bytes per slot and a lookup allocates nothing. A slot is
+ * empty when its expiration time is 0, and removals shift the following
+ * entries back instead of leaving tombstones.
+ *
+ * <p>The table is split into segments by the high bits of the hashed key,
+ * each guarded by a {@link StampedLock}. Reads are optimistic and only take
+ * the read lock when a write to the same segment ran concurrently. Expired
+ * entries are treated as absent; they are overwritten when their key is
+ * written again and dropped when a segment is rehashed, which happens before
+ * it grows and on {@link #cleanUp()}.
+ *
+ * <p>Unlike {@link CustomConcurrentMapCache} the cache is not bounded by
+ * size, and concurrent misses on the same key may each call the mapping
+ * function; the first value stored wins.
+ *
+ * @param <V> the type of mapped values
+ */
+public class LongKeyCache<V> {
+
+  /** the expiration time of an empty slot, live entries expire later */
+  private static final long EMPTY = 0;
+  private static final int SEGMENT_SHIFT = 6;
+  private static final int MINIMUM_CAPACITY = 16;
+
+  private final Segment[] segments = new Segment[1 << SEGMENT_SHIFT];
+  private final long defaultExpirationTimeMillis;
+  private final LongSupplier clock;
+  private final CacheMetrics metrics = new CacheMetrics();
+
+  /**
+   * Creates a new cache with the specified default expiration time.
+   *
+   * @param defaultExpirationTimeMillis the default expiration time in milliseconds
+   */
+  public LongKeyCache(long defaultExpirationTimeMillis) {
+    this(defaultExpirationTimeMillis, 0);
+  }
+
+  /**
+   * Creates a new cache sized for the expected number of entries, so that
+   * filling it does not rehash the segments.
+   *
+   * @param defaultExpirationTimeMillis the default expiration time in milliseconds
+   * @param expectedSize the number of entries the cache is expected to hold
+   */
+  public LongKeyCache(long defaultExpirationTimeMillis, int expectedSize) {
+    this(defaultExpirationTimeMillis, expectedSize, System::currentTimeMillis);
+  }
+
+  /**
+   * Creates a new cache reading the time from the given clock, for tests.
+   *
+   * @param defaultExpirationTimeMillis the default expiration time in milliseconds
+   * @param expectedSize the number of entries the cache is expected to hold
+   * @param clock the time source in milliseconds
+   */
+  LongKeyCache(
+    long defaultExpirationTimeMillis,
+    int expectedSize,
+    LongSupplier clock
+  ) {
+    if (expectedSize < 0) {
+      throw new IllegalArgumentException("expectedSize must not be negative");
+    }
+    this.defaultExpirationTimeMillis = defaultExpirationTimeMillis;
+    this.clock = clock;
+    int capacity = capacityFor(
+      (int) Math.min((long) expectedSize / segments.length + 1, 1 << 29)
+    );
+    for (int i = 0; i < segments.length; i++) {
+      segments[i] = new Segment(capacity, metrics);
+    }
+  }
+
+  /**
+   * Returns the value associated with the given key, or computes it using the
+   * given function if it's not present in the cache or has expired. A null
+   * value is returned without being cached.
+   *
+   * @param key the key whose associated value is to be returned
+   * @param mappingFunction the function to compute a value
+   * @return the current (existing or computed) value associated with the specified key
+   */
+  public V get(long key, LongFunction<? extends V> mappingFunction) {
+    V value = getIfPresent(key);
+    if (value != null) {
+      return value;
+    }
+    long start = System.nanoTime();
+    try {
+      value = mappingFunction.apply(key);
+    } catch (RuntimeException | Error ex) {
+      metrics.recordLoadFailure(System.nanoTime() - start);
+      throw ex;
+    }
+    if (value == null) {
+      metrics.recordLoadFailure(System.nanoTime() - start);
+      return null;
+    }
+    metrics.recordLoadSuccess(System.nanoTime() - start);
+    V existing = put(key, value, defaultExpirationTimeMillis, true);
+    return existing != null ? existing : value;
+  }
+
+  /**
+   * Returns the value associated with the given key, or null if there is no
+   * value or it has expired.
+   *
+   * @param key the key whose associated value is to be returned
+   * @return the value associated with the key, or null if not present
+   */
+  @SuppressWarnings("unchecked")
+  public V getIfPresent(long key) {
+    long hash = hash(key);
+    Segment segment = segmentFor(hash);
+    long now = clock.getAsLong();
+    long stamp = segment.lock.tryOptimisticRead();
+    Object value = segment.table.find(key, hash, now);
+    if (!segment.lock.validate(stamp)) {
+      stamp = segment.lock.readLock();
+      try {
+        value = segment.table.find(key, hash, now);
+      } finally {
+        segment.lock.unlockRead(stamp);
+      }
+    }
+    if (value == null) {
+      metrics.recordMisses(1);
+    } else {
+      metrics.recordHits(1);
+    }
+    return (V) value;
+  }
+
+  /**
+   * Associates the specified value with the specified key in this cache.
+   * If the cache previously contained a value for the key, the old value is replaced.
+   *
+   * @param key the key with which the specified value is to be associated
+   * @param value the value to be associated with the specified key
+   */
+  public void put(long key, V value) {
+    put(key, value, defaultExpirationTimeMillis);
+  }
+
+  /**
+   * Associates the specified value with the specified key in this cache with a custom expiration time.
+   * If the cache previously contained a value for the key, the old value is replaced.
+   *
+   * @param key the key with which the specified value is to be associated
+   * @param value the value to be associated with the specified key
+   * @param expirationTimeMillis the expiration time in milliseconds
+   */
+  public void put(long key, V value, long expirationTimeMillis) {
+    put(key, value, expirationTimeMillis, false);
+  }
+
+  /**
+   * Removes the mapping for a key from this cache if it is present.
+   *
+   * @param key the key whose mapping is to be removed from the cache
+   * @return the previous value associated with the key, or null if there was no live mapping
+   */
+  @SuppressWarnings("unchecked")
+  public V remove(long key) {
+    long hash = hash(key);
+    Segment segment = segmentFor(hash);
+    long stamp = segment.lock.writeLock();
+    try {
+      return (V) segment.remove(key, hash, clock.getAsLong());
+    } finally {
+      segment.lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Removes all of the mappings from this cache and shrinks the tables.
+   */
+  public void clear() {
+    for (Segment segment : segments) {
+      long stamp = segment.lock.writeLock();
+      try {
+        segment.table = new Table(MINIMUM_CAPACITY);
+        segment.size = 0;
+      } finally {
+        segment.lock.unlockWrite(stamp);
+      }
+    }
+  }
+
+  /**
+   * Returns the number of mappings, which may still count entries that have
+   * expired but have not been dropped yet.
+   *
+   * @return the approximate number of entries in this cache
+   */
+  public long estimatedSize() {
+    long size = 0;
+    for (Segment segment : segments) {
+      long stamp = segment.lock.readLock();
+      try {
+        size += segment.size;
+      } finally {
+        segment.lock.unlockRead(stamp);
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Drops the expired entries, rehashing every segment into a table sized for
+   * the remaining ones.
+   */
+  public void cleanUp() {
+    long now = clock.getAsLong();
+    for (Segment segment : segments) {
+      long stamp = segment.lock.writeLock();
+      try {
+        segment.rehash(now);
+      } finally {
+        segment.lock.unlockWrite(stamp);
+      }
+    }
+  }
+
+  /**
+   * Publishes the statistics of this cache to the registry, tagged with the
+   * given cache name; see {@link CacheMetrics} for the meters. Evictions are
+   * the expired entries that were dropped or overwritten.
+   *
+   * @param registry the registry to publish to
+   * @param name the name of this cache
+   */
+  public void registerMetrics(MeterRegistry registry, String name) {
+    metrics.bindTo(
+      registry,
+      name,
+      this,
+      LongKeyCache::estimatedSize,
+      LongKeyCache::estimatedSize
+    );
+  }
+
+  /**
+   * Stores the value and returns the live value it replaced, or with
+   * {@code onlyIfAbsent} the live value that kept it from being stored.
+   */
+  @SuppressWarnings("unchecked")
+  private V put(
+    long key,
+    V value,
+    long expirationTimeMillis,
+    boolean onlyIfAbsent
+  ) {
+    Objects.requireNonNull(value, "value");
+    long hash = hash(key);
+    Segment segment = segmentFor(hash);
+    long now = clock.getAsLong();
+    long expirationTime = now + expirationTimeMillis;
+    if (expirationTimeMillis > 0 && expirationTime < now) {
+      // saturate instead of wrapping around for very long expiration times
+      expirationTime = Long.MAX_VALUE;
+    }
+    long stamp = segment.lock.writeLock();
+    try {
+      return (V) segment.put(
+        key,
+        hash,
+        value,
+        Math.max(expirationTime, EMPTY + 1),
+        now,
+        onlyIfAbsent
+      );
+    } finally {
+      segment.lock.unlockWrite(stamp);
+    }
+  }
+
+  private Segment segmentFor(long hash) {
+    return segments[(int) (hash >>> (Long.SIZE - SEGMENT_SHIFT))];
+  }
+
+  /** Spreads the key so that sequential ids do not fill adjacent slots. */
+  private static long hash(long key) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    return h ^ (h >>> 32);
+  }
+
+  /** Returns the smallest power of two capacity whose threshold holds the entries. */
+  private static int capacityFor(int entries) {
+    int capacity = MINIMUM_CAPACITY;
+    while (capacity - (capacity >>> 2) < entries) {
+      capacity <<= 1;
+    }
+    return capacity;
+  }
+
+  /**
+   * The parallel arrays of a segment. Replaced as a whole when the segment is
+   * rehashed, so an optimistic reader always sees arrays of the same length.
+   */
+  private static final class Table {
+
+    final long[] keys;
+    final long[] expirationTimes;
+    final Object[] values;
+    final int mask;
+    /** the size after which the segment is rehashed, three quarters of the capacity */
+    final int threshold;
+
+    Table(int capacity) {
+      this.keys = new long[capacity];
+      this.expirationTimes = new long[capacity];
+      this.values = new Object[capacity];
+      this.mask = capacity - 1;
+      this.threshold = capacity - (capacity >>> 2);
+    }
+
+    /**
+     * Returns the live value of the key or null. Under an optimistic read the
+     * arrays may change underneath, so the probe is bounded by the capacity
+     * and the result is only used if the read validates.
+     */
+    Object find(long key, long hash, long now) {
+      int index = (int) hash & mask;
+      for (int probes = 0; probes <= mask; probes++) {
+        long expirationTime = expirationTimes[index];
+        if (expirationTime == EMPTY) {
+          return null;
+        }
+        if (keys[index] == key) {
+          return expirationTime > now ? values[index] : null;
+        }
+        index = (index + 1) & mask;
+      }
+      return null;
+    }
+
+    /** Returns the slot of the key, or the empty slot ending its probe sequence. */
+    int slotOf(long key, long hash) {
+      int index = (int) hash & mask;
+      while (expirationTimes[index] != EMPTY && keys[index] != key) {
+        index = (index + 1) & mask;
+      }
+      return index;
+    }
+
+    void set(int index, long key, Object value, long expirationTime) {
+      keys[index] = key;
+      values[index] = value;
+      expirationTimes[index] = expirationTime;
+    }
+  }
+
+  /**
+   * A lock and the table it guards. Writes hold the write lock; the table and
+   * size are only replaced under it.
+   */
+  private static final class Segment {
+
+    final StampedLock lock = new StampedLock();
+    final CacheMetrics metrics;
+    Table table;
+    int size;
+
+    Segment(int capacity, CacheMetrics metrics) {
+      this.table = new Table(capacity);
+      this.metrics = metrics;
+    }
+
+    Object put(
+      long key,
+      long hash,
+      Object value,
+      long expirationTime,
+      long now,
+      boolean onlyIfAbsent
+    ) {
+      int index = table.slotOf(key, hash);
+      long previousExpirationTime = table.expirationTimes[index];
+      if (previousExpirationTime == EMPTY) {
+        if (size >= table.threshold) {
+          rehash(now);
+          index = table.slotOf(key, hash);
+        }
+        table.set(index, key, value, expirationTime);
+        size++;
+        return null;
+      }
+      Object previous = table.values[index];
+      if (previousExpirationTime <= now) {
+        metrics.recordEviction(1, EvictionCause.EXPIRED);
+        previous = null;
+      } else if (onlyIfAbsent) {
+        return previous;
+      }
+      table.set(index, key, value, expirationTime);
+      return previous;
+    }
+
+    /**
+     * Empties the slot of the key and moves each following entry of the
+     * cluster back into the gap unless that would put it before its home slot.
+     */
+    Object remove(long key, long hash, long now) {
+      Table t = table;
+      int gap = t.slotOf(key, hash);
+      long expirationTime = t.expirationTimes[gap];
+      if (expirationTime == EMPTY) {
+        return null;
+      }
+      Object previous = expirationTime > now ? t.values[gap] : null;
+      int index = (gap + 1) & t.mask;
+      while (t.expirationTimes[index] != EMPTY) {
+        int home = (int) hash(t.keys[index]) & t.mask;
+        if (((index - home) & t.mask) >= ((index - gap) & t.mask)) {
+          t.set(gap, t.keys[index], t.values[index], t.expirationTimes[index]);
+          gap = index;
+        }
+        index = (index + 1) & t.mask;
+      }
+      t.set(gap, 0, null, EMPTY);
+      size--;
+      return previous;
+    }
+
+    /**
+     * Copies the live entries into a table with room for half as many more,
+     * which grows the segment when it is full of live entries and shrinks it
+     * after many have expired. The headroom keeps a segment that sheds only
+     * a few expired entries from being rehashed again right away.
+     */
+    void rehash(long now) {
+      Table old = table;
+      int live = 0;
+      for (long expirationTime : old.expirationTimes) {
+        if (expirationTime > now) {
+          live++;
+        }
+      }
+      Table rehashed = new Table(capacityFor(live + (live >>> 1) + 1));
+      for (int i = 0; i <= old.mask; i++) {
+        long expirationTime = old.expirationTimes[i];
+        if (expirationTime > now) {
+          long key = old.keys[i];
+          int index = rehashed.slotOf(key, hash(key));
+          rehashed.set(index, key, old.values[i], expirationTime);
+        } else if (expirationTime != EMPTY) {
+          metrics.recordEviction(1, EvictionCause.EXPIRED);
+        }
+      }
+      table = rehashed;
+      size = live;
+    }
+  }
+}
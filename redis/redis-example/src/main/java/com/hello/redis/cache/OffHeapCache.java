@@ -0,0 +1,607 @@
+package com.hello.redis.cache;
+
+import com.hello.redis.cache.CacheMetrics.EvictionCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A cache of serialized values stored outside the Java heap, meant as a
+ * second tier behind an on-heap cache for large values such as JSON
+ * documents, see {@link TieredCache}.
+ *
+ * <p>Memory is allocated in direct {@link ByteBuffer} pages of a fixed size,
+ * up to the configured maximum. Each page is cut into chunks of one size
+ * class; classes grow by 25% from 64 bytes to the page size, and a value is
+ * stored in one chunk of the smallest class that fits it, so at most a
+ * quarter of a chunk is wasted. The heap only holds a small index entry per
+ * key with the page, offset and length of the value.
+ *
+ * <p>When no chunk of the needed class is free and no new page can be
+ * allocated, the least recently used entry of that class is evicted, looking
+ * at no more than the 16 least recently used entries. If none of them has
+ * the class, the page of another class with the fewest used chunks is
+ * emptied and reused for the class that needs it, so the split of memory
+ * between size classes follows the workload. One put therefore evicts at
+ * most one page worth of entries; if that does not free a chunk because open
+ * handles hold it, the put fails.
+ *
+ * <p>{@link #get} returns an {@link OffHeapValue} that reads the chunk in
+ * place without copying. The chunk is not reused while the handle is open,
+ * even if the entry is replaced or evicted in the meantime, so the handle
+ * must be closed. The index is guarded by a lock; copying a value into its
+ * chunk and reading it through a handle happen outside the lock.
+ *
+ * @param <K> the type of keys maintained by this cache
+ */
+public class OffHeapCache<K> implements AutoCloseable {
+
+  /** the default page size, values larger than a page cannot be stored */
+  public static final int DEFAULT_PAGE_SIZE = 1 << 20;
+
+  private static final int MIN_CHUNK_SIZE = 64;
+  private static final double GROWTH_FACTOR = 1.25;
+  /** the least recently used entries searched for one of the needed size class */
+  private static final int EVICTION_SCAN_LIMIT = 16;
+
+  private final long maximumBytes;
+  private final int pageSize;
+  private final int[] chunkSizes;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final CacheMetrics metrics = new CacheMetrics();
+  private final Map<K, Slot<K>> index = new HashMap<>();
+  /** least recently used entry first, guarded by the lock */
+  private final Slot<K> head = new Slot<>(null, null, 0, 0);
+  private final List<Page> pages = new ArrayList<>();
+  /** per size class, pages that may have a free chunk; stale pages are skipped */
+  private final ArrayDeque<Page>[] partialPages;
+  /** pages that may have no used chunk; stale pages are skipped */
+  private final ArrayDeque<Page> emptyPages = new ArrayDeque<>();
+  private long valueBytes;
+  private long evictionCount;
+  private boolean closed;
+
+  /**
+   * Creates a cache holding at most the given number of bytes in 1 MB pages.
+   *
+   * @param maximumBytes the maximum off-heap memory to allocate
+   */
+  public OffHeapCache(long maximumBytes) {
+    this(maximumBytes, DEFAULT_PAGE_SIZE);
+  }
+
+  /**
+   * Creates a cache holding at most the given number of bytes.
+   *
+   * @param maximumBytes the maximum off-heap memory to allocate
+   * @param pageSize the size of each direct buffer, also the largest value that can be stored
+   */
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  public OffHeapCache(long maximumBytes, int pageSize) {
+    if (pageSize < MIN_CHUNK_SIZE) {
+      throw new IllegalArgumentException("pageSize must be at least 64");
+    }
+    if (maximumBytes < pageSize) {
+      throw new IllegalArgumentException(
+        "maximumBytes must be at least one page: " + maximumBytes
+      );
+    }
+    this.maximumBytes = maximumBytes;
+    this.pageSize = pageSize;
+    List<Integer> sizes = new ArrayList<>();
+    for (
+      long size = MIN_CHUNK_SIZE;
+      size < pageSize;
+      size = (long) Math.ceil(size * GROWTH_FACTOR / 8) * 8
+    ) {
+      sizes.add((int) size);
+    }
+    sizes.add(pageSize);
+    this.chunkSizes = sizes.stream().mapToInt(Integer::intValue).toArray();
+    this.partialPages = new ArrayDeque[chunkSizes.length];
+    for (int i = 0; i < chunkSizes.length; i++) {
+      partialPages[i] = new ArrayDeque<>();
+    }
+    head.previous = head;
+    head.next = head;
+  }
+
+  /**
+   * Copies the value off heap and associates it with the key, evicting least
+   * recently used entries if there is not enough memory. If the value cannot
+   * be stored, any value previously cached for the key is discarded.
+   *
+   * @param key the key with which the specified value is to be associated
+   * @param value the serialized value
+   * @return true if the value was stored, false if it is larger than a page or
+   *     every chunk it could use is held by an open {@link OffHeapValue}
+   */
+  public boolean put(K key, byte[] value) {
+    return put(key, ByteBuffer.wrap(value));
+  }
+
+  /**
+   * Copies the remaining bytes of the buffer off heap and associates them
+   * with the key, without changing the buffer's position.
+   *
+   * @param key the key with which the specified value is to be associated
+   * @param value the serialized value
+   * @return true if the value was stored, see {@link #put(Object, byte[])}
+   */
+  public boolean put(K key, ByteBuffer value) {
+    Objects.requireNonNull(key, "key");
+    int length = value.remaining();
+    if (length > pageSize) {
+      invalidate(key);
+      return false;
+    }
+    int sizeClass = sizeClass(length);
+    Slot<K> slot;
+    lock.lock();
+    try {
+      checkOpen();
+      slot = allocate(key, sizeClass, length);
+      if (slot == null) {
+        remove(key);
+        return false;
+      }
+    } finally {
+      lock.unlock();
+    }
+    // the chunk is not visible to readers yet, so the copy needs no lock
+    slot.page.buffer.put(slot.offset, value, value.position(), length);
+    lock.lock();
+    try {
+      if (closed) {
+        return false;
+      }
+      Slot<K> previous = index.put(key, slot);
+      if (previous != null) {
+        unlink(previous);
+      }
+      linkLast(slot);
+      valueBytes += length;
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns a handle reading the value in place, or null if the key is not
+   * cached. The handle must be closed once the value has been read.
+   *
+   * @param key the key whose associated value is to be returned
+   * @return an open handle on the value, or null if not present
+   */
+  public OffHeapValue get(K key) {
+    lock.lock();
+    try {
+      Slot<K> slot = index.get(key);
+      if (slot == null) {
+        metrics.recordMisses(1);
+        return null;
+      }
+      metrics.recordHits(1);
+      // move to the most recently used end
+      unlinkFromOrder(slot);
+      linkLast(slot);
+      slot.references++;
+      return new OffHeapValue(
+        slot.page.buffer.slice(slot.offset, slot.length).asReadOnlyBuffer(),
+        () -> release(slot)
+      );
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns whether the key is cached, without changing the eviction order.
+   *
+   * @param key the key to look up
+   * @return true if a value is cached for the key
+   */
+  public boolean containsKey(K key) {
+    lock.lock();
+    try {
+      return index.containsKey(key);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Discards any cached value for the key. Open handles on it stay readable.
+   *
+   * @param key the key whose mapping is to be removed from the cache
+   * @return true if a value was cached for the key
+   */
+  public boolean invalidate(K key) {
+    lock.lock();
+    try {
+      return remove(key);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Discards all entries in the cache. Open handles stay readable.
+   */
+  public void invalidateAll() {
+    lock.lock();
+    try {
+      for (Slot<K> slot : index.values()) {
+        unlink(slot);
+      }
+      index.clear();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of entries in this cache.
+   *
+   * @return the number of entries in this cache
+   */
+  public long estimatedSize() {
+    lock.lock();
+    try {
+      return index.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the total length of the cached values.
+   *
+   * @return the number of value bytes held by the cache
+   */
+  public long weightedSize() {
+    lock.lock();
+    try {
+      return valueBytes;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the off-heap memory allocated so far, which never exceeds the maximum.
+   *
+   * @return the number of bytes in allocated pages
+   */
+  public long allocatedBytes() {
+    lock.lock();
+    try {
+      return (long) pages.size() * pageSize;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of entries evicted to make room for new values.
+   *
+   * @return the number of evicted entries
+   */
+  public long evictionCount() {
+    lock.lock();
+    try {
+      return evictionCount;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Publishes the statistics of this cache to the registry, tagged with the
+   * given cache name; see {@link CacheMetrics} for the meters. The weighted
+   * size is the number of value bytes, and there are no loads to record.
+   *
+   * @param registry the registry to publish to
+   * @param name the name of this cache
+   */
+  public void registerMetrics(MeterRegistry registry, String name) {
+    metrics.bindTo(
+      registry,
+      name,
+      this,
+      OffHeapCache::estimatedSize,
+      OffHeapCache::weightedSize
+    );
+  }
+
+  /**
+   * Discards all entries and drops the pages. The memory is returned to the
+   * operating system when the buffers are garbage collected, which also
+   * waits for the open handles.
+   */
+  @Override
+  public void close() {
+    lock.lock();
+    try {
+      invalidateAll();
+      closed = true;
+      pages.clear();
+      emptyPages.clear();
+      for (ArrayDeque<Page> partial : partialPages) {
+        partial.clear();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void checkOpen() {
+    if (closed) {
+      throw new IllegalStateException("cache is closed");
+    }
+  }
+
+  private int sizeClass(int length) {
+    int low = 0;
+    int high = chunkSizes.length - 1;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (chunkSizes[middle] < length) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Reserves a chunk of the size class, allocating a page or evicting
+   * entries if necessary. Must hold the lock.
+   */
+  private Slot<K> allocate(K key, int sizeClass, int length) {
+    Slot<K> candidate = head.next;
+    int scanned = 0;
+    boolean reassigned = false;
+    while (true) {
+      ArrayDeque<Page> partial = partialPages[sizeClass];
+      Page page;
+      while ((page = partial.peek()) != null) {
+        if (page.sizeClass == sizeClass && page.freeCount > 0) {
+          Slot<K> slot = new Slot<>(key, page, page.take(), length);
+          page.owners[slot.offset / page.chunkSize] = slot;
+          return slot;
+        }
+        partial.poll();
+        if (page.partialClass == sizeClass) {
+          page.partialClass = -1;
+        }
+      }
+      page = takeEmptyPage();
+      long allocated = (long) pages.size() * pageSize;
+      if (page == null && allocated + pageSize <= maximumBytes) {
+        page = new Page(ByteBuffer.allocateDirect(pageSize));
+        pages.add(page);
+      }
+      if (page != null) {
+        page.format(sizeClass, chunkSizes[sizeClass], pageSize);
+        addPartial(page);
+        continue;
+      }
+      // evict the least recently used entry of the class, freeing a chunk
+      while (
+        candidate != head &&
+        scanned < EVICTION_SCAN_LIMIT &&
+        candidate.page.sizeClass != sizeClass
+      ) {
+        candidate = candidate.next;
+        scanned++;
+      }
+      if (candidate != head && scanned < EVICTION_SCAN_LIMIT) {
+        Slot<K> victim = candidate;
+        candidate = candidate.next;
+        scanned++;
+        evict(victim);
+        continue;
+      }
+      // the class has no old entries, take a page from another class
+      Page victim = reassigned ? null : leastUsedPage(sizeClass);
+      if (victim == null) {
+        // the remaining chunks are held by open handles
+        return null;
+      }
+      reassigned = true;
+      candidate = head;
+      for (Slot<?> owner : victim.owners) {
+        // entries that are only held by open handles stay until closed
+        if (owner != null && owner.previous != null) {
+          @SuppressWarnings("unchecked")
+          Slot<K> slot = (Slot<K>) owner;
+          evict(slot);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the page of another size class with the fewest used chunks, or
+   * null if there is none. Must hold the lock.
+   */
+  private Page leastUsedPage(int sizeClass) {
+    Page leastUsed = null;
+    for (Page page : pages) {
+      if (
+        page.sizeClass != sizeClass &&
+        (leastUsed == null || page.usedCount < leastUsed.usedCount)
+      ) {
+        leastUsed = page;
+      }
+    }
+    return leastUsed;
+  }
+
+  private void evict(Slot<K> slot) {
+    index.remove(slot.key);
+    unlink(slot);
+    evictionCount++;
+    metrics.recordEviction(slot.length, EvictionCause.SIZE);
+  }
+
+  private Page takeEmptyPage() {
+    Page page;
+    while ((page = emptyPages.poll()) != null) {
+      page.inEmptyPages = false;
+      if (page.usedCount == 0) {
+        return page;
+      }
+    }
+    return null;
+  }
+
+  private void addPartial(Page page) {
+    if (page.partialClass != page.sizeClass) {
+      page.partialClass = page.sizeClass;
+      partialPages[page.sizeClass].add(page);
+    }
+  }
+
+  private void release(Slot<K> slot) {
+    lock.lock();
+    try {
+      if (--slot.references == 0) {
+        free(slot);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Removes the key's entry, if any. Must hold the lock.
+   */
+  private boolean remove(K key) {
+    Slot<K> slot = index.remove(key);
+    if (slot == null) {
+      return false;
+    }
+    unlink(slot);
+    return true;
+  }
+
+  /**
+   * Removes a slot from the eviction order and drops the cache's reference
+   * to it. Must hold the lock.
+   */
+  private void unlink(Slot<K> slot) {
+    unlinkFromOrder(slot);
+    valueBytes -= slot.length;
+    if (--slot.references == 0) {
+      free(slot);
+    }
+  }
+
+  private void free(Slot<K> slot) {
+    Page page = slot.page;
+    if (closed || page.sizeClass < 0) {
+      return;
+    }
+    page.give(slot.offset);
+    addPartial(page);
+    if (page.usedCount == 0 && !page.inEmptyPages) {
+      page.inEmptyPages = true;
+      emptyPages.add(page);
+    }
+  }
+
+  private void linkLast(Slot<K> slot) {
+    slot.previous = head.previous;
+    slot.next = head;
+    head.previous.next = slot;
+    head.previous = slot;
+  }
+
+  private void unlinkFromOrder(Slot<K> slot) {
+    if (slot.previous != null) {
+      slot.previous.next = slot.next;
+      slot.next.previous = slot.previous;
+      slot.previous = null;
+      slot.next = null;
+    }
+  }
+
+  /**
+   * A direct buffer cut into chunks of one size class, with a stack of the
+   * free chunk offsets and the slot using each chunk.
+   */
+  private static class Page {
+
+    final ByteBuffer buffer;
+    int sizeClass = -1;
+    int chunkSize;
+    int[] free;
+    Slot<?>[] owners;
+    int freeCount;
+    int usedCount;
+    /** the size class whose partial queue holds this page, -1 if none */
+    int partialClass = -1;
+    boolean inEmptyPages;
+
+    Page(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    void format(int sizeClass, int chunkSize, int pageSize) {
+      this.sizeClass = sizeClass;
+      this.chunkSize = chunkSize;
+      int chunks = pageSize / chunkSize;
+      free = new int[chunks];
+      owners = new Slot<?>[chunks];
+      for (int i = 0; i < chunks; i++) {
+        // hand out the chunks from the start of the page
+        free[i] = (chunks - 1 - i) * chunkSize;
+      }
+      freeCount = chunks;
+      usedCount = 0;
+    }
+
+    int take() {
+      usedCount++;
+      return free[--freeCount];
+    }
+
+    void give(int offset) {
+      usedCount--;
+      free[freeCount++] = offset;
+      owners[offset / chunkSize] = null;
+    }
+  }
+
+  /**
+   * The index entry of a value, linked in the eviction order. The references
+   * count the cache itself and every open handle.
+   */
+  private static class Slot<K> {
+
+    final K key;
+    final Page page;
+    final int offset;
+    final int length;
+    int references = 1;
+    Slot<K> previous;
+    Slot<K> next;
+
+    Slot(K key, Page page, int offset, int length) {
+      this.key = key;
+      this.page = page;
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+}
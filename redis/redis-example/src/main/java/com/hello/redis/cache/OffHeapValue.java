@@ -0,0 +1,102 @@
+package com.hello.redis.cache;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * A handle on a value stored in an {@link OffHeapCache}, reading it in place.
+ * The memory of the value is not reused until the handle is closed, so it
+ * should be used in a try-with-resources block and the buffer and streams it
+ * returns must not be used after that.
+ */
+public final class OffHeapValue implements AutoCloseable {
+
+  private final ByteBuffer buffer;
+  private Runnable release;
+
+  OffHeapValue(ByteBuffer buffer, Runnable release) {
+    this.buffer = buffer;
+    this.release = release;
+  }
+
+  /**
+   * Returns the length of the value in bytes.
+   *
+   * @return the length of the value
+   */
+  public int length() {
+    return buffer.capacity();
+  }
+
+  /**
+   * Returns a read-only view of the value, positioned at its start.
+   *
+   * @return a new read-only buffer over the off-heap bytes
+   */
+  public ByteBuffer buffer() {
+    return buffer.duplicate();
+  }
+
+  /**
+   * Returns a stream reading the value without copying it to the heap first.
+   *
+   * @return a new input stream over the off-heap bytes
+   */
+  public InputStream inputStream() {
+    ByteBuffer source = buffer();
+    return new InputStream() {
+      @Override
+      public int read() {
+        return source.hasRemaining() ? source.get() & 0xFF : -1;
+      }
+
+      @Override
+      public int read(byte[] bytes, int offset, int length) {
+        if (length == 0) {
+          return 0;
+        }
+        if (!source.hasRemaining()) {
+          return -1;
+        }
+        int count = Math.min(length, source.remaining());
+        source.get(bytes, offset, count);
+        return count;
+      }
+
+      @Override
+      public int available() {
+        return source.remaining();
+      }
+
+      @Override
+      public long skip(long count) {
+        int skipped = (int) Math.min(Math.max(count, 0), source.remaining());
+        source.position(source.position() + skipped);
+        return skipped;
+      }
+    };
+  }
+
+  /**
+   * Copies the value to a new array.
+   *
+   * @return the bytes of the value
+   */
+  public byte[] toByteArray() {
+    byte[] bytes = new byte[buffer.capacity()];
+    buffer.get(0, bytes);
+    return bytes;
+  }
+
+  /**
+   * Lets the cache reuse the memory of the value. Closing twice has no effect.
+   */
+  @Override
+  public void close() {
+    Runnable release = this.release;
+    if (release != null) {
+      this.release = null;
+      release.run();
+    }
+  }
+}
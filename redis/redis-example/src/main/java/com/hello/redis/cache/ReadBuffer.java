@@ -0,0 +1,87 @@
+package com.hello.redis.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * A lossy, striped buffer of reads waiting to be replayed against the
+ * eviction policy.
+ *
+ * <p>Readers pick a stripe by thread id and claim a slot with a single CAS;
+ * when the stripe is full or the CAS loses a race the read is dropped, which
+ * only makes the policy's view of popularity slightly less precise. Readers
+ * never block. A single drainer, holding the cache's maintenance lock,
+ * replays the buffered entries.
+ *
+ * @param <E> the type of buffered elements
+ */
+final class ReadBuffer<E> {
+
+  static final int STRIPE_SIZE = 64;
+  private static final int STRIPE_MASK = STRIPE_SIZE - 1;
+  private static final int STRIPES = Math.max(
+    4,
+    Integer.highestOneBit(Runtime.getRuntime().availableProcessors() - 1) << 1
+  );
+
+  private final Stripe<E>[] stripes;
+
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  ReadBuffer() {
+    stripes = new Stripe[STRIPES];
+    for (int i = 0; i < STRIPES; i++) {
+      stripes[i] = new Stripe<>();
+    }
+  }
+
+  /**
+   * Records a read.
+   *
+   * @return true if the stripe is full and should be drained
+   */
+  boolean offer(E element) {
+    @SuppressWarnings("deprecation")
+    int index = (int) Thread.currentThread().getId() & (STRIPES - 1);
+    Stripe<E> stripe = stripes[index];
+    long tail = stripe.writes.get();
+    long size = tail - stripe.reads;
+    if (size >= STRIPE_SIZE) {
+      return true;
+    }
+    if (stripe.writes.compareAndSet(tail, tail + 1)) {
+      stripe.buffer.lazySet((int) tail & STRIPE_MASK, element);
+    }
+    return size + 1 >= STRIPE_SIZE;
+  }
+
+  /**
+   * Replays the buffered reads. Must be called by a single thread at a time.
+   */
+  void drainTo(Consumer<E> consumer) {
+    for (Stripe<E> stripe : stripes) {
+      long head = stripe.reads;
+      long tail = stripe.writes.get();
+      for (; head < tail; head++) {
+        int index = (int) head & STRIPE_MASK;
+        E element = stripe.buffer.get(index);
+        if (element == null) {
+          // the reader claimed the slot but has not published it yet
+          break;
+        }
+        stripe.buffer.lazySet(index, null);
+        consumer.accept(element);
+      }
+      stripe.reads = head;
+    }
+  }
+
+  private static final class Stripe<E> {
+
+    private final AtomicReferenceArray<E> buffer = new AtomicReferenceArray<>(
+      STRIPE_SIZE
+    );
+    private final AtomicLong writes = new AtomicLong();
+    private volatile long reads;
+  }
+}
@@ -0,0 +1,162 @@
+package com.hello.redis.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * A {@link LocalCache} keeping a bounded number of deserialized values on the
+ * heap in front of an {@link OffHeapCache} holding their serialized form.
+ *
+ * <p>Values are written through to both tiers. A read that misses the heap
+ * tier deserializes the value straight from off-heap memory and puts it back
+ * on the heap, so the heap tier can be small and only hold the hot values
+ * while the bulk of the data stays out of the old generation. Values that do
+ * not fit in an off-heap page are only kept on the heap.
+ *
+ * @param <K> the type of keys maintained by this cache
+ * @param <V> the type of mapped values
+ */
+public class TieredCache<K, V> implements LocalCache<K, V> {
+
+  private final LocalCache<K, V> heap;
+  private final OffHeapCache<K> offHeap;
+  private final Function<? super V, byte[]> serializer;
+  private final Function<InputStream, ? extends V> deserializer;
+
+  /**
+   * Creates a tiered cache from its two tiers.
+   *
+   * @param heap the on-heap tier, typically a small {@link CaffeineCache}
+   * @param offHeap the off-heap tier
+   * @param serializer converts a value to the bytes stored off heap
+   * @param deserializer reads a value from the off-heap bytes
+   */
+  public TieredCache(
+    LocalCache<K, V> heap,
+    OffHeapCache<K> offHeap,
+    Function<? super V, byte[]> serializer,
+    Function<InputStream, ? extends V> deserializer
+  ) {
+    this.heap = Objects.requireNonNull(heap, "heap");
+    this.offHeap = Objects.requireNonNull(offHeap, "offHeap");
+    this.serializer = Objects.requireNonNull(serializer, "serializer");
+    this.deserializer = Objects.requireNonNull(deserializer, "deserializer");
+  }
+
+  @Override
+  public V get(K key, Function<K, V> mappingFunction) {
+    return heap.get(
+      key,
+      k -> {
+        V value = readOffHeap(k);
+        if (value == null) {
+          value = mappingFunction.apply(k);
+          writeOffHeap(k, value);
+        }
+        return value;
+      }
+    );
+  }
+
+  @Override
+  public Map<K, V> getAll(
+    Iterable<? extends K> keys,
+    Function<Set<K>, Map<K, V>> mappingFunction
+  ) {
+    return heap.getAll(
+      keys,
+      missing -> {
+        Map<K, V> values = new HashMap<>();
+        Set<K> load = new LinkedHashSet<>();
+        for (K key : missing) {
+          V value = readOffHeap(key);
+          if (value != null) {
+            values.put(key, value);
+          } else {
+            load.add(key);
+          }
+        }
+        if (!load.isEmpty()) {
+          Map<K, V> loaded = mappingFunction.apply(load);
+          loaded.forEach(this::writeOffHeap);
+          values.putAll(loaded);
+        }
+        return values;
+      }
+    );
+  }
+
+  @Override
+  public V getIfPresent(K key) {
+    V value = heap.getIfPresent(key);
+    if (value == null) {
+      value = readOffHeap(key);
+      if (value != null) {
+        heap.put(key, value);
+      }
+    }
+    return value;
+  }
+
+  @Override
+  public void put(K key, V value) {
+    writeOffHeap(key, value);
+    heap.put(key, value);
+  }
+
+  @Override
+  public void invalidate(K key) {
+    offHeap.invalidate(key);
+    heap.invalidate(key);
+  }
+
+  @Override
+  public void invalidateAll() {
+    offHeap.invalidateAll();
+    heap.invalidateAll();
+  }
+
+  /**
+   * Returns the number of entries in the off-heap tier, which holds every
+   * value written through this cache unless it was evicted or too large.
+   */
+  @Override
+  public long estimatedSize() {
+    return offHeap.estimatedSize();
+  }
+
+  /**
+   * Registers the heap tier under the given name and the off-heap tier under
+   * the name with an {@code .off-heap} suffix. Loads of the heap tier include
+   * the reads that were served by the off-heap tier.
+   *
+   * @param registry the registry to publish to
+   * @param name the name of this cache
+   */
+  @Override
+  public void registerMetrics(MeterRegistry registry, String name) {
+    heap.registerMetrics(registry, name);
+    offHeap.registerMetrics(registry, name + ".off-heap");
+  }
+
+  private V readOffHeap(K key) {
+    try (OffHeapValue value = offHeap.get(key)) {
+      return value == null ? null : deserializer.apply(value.inputStream());
+    }
+  }
+
+  private void writeOffHeap(K key, V value) {
+    if (value == null) {
+      offHeap.invalidate(key);
+    } else {
+      // a value that cannot be stored also drops the older one
+      offHeap.put(key, serializer.apply(value));
+    }
+  }
+}
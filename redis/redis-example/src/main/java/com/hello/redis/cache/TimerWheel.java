@@ -0,0 +1,170 @@
+package com.hello.redis.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * A hierarchical timer wheel that expires cache entries in amortized O(1).
+ *
+ * <p>Each level has 64 buckets. A bucket on level {@code i} covers
+ * {@code 2^(6 * i)} milliseconds, so the levels span roughly 64ms, 4s, 4.4m,
+ * 4.7h and 12 days. An entry is placed on the lowest level whose span covers
+ * its remaining time to live. When the window of a coarse bucket starts, its
+ * entries cascade down to a finer level; when a millisecond bucket ends, its
+ * entries expire. Each entry therefore moves at most once per level and
+ * expires within a millisecond of its deadline. Entries whose deadline lies
+ * beyond the last level wrap around and are rescheduled when their bucket is
+ * reached.
+ *
+ * <p>This class is not thread-safe; callers must hold a lock.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+final class TimerWheel<K, V> {
+
+  private static final int BUCKET_BITS = 6;
+  private static final int BUCKETS = 1 << BUCKET_BITS;
+  private static final int[] SHIFTS = { 0, 6, 12, 18, 24 };
+
+  private final CacheEntry<K, V>[][] wheel;
+  private long currentTime;
+
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  TimerWheel(long now) {
+    this.currentTime = now;
+    this.wheel = new CacheEntry[SHIFTS.length][BUCKETS];
+    for (CacheEntry<K, V>[] buckets : wheel) {
+      for (int i = 0; i < buckets.length; i++) {
+        CacheEntry<K, V> sentinel = new CacheEntry<>(null, null, 0);
+        sentinel.previousInWheel = sentinel;
+        sentinel.nextInWheel = sentinel;
+        buckets[i] = sentinel;
+      }
+    }
+  }
+
+  /**
+   * Adds the entry to the bucket matching its expiration time.
+   *
+   * @param entry an entry that is not currently scheduled
+   */
+  void schedule(CacheEntry<K, V> entry) {
+    link(findBucket(entry.getExpirationTime()), entry);
+  }
+
+  /**
+   * Removes the entry from the wheel if it is scheduled.
+   *
+   * @param entry the entry to remove
+   */
+  void deschedule(CacheEntry<K, V> entry) {
+    if (entry.nextInWheel != null) {
+      unlink(entry);
+    }
+  }
+
+  /**
+   * Advances the wheel to the given time, passing every entry whose
+   * expiration time has passed to the consumer.
+   *
+   * @param now the current time in milliseconds
+   * @param expired receives the expired entries
+   */
+  void advance(long now, Consumer<CacheEntry<K, V>> expired) {
+    long previousTime = currentTime;
+    if (now <= previousTime) {
+      return;
+    }
+    currentTime = now;
+    // coarse levels first, so cascaded entries are handled by finer levels
+    for (int level = SHIFTS.length - 1; level >= 0; level--) {
+      long previousTicks = previousTime >>> SHIFTS[level];
+      long delta = (now >>> SHIFTS[level]) - previousTicks;
+      if (delta <= 0) {
+        continue;
+      }
+      // level 0 expires buckets whose millisecond has ended; coarser levels
+      // cascade a bucket as soon as its window starts
+      long firstTick = level == 0 ? previousTicks : previousTicks + 1;
+      expire(level, firstTick, delta, expired);
+    }
+  }
+
+  /**
+   * Removes every entry from the wheel.
+   */
+  void clear() {
+    for (CacheEntry<K, V>[] buckets : wheel) {
+      for (CacheEntry<K, V> sentinel : buckets) {
+        CacheEntry<K, V> entry = sentinel.nextInWheel;
+        while (entry != sentinel) {
+          CacheEntry<K, V> next = entry.nextInWheel;
+          entry.previousInWheel = null;
+          entry.nextInWheel = null;
+          entry = next;
+        }
+        sentinel.previousInWheel = sentinel;
+        sentinel.nextInWheel = sentinel;
+      }
+    }
+  }
+
+  private void expire(
+    int level,
+    long firstTick,
+    long delta,
+    Consumer<CacheEntry<K, V>> expired
+  ) {
+    CacheEntry<K, V>[] buckets = wheel[level];
+    int count = (int) Math.min(delta, BUCKETS);
+    for (int i = 0; i < count; i++) {
+      int index = (int) ((firstTick + i) & (BUCKETS - 1));
+      CacheEntry<K, V> sentinel = buckets[index];
+      CacheEntry<K, V> entry = sentinel.nextInWheel;
+      // detach the whole bucket first, entries may be rescheduled into it
+      sentinel.previousInWheel = sentinel;
+      sentinel.nextInWheel = sentinel;
+      while (entry != sentinel) {
+        CacheEntry<K, V> next = entry.nextInWheel;
+        entry.previousInWheel = null;
+        entry.nextInWheel = null;
+        if (entry.isExpired(currentTime)) {
+          expired.accept(entry);
+        } else {
+          schedule(entry);
+        }
+        entry = next;
+      }
+    }
+  }
+
+  private CacheEntry<K, V> findBucket(long expirationTime) {
+    long time = Math.max(expirationTime, currentTime);
+    long delta = time - currentTime;
+    int level = 0;
+    while (
+      level < SHIFTS.length - 1 &&
+      delta >= 1L << (SHIFTS[level] + BUCKET_BITS)
+    ) {
+      level++;
+    }
+    return wheel[level][(int) ((time >>> SHIFTS[level]) & (BUCKETS - 1))];
+  }
+
+  private static <K, V> void link(
+    CacheEntry<K, V> sentinel,
+    CacheEntry<K, V> entry
+  ) {
+    entry.previousInWheel = sentinel.previousInWheel;
+    entry.nextInWheel = sentinel;
+    sentinel.previousInWheel.nextInWheel = entry;
+    sentinel.previousInWheel = entry;
+  }
+
+  private static <K, V> void unlink(CacheEntry<K, V> entry) {
+    entry.previousInWheel.nextInWheel = entry.nextInWheel;
+    entry.nextInWheel.previousInWheel = entry.previousInWheel;
+    entry.previousInWheel = null;
+    entry.nextInWheel = null;
+  }
+}
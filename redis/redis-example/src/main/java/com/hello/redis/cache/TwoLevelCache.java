@@ -0,0 +1,255 @@
+package com.hello.redis.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import org.redisson.api.RBucket;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+
+/**
+ * A two-level cache with a {@link CaffeineCache} in each JVM in front of a
+ * shared Redis cache accessed through Redisson.
+ *
+ * <p>A read tries the local cache first, then the Redis bucket
+ * {@code <name>:<key>}, and only then the loader; values found in Redis or
+ * loaded are written back to the levels that missed them. Concurrent misses
+ * on the same key in one JVM share a single Redis read and load.
+ *
+ * <p>Every write or invalidation is published on the topic
+ * {@code <name>:invalidations}, and every instance with the same name drops
+ * its local copy of the key when it receives it, so the local caches do not
+ * keep serving a value that was changed by another JVM. The messages are
+ * delivered asynchronously and a local load racing with one may still store
+ * the old value, so the local cache should expire entries after a short time
+ * to bound how long such a value can be served.
+ *
+ * @param <K> the type of keys maintained by this cache
+ * @param <V> the type of mapped values
+ */
+public class TwoLevelCache<K, V> implements AutoCloseable {
+
+  private final String name;
+  private final CaffeineCache<K, V> local;
+  private final RedissonClient redisson;
+  private final Duration remoteTtl;
+  private final RTopic topic;
+  private final int listenerId;
+  /** identifies this instance so that it ignores its own invalidations */
+  private final String origin = UUID.randomUUID().toString();
+
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder localMisses = new LongAdder();
+  private final LongAdder remoteHits = new LongAdder();
+  private final CacheMetrics metrics = new CacheMetrics(
+    this::hitCount,
+    this::missCount
+  );
+
+  /**
+   * Creates a two-level cache and subscribes to its invalidation topic.
+   *
+   * @param name the prefix of the Redis keys and of the invalidation topic
+   * @param local the local cache, which should expire entries after a short time
+   * @param redisson the Redisson client used for the shared level
+   * @param remoteTtl the time to live of the values written to Redis
+   */
+  public TwoLevelCache(
+    String name,
+    CaffeineCache<K, V> local,
+    RedissonClient redisson,
+    Duration remoteTtl
+  ) {
+    this.name = Objects.requireNonNull(name, "name");
+    this.local = Objects.requireNonNull(local, "local");
+    this.redisson = Objects.requireNonNull(redisson, "redisson");
+    this.remoteTtl = Objects.requireNonNull(remoteTtl, "remoteTtl");
+    this.topic = redisson.getTopic(name + ":invalidations");
+    this.listenerId =
+    topic.addListener(
+      Invalidation.class,
+      (channel, message) -> onInvalidation(message)
+    );
+  }
+
+  /**
+   * Returns the value associated with the given key from the local cache or
+   * Redis, or computes it using the given function and stores it in both.
+   *
+   * @param key the key whose associated value is to be returned
+   * @param mappingFunction the function to compute a value
+   * @return the current (existing or computed) value associated with the specified key
+   */
+  public V get(K key, Function<K, V> mappingFunction) {
+    requests.increment();
+    return local.get(
+      key,
+      k -> {
+        localMisses.increment();
+        RBucket<V> bucket = bucket(k);
+        V value = bucket.get();
+        if (value != null) {
+          remoteHits.increment();
+          return value;
+        }
+        long start = System.nanoTime();
+        try {
+          value = mappingFunction.apply(k);
+        } catch (RuntimeException | Error ex) {
+          metrics.recordLoadFailure(System.nanoTime() - start);
+          throw ex;
+        }
+        metrics.recordLoadSuccess(System.nanoTime() - start);
+        if (value != null) {
+          bucket.set(value, remoteTtl);
+        }
+        return value;
+      }
+    );
+  }
+
+  /**
+   * Stores the value in both levels and invalidates the key in the other JVMs.
+   *
+   * @param key the key with which the specified value is to be associated
+   * @param value the value to be associated with the specified key
+   */
+  public void put(K key, V value) {
+    bucket(key).set(value, remoteTtl);
+    local.put(key, value);
+    topic.publish(new Invalidation(origin, key));
+  }
+
+  /**
+   * Removes the key from both levels and invalidates it in the other JVMs.
+   *
+   * @param key the key whose mapping is to be removed from the cache
+   */
+  public void invalidate(K key) {
+    bucket(key).delete();
+    local.invalidate(key);
+    topic.publish(new Invalidation(origin, key));
+  }
+
+  /**
+   * Drops every entry from the local cache of every JVM. The values in Redis
+   * are kept and expire by their time to live.
+   */
+  public void invalidateAllLocal() {
+    local.invalidateAll();
+    topic.publish(new Invalidation(origin, null));
+  }
+
+  /**
+   * Returns the fraction of requests served by the local cache.
+   *
+   * @return the local hit ratio, 1.0 if there were no requests
+   */
+  public double localHitRatio() {
+    long count = requests.sum();
+    return count == 0 ? 1.0 : (double) (count - localMisses.sum()) / count;
+  }
+
+  /**
+   * Returns the fraction of local misses served by Redis without loading.
+   *
+   * @return the Redis hit ratio, 1.0 if there were no local misses
+   */
+  public double remoteHitRatio() {
+    long misses = localMisses.sum();
+    return misses == 0 ? 1.0 : (double) remoteHits.sum() / misses;
+  }
+
+  /**
+   * Returns the number of requests served by either cache level.
+   *
+   * @return the number of requests that did not call the loader
+   */
+  public long hitCount() {
+    return requests.sum() - localMisses.sum() + remoteHits.sum();
+  }
+
+  /**
+   * Returns the number of requests that called the loader.
+   *
+   * @return the number of requests that missed both levels
+   */
+  public long missCount() {
+    return localMisses.sum() - remoteHits.sum();
+  }
+
+  /**
+   * Publishes the statistics of this cache to the registry, tagged with the
+   * given cache name; see {@link CacheMetrics} for the meters. A hit is a
+   * request served by either level and a load is a call of the mapping
+   * function after both missed. The sizes are those of the local cache;
+   * register the local cache on its own for its evictions.
+   *
+   * @param registry the registry to publish to
+   * @param name the name of this cache
+   */
+  public void registerMetrics(MeterRegistry registry, String name) {
+    metrics.bindTo(
+      registry,
+      name,
+      local,
+      CaffeineCache::estimatedSize,
+      CaffeineCache::estimatedSize
+    );
+  }
+
+  /**
+   * Unsubscribes from the invalidation topic.
+   */
+  @Override
+  public void close() {
+    topic.removeListener(listenerId);
+  }
+
+  private RBucket<V> bucket(K key) {
+    return redisson.getBucket(name + ":" + key);
+  }
+
+  private void onInvalidation(Invalidation message) {
+    if (origin.equals(message.getOrigin())) {
+      return;
+    }
+    if (message.getKey() == null) {
+      local.invalidateAll();
+    } else {
+      @SuppressWarnings("unchecked")
+      K key = (K) message.getKey();
+      local.invalidate(key);
+    }
+  }
+
+  /**
+   * The message published when a key changes; a null key drops every entry.
+   */
+  public static class Invalidation implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String origin;
+    private Object key;
+
+    public Invalidation() {}
+
+    public Invalidation(String origin, Object key) {
+      this.origin = origin;
+      this.key = key;
+    }
+
+    public String getOrigin() {
+      return origin;
+    }
+
+    public Object getKey() {
+      return key;
+    }
+  }
+}
@@ -0,0 +1,192 @@
+package com.hello.redis.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * A size-based eviction policy using Window TinyLFU.
+ *
+ * <p>New entries enter a small LRU admission window holding 1% of the
+ * maximum weight. Entries pushed out of the window become candidates for the
+ * main space, a segmented LRU of a probation and a protected segment (80% of
+ * the main space). A candidate only stays if a {@link FrequencySketch}
+ * estimates it was used more often than the probation segment's least
+ * recently used entry, the victim; otherwise the candidate is evicted. Reads
+ * of a probation entry promote it to the protected segment, demoting the
+ * protected segment's least recently used entries when it is full. This keeps
+ * popular entries under scans and one-hit wonders that would flush a plain
+ * LRU.
+ *
+ * <p>This class is not thread-safe; callers must hold a lock.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+final class WindowTinyLfuPolicy<K, V> {
+
+  static final int NONE = 0;
+  static final int WINDOW = 1;
+  static final int PROBATION = 2;
+  static final int PROTECTED = 3;
+
+  private final long maximum;
+  private final long windowMaximum;
+  private final long protectedMaximum;
+  private final AccessOrderDeque<K, V> window = new AccessOrderDeque<>();
+  private final AccessOrderDeque<K, V> probation = new AccessOrderDeque<>();
+  private final AccessOrderDeque<K, V> protectedDeque = new AccessOrderDeque<>();
+  private final FrequencySketch sketch = new FrequencySketch();
+  private long windowWeight;
+  private long protectedWeight;
+  private long weightedSize;
+  private long entries;
+
+  /**
+   * @param maximum the maximum total weight of the entries
+   * @param weighted whether entries have individual weights; otherwise the
+   *     maximum is an entry count and sizes the frequency sketch up front
+   */
+  WindowTinyLfuPolicy(long maximum, boolean weighted) {
+    this.maximum = maximum;
+    this.windowMaximum = Math.max(1, maximum / 100);
+    this.protectedMaximum = (long) ((maximum - windowMaximum) * 0.8);
+    if (!weighted) {
+      sketch.ensureCapacity(maximum);
+    }
+  }
+
+  /**
+   * Adds a new entry to the admission window.
+   */
+  void onAdd(CacheEntry<K, V> entry) {
+    entries++;
+    sketch.ensureCapacity(entries);
+    sketch.increment(entry.getKey());
+    entry.queue = WINDOW;
+    window.addLast(entry);
+    windowWeight += entry.getWeight();
+    weightedSize += entry.getWeight();
+  }
+
+  /**
+   * Records a read of an entry that may have been removed since.
+   */
+  void onAccess(CacheEntry<K, V> entry) {
+    if (entry.queue == NONE) {
+      return;
+    }
+    sketch.increment(entry.getKey());
+    if (entry.queue == WINDOW) {
+      window.moveToBack(entry);
+    } else if (entry.queue == PROBATION) {
+      probation.remove(entry);
+      entry.queue = PROTECTED;
+      protectedDeque.addLast(entry);
+      protectedWeight += entry.getWeight();
+      demoteFromProtected();
+    } else {
+      protectedDeque.moveToBack(entry);
+    }
+  }
+
+  /**
+   * Removes an entry if it is still linked.
+   */
+  void onRemove(CacheEntry<K, V> entry) {
+    if (entry.queue == NONE) {
+      return;
+    }
+    if (entry.queue == WINDOW) {
+      window.remove(entry);
+      windowWeight -= entry.getWeight();
+    } else if (entry.queue == PROBATION) {
+      probation.remove(entry);
+    } else {
+      protectedDeque.remove(entry);
+      protectedWeight -= entry.getWeight();
+    }
+    entry.queue = NONE;
+    weightedSize -= entry.getWeight();
+    entries--;
+  }
+
+  /**
+   * Evicts entries until the total weight is within the maximum.
+   *
+   * @param evicted receives each entry after it was unlinked
+   */
+  void evict(Consumer<CacheEntry<K, V>> evicted) {
+    CacheEntry<K, V> candidate = null;
+    while (windowWeight > windowMaximum) {
+      CacheEntry<K, V> entry = window.peekFirst();
+      window.remove(entry);
+      windowWeight -= entry.getWeight();
+      entry.queue = PROBATION;
+      probation.addLast(entry);
+      if (candidate == null) {
+        candidate = entry;
+      }
+    }
+    while (weightedSize > maximum) {
+      CacheEntry<K, V> victim = probation.peekFirst();
+      if (victim == null) {
+        victim = protectedDeque.peekFirst();
+      }
+      if (victim == null) {
+        victim = window.peekFirst();
+      }
+      if (candidate == null || victim == candidate) {
+        if (victim == candidate) {
+          candidate = probation.next(candidate);
+        }
+        evict(victim, evicted);
+        continue;
+      }
+      if (
+        candidate.getWeight() > maximum ||
+        sketch.frequency(candidate.getKey()) <=
+        sketch.frequency(victim.getKey())
+      ) {
+        CacheEntry<K, V> next = probation.next(candidate);
+        evict(candidate, evicted);
+        candidate = next;
+      } else {
+        evict(victim, evicted);
+      }
+    }
+  }
+
+  /**
+   * Unlinks every entry, keeping the collected frequencies.
+   */
+  void clear() {
+    window.clear();
+    probation.clear();
+    protectedDeque.clear();
+    windowWeight = 0;
+    protectedWeight = 0;
+    weightedSize = 0;
+    entries = 0;
+  }
+
+  long weightedSize() {
+    return weightedSize;
+  }
+
+  private void demoteFromProtected() {
+    while (protectedWeight > protectedMaximum) {
+      CacheEntry<K, V> entry = protectedDeque.peekFirst();
+      protectedDeque.remove(entry);
+      protectedWeight -= entry.getWeight();
+      entry.queue = PROBATION;
+      probation.addLast(entry);
+    }
+  }
+
+  private void evict(
+    CacheEntry<K, V> entry,
+    Consumer<CacheEntry<K, V>> evicted
+  ) {
+    onRemove(entry);
+    evicted.accept(entry);
+  }
+}
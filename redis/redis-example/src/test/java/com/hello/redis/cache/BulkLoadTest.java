@@ -0,0 +1,153 @@
+package com.hello.redis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that getAll serves the cached keys from memory and loads the missing
+ * ones with a single call of the bulk loader.
+ */
+public class BulkLoadTest {
+
+  private final List<Set<String>> calls = new ArrayList<>();
+
+  /** a bulk loader that has no value for keys starting with "absent" */
+  private final Function<Set<String>, Map<String, String>> bulkLoader = keys -> {
+    calls.add(Set.copyOf(keys));
+    Map<String, String> values = new HashMap<>();
+    for (String key : keys) {
+      if (!key.startsWith("absent")) {
+        values.put(key, "loaded-" + key);
+      }
+    }
+    return values;
+  };
+
+  @Test
+  public void testCustomConcurrentMapCache() {
+    CustomConcurrentMapCache<String, String> cache =
+      new CustomConcurrentMapCache<>(TimeUnit.MINUTES.toMillis(1));
+    assertBulkLoad(cache::put, cache::getAll);
+  }
+
+  @Test
+  public void testGuavaLoadingCache() {
+    GuavaLoadingCache<String, String> cache = new GuavaLoadingCache<>(key -> {
+      throw new AssertionError("single key loader used for " + key);
+    });
+    assertBulkLoad(cache::put, cache::getAll);
+  }
+
+  @Test
+  public void testCaffeineCache() {
+    CaffeineCache<String, String> cache = new CaffeineCache<>();
+    assertBulkLoad(cache::put, cache::getAll);
+  }
+
+  /**
+   * Single key loads of CustomConcurrentMapCache that run during a bulk load
+   * wait for it instead of calling their own loader.
+   */
+  @Test
+  public void testGetWaitsForBulkLoad() throws Exception {
+    CustomConcurrentMapCache<String, String> cache =
+      new CustomConcurrentMapCache<>(TimeUnit.MINUTES.toMillis(1));
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger singleLoads = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<Map<String, String>> bulk = executor.submit(() ->
+        cache.getAll(
+          List.of("a", "absent"),
+          keys -> {
+            loading.countDown();
+            await(release);
+            return bulkLoader.apply(keys);
+          }
+        )
+      );
+      assertTrue(loading.await(10, TimeUnit.SECONDS));
+      Future<String> single = executor.submit(() ->
+        cache.get(
+          "a",
+          k -> {
+            singleLoads.incrementAndGet();
+            return "single-" + k;
+          }
+        )
+      );
+      Future<String> absent = executor.submit(() ->
+        cache.get("absent", k -> "single-" + k)
+      );
+      release.countDown();
+
+      assertEquals(Map.of("a", "loaded-a"), bulk.get(10, TimeUnit.SECONDS));
+      assertEquals("loaded-a", single.get(10, TimeUnit.SECONDS));
+      assertEquals(0, singleLoads.get());
+      // the bulk load had no value for this key, so the caller loads it
+      assertEquals("single-absent", absent.get(10, TimeUnit.SECONDS));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private void assertBulkLoad(
+    BiConsumer<String, String> put,
+    BiFunction<
+      List<String>,
+      Function<Set<String>, Map<String, String>>,
+      Map<String, String>
+    > getAll
+  ) {
+    put.accept("b", "cached-b");
+    put.accept("d", "cached-d");
+
+    Map<String, String> values = getAll.apply(
+      List.of("a", "b", "c", "absent", "d", "a"),
+      bulkLoader
+    );
+    assertEquals(
+      List.of("a", "b", "c", "d"),
+      new ArrayList<>(values.keySet())
+    );
+    assertEquals("loaded-a", values.get("a"));
+    assertEquals("cached-b", values.get("b"));
+    assertEquals(List.of(Set.of("a", "c", "absent")), calls);
+
+    // the loaded keys are cached, the absent one is asked for again
+    values = getAll.apply(List.of("a", "c", "absent"), bulkLoader);
+    assertEquals(Map.of("a", "loaded-a", "c", "loaded-c"), values);
+    assertEquals(Set.of("absent"), calls.get(1));
+
+    calls.clear();
+    assertEquals(
+      Map.of("b", "cached-b"),
+      getAll.apply(List.of("b"), bulkLoader)
+    );
+    assertTrue(calls.isEmpty());
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(10, TimeUnit.SECONDS);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
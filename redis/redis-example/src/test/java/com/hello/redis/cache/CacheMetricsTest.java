@@ -0,0 +1,144 @@
+package com.hello.redis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the meters the cache wrappers publish through {@link CacheMetrics}.
+ */
+public class CacheMetricsTest {
+
+  private final MeterRegistry registry = new SimpleMeterRegistry();
+  private final AtomicLong clock = new AtomicLong(1_000_000);
+
+  @Test
+  public void testCustomConcurrentMapCache() {
+    CustomConcurrentMapCache<String, String> cache =
+      new CustomConcurrentMapCache<>(1000, 3, null, clock::get);
+    cache.registerMetrics(registry, "custom");
+
+    assertEquals("A", cache.get("a", String::toUpperCase));
+    assertEquals("A", cache.get("a", String::toUpperCase));
+    assertNull(cache.getIfPresent("b"));
+    assertThrows(
+      IllegalStateException.class,
+      () ->
+        cache.get(
+          "c",
+          k -> {
+            throw new IllegalStateException("loader failed");
+          }
+        )
+    );
+    assertEquals(1, gets("custom", "hit"));
+    assertEquals(3, gets("custom", "miss"));
+    assertEquals(1, loads("custom", "success").count());
+    assertEquals(1, loads("custom", "failure").count());
+    assertEquals(
+      3,
+      loads("custom", "success").takeSnapshot().percentileValues().length
+    );
+
+    for (int i = 0; i < 4; i++) {
+      cache.put("key" + i, "value");
+    }
+    cache.cleanUp();
+    assertEquals(2, evictions("custom", "size"));
+    assertEquals(3, gauge("cache.size", "custom"));
+    assertEquals(3, gauge("cache.weighted.size", "custom"));
+
+    clock.addAndGet(1001);
+    cache.cleanUp();
+    assertEquals(3, evictions("custom", "expired"));
+    assertEquals(
+      5,
+      registry
+        .get("cache.eviction.weight")
+        .tag("cache", "custom")
+        .functionCounter()
+        .count()
+    );
+    assertEquals(0, gauge("cache.size", "custom"));
+  }
+
+  @Test
+  public void testGuavaLoadingCache() {
+    GuavaLoadingCache<String, String> cache = new GuavaLoadingCache<>(
+      String::toUpperCase,
+      2,
+      60
+    );
+    cache.registerMetrics(registry, "guava");
+
+    assertEquals("A", cache.get("a"));
+    assertEquals("A", cache.get("a"));
+    assertEquals("B", cache.get("b", String::toUpperCase));
+    assertEquals("C", cache.get("c"));
+    assertThrows(
+      RuntimeException.class,
+      () ->
+        cache.get(
+          "d",
+          k -> {
+            throw new IllegalStateException("loader failed");
+          }
+        )
+    );
+    assertEquals(1, gets("guava", "hit"));
+    assertEquals(4, gets("guava", "miss"));
+    assertEquals(3, loads("guava", "success").count());
+    assertEquals(1, loads("guava", "failure").count());
+    assertEquals(1, evictions("guava", "size"));
+    assertEquals(2, gauge("cache.size", "guava"));
+  }
+
+  @Test
+  public void testCaffeineCache() {
+    CaffeineCache<String, String> cache = new CaffeineCache<>(100, 60);
+    cache.registerMetrics(registry, "caffeine");
+
+    assertEquals("A", cache.get("a", String::toUpperCase));
+    assertEquals("A", cache.get("a", String::toUpperCase));
+    assertNull(cache.getIfPresent("b"));
+    assertEquals(1, gets("caffeine", "hit"));
+    assertEquals(2, gets("caffeine", "miss"));
+    assertEquals(1, loads("caffeine", "success").count());
+    assertEquals(0, loads("caffeine", "failure").count());
+    assertEquals(1, gauge("cache.size", "caffeine"));
+    assertEquals(1, gauge("cache.weighted.size", "caffeine"));
+    // Caffeine's own statistics read the same counters
+    assertTrue(cache.stats().contains("hitCount=1"), cache.stats());
+  }
+
+  private double gets(String cache, String result) {
+    return registry
+      .get("cache.gets")
+      .tags("cache", cache, "result", result)
+      .functionCounter()
+      .count();
+  }
+
+  private Timer loads(String cache, String result) {
+    return registry
+      .get("cache.loads")
+      .tags("cache", cache, "result", result)
+      .timer();
+  }
+
+  private double evictions(String cache, String cause) {
+    return registry
+      .get("cache.evictions")
+      .tags("cache", cache, "cause", cause)
+      .functionCounter()
+      .count();
+  }
+
+  private double gauge(String name, String cache) {
+    return registry.get(name).tag("cache", cache).gauge().value();
+  }
+}
@@ -2,6 +2,7 @@ package com.hello.redis.cache;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.Test;
 
@@ -138,4 +139,39 @@ public class CacheTest {
     // Check the size after invalidation
     assertEquals(0, cache.estimatedSize());
   }
+
+  /**
+   * Test that the three implementations behave the same through the LocalCache interface.
+   */
+  @Test
+  public void testLocalCacheInterface() {
+    List<LocalCache<String, String>> caches = List.of(
+      new CustomConcurrentMapCache<>(TimeUnit.SECONDS.toMillis(5)),
+      new GuavaLoadingCache<>(key -> "loaded-" + key),
+      new CaffeineCache<>()
+    );
+    for (LocalCache<String, String> cache : caches) {
+      String name = cache.getClass().getSimpleName();
+
+      // Get a non-existent value, which should be computed using the provided function
+      assertNull(cache.getIfPresent("key1"), name);
+      assertEquals(
+        "computed-key1",
+        cache.get("key1", k -> "computed-" + k),
+        name
+      );
+      assertEquals("computed-key1", cache.getIfPresent("key1"), name);
+
+      // Put and invalidate a value
+      cache.put("key2", "value2");
+      assertEquals("value2", cache.get("key2", k -> "computed-" + k), name);
+      cache.invalidate("key2");
+      assertNull(cache.getIfPresent("key2"), name);
+      assertEquals(1, cache.estimatedSize(), name);
+
+      // Invalidate all entries
+      cache.invalidateAll();
+      assertEquals(0, cache.estimatedSize(), name);
+    }
+  }
 }
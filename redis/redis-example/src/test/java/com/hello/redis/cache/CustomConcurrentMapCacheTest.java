@@ -0,0 +1,340 @@
+package com.hello.redis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the timer wheel based expiration, the size bound and the loading of
+ * {@link CustomConcurrentMapCache} with a manual clock.
+ */
+public class CustomConcurrentMapCacheTest {
+
+  private final AtomicLong clock = new AtomicLong(1_000_000);
+
+  /**
+   * Entries on every wheel level expire at their own deadline.
+   */
+  @Test
+  public void testExpirationAcrossWheelLevels() {
+    CustomConcurrentMapCache<String, String> cache =
+      new CustomConcurrentMapCache<>(TimeUnit.HOURS.toMillis(1), clock::get);
+
+    cache.put("10ms", "a", 10);
+    cache.put("5s", "b", TimeUnit.SECONDS.toMillis(5));
+    cache.put("10m", "c", TimeUnit.MINUTES.toMillis(10));
+    cache.put("2h", "d", TimeUnit.HOURS.toMillis(2));
+    cache.put("30d", "e", TimeUnit.DAYS.toMillis(30));
+    assertEquals(5, cache.size());
+
+    clock.addAndGet(10);
+    assertEquals(5, cache.size());
+    clock.addAndGet(1);
+    assertEquals(4, cache.size());
+
+    clock.addAndGet(TimeUnit.SECONDS.toMillis(5));
+    assertEquals(3, cache.size());
+    clock.addAndGet(TimeUnit.MINUTES.toMillis(10));
+    assertEquals(2, cache.size());
+    clock.addAndGet(TimeUnit.HOURS.toMillis(2));
+    assertEquals(1, cache.size());
+    // beyond the last level, the entry wraps around and is rescheduled
+    clock.addAndGet(TimeUnit.DAYS.toMillis(20));
+    assertEquals(1, cache.size());
+    clock.addAndGet(TimeUnit.DAYS.toMillis(10));
+    assertEquals(0, cache.size());
+  }
+
+  /**
+   * Reads treat expired entries as absent, and replaced entries are not
+   * removed by the deadline of the value they replaced.
+   */
+  @Test
+  public void testLazyExpirationAndReplacement() {
+    CustomConcurrentMapCache<String, String> cache =
+      new CustomConcurrentMapCache<>(100, clock::get);
+
+    cache.put("key", "old");
+    clock.addAndGet(50);
+    cache.put("key", "new", 1000);
+    clock.addAndGet(100);
+    assertEquals("new", cache.get("key", k -> "loaded"));
+    assertEquals(1, cache.size());
+
+    cache.put("short", "value", 10);
+    clock.addAndGet(11);
+    assertEquals("loaded", cache.get("short", k -> "loaded"));
+  }
+
+  /**
+   * After every maintenance pass the cache holds exactly the entries whose
+   * deadline has not passed.
+   */
+  @Test
+  public void testMatchesModelUnderRandomClock() {
+    CustomConcurrentMapCache<Integer, Integer> cache =
+      new CustomConcurrentMapCache<>(1000, clock::get);
+    Map<Integer, Long> deadlines = new HashMap<>();
+    Random random = new Random(42);
+
+    for (int round = 0; round < 1000; round++) {
+      for (int i = 0; i < 100; i++) {
+        int key = random.nextInt(5000);
+        long ttl = (long) Math.pow(10, random.nextInt(10)) + random.nextInt(50);
+        cache.put(key, key, ttl);
+        deadlines.put(key, clock.get() + ttl);
+      }
+      clock.addAndGet((long) Math.pow(2, random.nextInt(28)));
+      long now = clock.get();
+      deadlines.values().removeIf(deadline -> now > deadline);
+      assertEquals(deadlines.size(), cache.size(), "round " + round);
+    }
+  }
+
+  /**
+   * Frequently read entries survive a scan of one-hit keys that is much
+   * larger than the cache, where an LRU would keep only the scanned keys.
+   */
+  @Test
+  public void testMaximumSizeKeepsFrequentEntries() {
+    CustomConcurrentMapCache<Integer, Integer> cache =
+      new CustomConcurrentMapCache<>(
+        TimeUnit.HOURS.toMillis(1),
+        100,
+        null,
+        clock::get
+      );
+    for (int round = 0; round < 20; round++) {
+      for (int key = 0; key < 10; key++) {
+        cache.get(key, k -> k);
+      }
+    }
+    for (int key = 1000; key < 11_000; key++) {
+      cache.put(key, key);
+      if (key % 100 == 0) {
+        for (int hot = 0; hot < 10; hot++) {
+          cache.get(hot, k -> k);
+        }
+      }
+    }
+    assertEquals(100, cache.size());
+
+    AtomicInteger misses = new AtomicInteger();
+    for (int key = 0; key < 10; key++) {
+      cache.get(
+        key,
+        k -> {
+          misses.incrementAndGet();
+          return k;
+        }
+      );
+    }
+    assertEquals(0, misses.get());
+  }
+
+  /**
+   * The total weight stays within the maximum and an entry heavier than the
+   * maximum is not retained.
+   */
+  @Test
+  public void testMaximumWeight() {
+    CustomConcurrentMapCache<String, String> cache =
+      new CustomConcurrentMapCache<>(
+        TimeUnit.HOURS.toMillis(1),
+        1000,
+        (key, value) -> value.length(),
+        clock::get
+      );
+    for (int i = 0; i < 20; i++) {
+      cache.put("key" + i, "x".repeat(100));
+    }
+    assertEquals(10, cache.size());
+
+    cache.put("huge", "x".repeat(1001));
+    assertEquals(10, cache.size());
+    assertEquals("loaded", cache.get("huge", k -> "loaded"));
+
+    assertThrows(
+      IllegalArgumentException.class,
+      () ->
+        new CustomConcurrentMapCache<String, String>(
+          1000,
+          10,
+          (key, value) -> -1
+        )
+          .put("key", "value")
+    );
+  }
+
+  /**
+   * Concurrent readers and writers on a skewed key distribution never leave
+   * the cache above its bound once maintenance has run.
+   */
+  @Test
+  public void testBoundUnderConcurrentSkewedLoad() throws Exception {
+    CustomConcurrentMapCache<Integer, Integer> cache =
+      new CustomConcurrentMapCache<>(TimeUnit.HOURS.toMillis(1), 500);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        futures.add(
+          executor.submit(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < 100_000; i++) {
+              // roughly half of the operations hit the 64 hottest keys
+              int key = random.nextBoolean()
+                ? random.nextInt(64)
+                : random.nextInt(100_000);
+              if (i % 10 == 0) {
+                cache.remove(key);
+              } else {
+                assertEquals(key, cache.get(key, k -> k));
+              }
+            }
+          })
+        );
+      }
+      for (Future<?> future : futures) {
+        future.get(60, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertTrue(cache.size() <= 500);
+  }
+
+  /**
+   * Concurrent misses on one key call the loader once and share its value
+   * or its exception.
+   */
+  @Test
+  public void testConcurrentMissesShareOneLoad() throws Exception {
+    CustomConcurrentMapCache<String, String> cache =
+      new CustomConcurrentMapCache<>(100, clock::get);
+    AtomicInteger loads = new AtomicInteger();
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(16);
+    try {
+      for (int expiry = 0; expiry < 3; expiry++) {
+        List<Future<String>> futures = new ArrayList<>();
+        CountDownLatch ready = new CountDownLatch(16);
+        CountDownLatch loaded = new CountDownLatch(1);
+        for (int t = 0; t < 16; t++) {
+          futures.add(
+            executor.submit(() -> {
+              ready.countDown();
+              return cache.get(
+                "hot",
+                k -> {
+                  loads.incrementAndGet();
+                  try {
+                    // hold the load until every caller has missed
+                    ready.await();
+                    Thread.sleep(50);
+                  } catch (InterruptedException ex) {
+                    throw new IllegalStateException(ex);
+                  }
+                  return "value" + loads.get();
+                }
+              );
+            })
+          );
+        }
+        for (Future<String> future : futures) {
+          assertEquals(
+            "value" + (expiry + 1),
+            future.get(10, TimeUnit.SECONDS)
+          );
+        }
+        assertEquals(expiry + 1, loads.get());
+        clock.addAndGet(101);
+      }
+
+      List<Future<String>> failures = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        failures.add(
+          executor.submit(() ->
+            cache.get(
+              "broken",
+              k -> {
+                loads.incrementAndGet();
+                try {
+                  release.await();
+                } catch (InterruptedException ex) {
+                  throw new IllegalStateException(ex);
+                }
+                throw new IllegalStateException("backend down");
+              }
+            )
+          )
+        );
+      }
+      Thread.sleep(100);
+      release.countDown();
+      for (Future<String> future : failures) {
+        Exception ex = assertThrows(
+          Exception.class,
+          () -> future.get(10, TimeUnit.SECONDS)
+        );
+        assertEquals("backend down", ex.getCause().getMessage());
+      }
+      assertTrue(loads.get() < 3 + 8, "failed load was not shared");
+      // the failure is not cached
+      assertEquals("recovered", cache.get("broken", k -> "recovered"));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * An expired entry within the stale window is served while a single
+   * background reload replaces it.
+   */
+  @Test
+  public void testStaleWhileRevalidate() {
+    CustomConcurrentMapCache<String, String> cache =
+      new CustomConcurrentMapCache<>(100, clock::get);
+    ArrayDeque<Runnable> refreshes = new ArrayDeque<>();
+    cache.setStaleWhileRevalidate(1000, refreshes::add);
+    AtomicInteger loads = new AtomicInteger();
+
+    cache.put("key", "v0");
+    clock.addAndGet(150);
+    for (int i = 0; i < 5; i++) {
+      assertEquals("v0", cache.get("key", k -> "v" + loads.incrementAndGet()));
+    }
+    assertEquals(1, refreshes.size());
+    assertEquals(0, loads.get());
+    refreshes.poll().run();
+    assertEquals("v1", cache.get("key", k -> "v" + loads.incrementAndGet()));
+    assertTrue(refreshes.isEmpty());
+
+    // a write during the reload wins over the reloaded value
+    clock.addAndGet(150);
+    cache.get("key", k -> "reloaded");
+    cache.put("key", "written");
+    refreshes.poll().run();
+    assertEquals("written", cache.get("key", k -> "reloaded"));
+
+    // past the stale window the caller loads synchronously
+    clock.addAndGet(1200);
+    assertEquals("sync", cache.get("key", k -> "sync"));
+    assertTrue(refreshes.isEmpty());
+    assertEquals(1, cache.size());
+  }
+}
@@ -0,0 +1,142 @@
+package com.hello.redis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the open-addressing table, the expiration and the optimistic reads
+ * of {@link LongKeyCache} with a manual clock.
+ */
+public class LongKeyCacheTest {
+
+  private final AtomicLong clock = new AtomicLong(1_000_000);
+
+  @Test
+  public void testLoadPutAndRemove() {
+    LongKeyCache<String> cache = new LongKeyCache<>(1000, 0, clock::get);
+    assertEquals("user-0", cache.get(0, id -> "user-" + id));
+    assertEquals("user-0", cache.get(0, id -> "reloaded"));
+    assertNull(cache.get(-1, id -> null));
+    assertNull(cache.getIfPresent(-1));
+
+    cache.put(Long.MIN_VALUE, "min");
+    cache.put(Long.MAX_VALUE, "max", Long.MAX_VALUE);
+    assertEquals("min", cache.getIfPresent(Long.MIN_VALUE));
+    assertEquals("max", cache.getIfPresent(Long.MAX_VALUE));
+    assertEquals(3, cache.estimatedSize());
+
+    assertEquals("min", cache.remove(Long.MIN_VALUE));
+    assertNull(cache.remove(Long.MIN_VALUE));
+    assertNull(cache.getIfPresent(Long.MIN_VALUE));
+    cache.clear();
+    assertEquals(0, cache.estimatedSize());
+    assertNull(cache.getIfPresent(0));
+  }
+
+  /**
+   * Expired entries are absent at once and dropped when the table is
+   * rehashed, while entries with a later deadline survive.
+   */
+  @Test
+  public void testExpiration() {
+    LongKeyCache<String> cache = new LongKeyCache<>(1000, 0, clock::get);
+    for (long id = 0; id < 1000; id++) {
+      cache.put(id, "short");
+    }
+    cache.put(5000, "long", TimeUnit.HOURS.toMillis(1));
+    clock.addAndGet(1000);
+    assertNull(cache.getIfPresent(1));
+    assertEquals("long", cache.getIfPresent(5000));
+    // an expired entry is overwritten in place
+    cache.put(1, "again");
+    assertEquals("again", cache.getIfPresent(1));
+    assertEquals(1001, cache.estimatedSize());
+
+    cache.cleanUp();
+    assertEquals(2, cache.estimatedSize());
+    assertEquals("long", cache.getIfPresent(5000));
+    assertEquals("again", cache.getIfPresent(1));
+  }
+
+  /**
+   * Random puts and removals on keys that collide in the low bits keep the
+   * cache equal to a HashMap, which checks the backward shift on removal and
+   * the rehashing as segments grow and shrink.
+   */
+  @Test
+  public void testMatchesHashMap() {
+    LongKeyCache<Long> cache = new LongKeyCache<>(
+      TimeUnit.HOURS.toMillis(1),
+      0,
+      clock::get
+    );
+    Map<Long, Long> expected = new HashMap<>();
+    Random random = new Random(42);
+    for (int i = 0; i < 200_000; i++) {
+      long key = (long) random.nextInt(5000) << 40;
+      if (random.nextInt(3) == 0) {
+        assertEquals(expected.remove(key), cache.remove(key));
+      } else {
+        long value = random.nextLong();
+        cache.put(key, value);
+        expected.put(key, value);
+      }
+      if (i % 50_000 == 0) {
+        cache.cleanUp();
+      }
+    }
+    assertEquals(expected.size(), cache.estimatedSize());
+    for (long key = 0; key < 5000; key++) {
+      assertEquals(expected.get(key << 40), cache.getIfPresent(key << 40));
+    }
+  }
+
+  /**
+   * Readers never see the value of another key while writers insert, remove
+   * and rehash the same segments.
+   */
+  @Test
+  public void testOptimisticReadsDuringWrites() throws Exception {
+    LongKeyCache<Long> cache = new LongKeyCache<>(TimeUnit.HOURS.toMillis(1));
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        boolean writer = t % 2 == 0;
+        futures.add(
+          executor.submit(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < 500_000; i++) {
+              long key = random.nextLong(20_000);
+              if (!writer) {
+                Long value = cache.getIfPresent(key);
+                assertTrue(value == null || value == key, "key " + key);
+              } else if (random.nextBoolean()) {
+                cache.put(key, key);
+              } else {
+                cache.remove(key);
+              }
+            }
+          })
+        );
+      }
+      for (Future<?> future : futures) {
+        future.get(60, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
@@ -0,0 +1,233 @@
+package com.hello.redis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the slab allocation, eviction and zero-copy reads of
+ * {@link OffHeapCache}, and {@link TieredCache} on top of it.
+ */
+public class OffHeapCacheTest {
+
+  private static final int PAGE_SIZE = 4096;
+
+  @Test
+  public void testReadsInPlace() throws IOException {
+    try (
+      OffHeapCache<String> cache = new OffHeapCache<>(4 * PAGE_SIZE, PAGE_SIZE)
+    ) {
+      assertTrue(cache.put("key", bytes("hello off heap")));
+      assertNull(cache.get("missing"));
+
+      try (OffHeapValue value = cache.get("key")) {
+        assertEquals(14, value.length());
+        assertTrue(value.buffer().isDirect());
+        assertTrue(value.buffer().isReadOnly());
+        assertEquals(
+          "hello off heap",
+          StandardCharsets.UTF_8.decode(value.buffer()).toString()
+        );
+        assertEquals(
+          "hello off heap",
+          new String(value.inputStream().readAllBytes(), StandardCharsets.UTF_8)
+        );
+        assertArrayEquals(bytes("hello off heap"), value.toByteArray());
+      }
+
+      ByteBuffer source = ByteBuffer.wrap(bytes("--replaced--"));
+      source.position(2).limit(10);
+      assertTrue(cache.put("key", source));
+      assertEquals(2, source.position());
+      assertEquals("replaced", read(cache, "key"));
+      assertEquals(1, cache.estimatedSize());
+      assertEquals(8, cache.weightedSize());
+
+      assertTrue(cache.invalidate("key"));
+      assertFalse(cache.invalidate("key"));
+      assertEquals(0, cache.weightedSize());
+      assertFalse(cache.put("huge", new byte[PAGE_SIZE + 1]));
+    }
+  }
+
+  /**
+   * A value stays readable through an open handle after it is replaced or
+   * evicted, and its memory is reused once the handle is closed.
+   */
+  @Test
+  public void testOpenHandlePinsMemory() {
+    try (
+      OffHeapCache<Integer> cache = new OffHeapCache<>(PAGE_SIZE, PAGE_SIZE)
+    ) {
+      // a single chunk of the largest class
+      assertTrue(cache.put(1, filled(3000, (byte) 1)));
+      OffHeapValue pinned = cache.get(1);
+      assertFalse(cache.put(2, filled(3000, (byte) 2)));
+      // the entry is evicted, its chunk is not
+      assertFalse(cache.containsKey(1));
+      assertTrue(Arrays.equals(filled(3000, (byte) 1), pinned.toByteArray()));
+
+      pinned.close();
+      pinned.close();
+      assertTrue(cache.put(2, filled(3000, (byte) 2)));
+      assertEquals(PAGE_SIZE, cache.allocatedBytes());
+    }
+  }
+
+  /**
+   * A value that cannot be stored drops the value cached before it.
+   */
+  @Test
+  public void testFailedPutDiscardsPreviousValue() {
+    try (
+      OffHeapCache<Integer> cache = new OffHeapCache<>(PAGE_SIZE, PAGE_SIZE)
+    ) {
+      assertTrue(cache.put(1, filled(100, (byte) 1)));
+      assertFalse(cache.put(1, filled(PAGE_SIZE + 1, (byte) 2)));
+      assertFalse(cache.containsKey(1));
+      assertNull(cache.get(1));
+    }
+  }
+
+  /**
+   * Least recently used entries are evicted first, and pages emptied by the
+   * eviction move to the size class that needs them.
+   */
+  @Test
+  public void testLruEvictionAcrossSizeClasses() {
+    try (
+      OffHeapCache<Integer> cache = new OffHeapCache<>(4 * PAGE_SIZE, PAGE_SIZE)
+    ) {
+      int key = 0;
+      while (cache.evictionCount() == 0) {
+        assertTrue(cache.put(key++, new byte[100]));
+        if (key > 2) {
+          // keep the first key recently used
+          cache.get(0).close();
+        }
+      }
+      assertTrue(cache.containsKey(0));
+      assertFalse(cache.containsKey(1));
+      assertEquals(4 * PAGE_SIZE, cache.allocatedBytes());
+
+      // values of another size class take over the pages of the small ones
+      for (int i = 0; i < 8; i++) {
+        assertTrue(cache.put(-i - 1, filled(1500, (byte) i)));
+      }
+      assertEquals(4 * PAGE_SIZE, cache.allocatedBytes());
+      for (int i = 0; i < 8; i++) {
+        try (OffHeapValue value = cache.get(-i - 1)) {
+          assertArrayEquals(filled(1500, (byte) i), value.toByteArray());
+        }
+      }
+      // two of them fit in a page, so every small value had to go
+      assertEquals(8, cache.estimatedSize());
+      assertEquals(8 * 1500, cache.weightedSize());
+    }
+  }
+
+  /**
+   * A value of a size class with no free chunk empties one page of another
+   * class, instead of evicting in global LRU order until some page happens to
+   * be empty.
+   */
+  @Test
+  public void testEvictionIsBoundedToOnePage() {
+    try (
+      OffHeapCache<Integer> cache = new OffHeapCache<>(4 * PAGE_SIZE, PAGE_SIZE)
+    ) {
+      // 100 bytes go to the 104 byte class
+      int perPage = PAGE_SIZE / 104;
+      int entries = 4 * perPage;
+      for (int key = 0; key < entries; key++) {
+        assertTrue(cache.put(key, new byte[100]));
+      }
+      assertEquals(0, cache.evictionCount());
+      // interleave the pages in the eviction order
+      for (int chunk = 0; chunk < perPage; chunk++) {
+        for (int page = 0; page < 4; page++) {
+          cache.get(page * perPage + chunk).close();
+        }
+      }
+
+      assertTrue(cache.put(-1, new byte[1000]));
+      assertEquals(perPage, cache.evictionCount());
+      assertEquals(entries - perPage + 1, cache.estimatedSize());
+      assertEquals(4 * PAGE_SIZE, cache.allocatedBytes());
+    }
+  }
+
+  /**
+   * The tiered cache serves heap misses from off-heap memory without
+   * calling the loader.
+   */
+  @Test
+  public void testTieredCache() {
+    CaffeineCache<String, String> heap = new CaffeineCache<>(100, 60);
+    try (
+      OffHeapCache<String> offHeap = new OffHeapCache<>(4 * PAGE_SIZE, PAGE_SIZE)
+    ) {
+      TieredCache<String, String> cache = new TieredCache<>(
+        heap,
+        offHeap,
+        value -> bytes(value),
+        OffHeapCacheTest::readString
+      );
+      AtomicInteger loads = new AtomicInteger();
+      assertEquals(
+        "{\"id\":1}",
+        cache.get(
+          "doc1",
+          k -> {
+            loads.incrementAndGet();
+            return "{\"id\":1}";
+          }
+        )
+      );
+      cache.put("doc2", "{\"id\":2}");
+      assertEquals(2, cache.estimatedSize());
+
+      // as if the heap tier had evicted them
+      heap.invalidateAll();
+      assertEquals("{\"id\":1}", cache.get("doc1", k -> "loaded"));
+      assertEquals("{\"id\":2}", cache.getIfPresent("doc2"));
+      assertEquals("{\"id\":2}", heap.getIfPresent("doc2"));
+      assertEquals(1, loads.get());
+
+      cache.invalidate("doc1");
+      assertFalse(offHeap.containsKey("doc1"));
+      assertNull(cache.getIfPresent("doc1"));
+    }
+  }
+
+  private static String read(OffHeapCache<String> cache, String key) {
+    try (OffHeapValue value = cache.get(key)) {
+      return new String(value.toByteArray(), StandardCharsets.UTF_8);
+    }
+  }
+
+  private static String readString(InputStream in) {
+    try {
+      return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+
+  private static byte[] bytes(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static byte[] filled(int length, byte value) {
+    byte[] bytes = new byte[length];
+    Arrays.fill(bytes, value);
+    return bytes;
+  }
+}
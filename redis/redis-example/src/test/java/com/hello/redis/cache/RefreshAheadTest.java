@@ -0,0 +1,133 @@
+package com.hello.redis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.google.common.base.Ticker;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that refreshAfterWrite reloads entries in the background, so reads
+ * across a refresh boundary keep their latency while the slow loader runs.
+ */
+public class RefreshAheadTest {
+
+  private static final long LOAD_MILLIS = 100;
+  private static final int REFRESHES = 5;
+
+  private final AtomicLong nanos = new AtomicLong();
+  private final AtomicInteger loads = new AtomicInteger();
+  private final ExecutorService backend = Executors.newCachedThreadPool();
+
+  /** a slow backend returning the number of the load */
+  private final Function<String, CompletableFuture<String>> loader = key -> {
+    int load = loads.incrementAndGet();
+    if (load == 1) {
+      // the async cache records the write time when an in-flight load
+      // completes, which could race with the first advance of the ticker
+      return CompletableFuture.completedFuture(key + load);
+    }
+    return CompletableFuture.supplyAsync(
+      () -> {
+        sleep(LOAD_MILLIS);
+        return key + load;
+      },
+      backend
+    );
+  };
+
+  @AfterEach
+  public void shutdown() {
+    backend.shutdownNow();
+  }
+
+  @Test
+  public void testCaffeineCache() {
+    CaffeineCache<String, String> cache = new CaffeineCache<>(
+      100,
+      3600,
+      60,
+      loader,
+      nanos::get
+    );
+    assertLatencyFlatAcrossRefreshes(cache::get);
+  }
+
+  @Test
+  public void testGuavaLoadingCache() {
+    GuavaLoadingCache<String, String> cache = new GuavaLoadingCache<>(
+      loader,
+      100,
+      3600,
+      60,
+      new Ticker() {
+        @Override
+        public long read() {
+          return nanos.get();
+        }
+      }
+    );
+    assertLatencyFlatAcrossRefreshes(cache::get);
+  }
+
+  @Test
+  public void testAsyncCaffeineCache() {
+    AsyncCaffeineCache<String, String> cache = new AsyncCaffeineCache<>(
+      100,
+      3600,
+      60,
+      loader,
+      nanos::get
+    );
+    assertLatencyFlatAcrossRefreshes(key -> cache.get(key).join());
+  }
+
+  /**
+   * Crosses the refresh interval several times, reading until the reloaded
+   * value shows up, and checks that each crossing triggered one reload and
+   * that the p99 read latency stayed far below the loader's latency.
+   */
+  private void assertLatencyFlatAcrossRefreshes(Function<String, String> get) {
+    assertEquals("key1", get.apply("key"));
+    List<Long> latencies = new ArrayList<>();
+    for (int refresh = 1; refresh <= REFRESHES; refresh++) {
+      nanos.addAndGet(TimeUnit.SECONDS.toNanos(61));
+      String expected = "key" + (refresh + 1);
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+      String value;
+      do {
+        assertTrue(System.nanoTime() < deadline, "reload did not complete");
+        long start = System.nanoTime();
+        value = get.apply("key");
+        latencies.add(System.nanoTime() - start);
+        sleep(1);
+      } while (!expected.equals(value));
+    }
+    assertEquals(1 + REFRESHES, loads.get());
+
+    Collections.sort(latencies);
+    long p99 = latencies.get((int) (latencies.size() * 0.99));
+    assertTrue(
+      p99 < TimeUnit.MILLISECONDS.toNanos(LOAD_MILLIS / 4),
+      "p99 " + p99 + "ns over " + latencies.size() + " reads"
+    );
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
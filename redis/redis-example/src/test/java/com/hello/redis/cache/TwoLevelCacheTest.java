@@ -0,0 +1,134 @@
+package com.hello.redis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RBucket;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.listener.MessageListener;
+
+/**
+ * Tests {@link TwoLevelCache} against an in-memory stand-in for Redis that
+ * is shared by two instances, as if they ran in two JVMs.
+ */
+public class TwoLevelCacheTest {
+
+  private final Map<String, Object> redis = new ConcurrentHashMap<>();
+  private final List<MessageListener<Object>> subscribers =
+    new CopyOnWriteArrayList<>();
+  private final RedissonClient redisson = fakeRedisson();
+
+  /**
+   * Reads go to the local cache, then Redis, then the loader.
+   */
+  @Test
+  public void testReadThroughBothLevels() {
+    AtomicInteger loads = new AtomicInteger();
+    try (
+      TwoLevelCache<String, String> first = newCache();
+      TwoLevelCache<String, String> second = newCache()
+    ) {
+      assertEquals(
+        "loaded",
+        first.get(
+          "key",
+          k -> {
+            loads.incrementAndGet();
+            return "loaded";
+          }
+        )
+      );
+      assertEquals("loaded", redis.get("users:key"));
+      assertEquals("loaded", first.get("key", k -> "unused"));
+      assertEquals("loaded", second.get("key", k -> "unused"));
+      assertEquals("loaded", second.get("key", k -> "unused"));
+      assertEquals(1, loads.get());
+
+      assertEquals(0.5, first.localHitRatio());
+      assertEquals(0.0, first.remoteHitRatio());
+      assertEquals(0.5, second.localHitRatio());
+      assertEquals(1.0, second.remoteHitRatio());
+      assertEquals(1, first.missCount());
+      assertEquals(2, second.hitCount());
+    }
+  }
+
+  /**
+   * A write in one instance drops the stale local copy in the other.
+   */
+  @Test
+  public void testInvalidationIsBroadcast() {
+    try (
+      TwoLevelCache<String, String> first = newCache();
+      TwoLevelCache<String, String> second = newCache()
+    ) {
+      first.put("key", "v1");
+      assertEquals("v1", second.get("key", k -> "loaded"));
+
+      first.put("key", "v2");
+      assertEquals("v2", second.get("key", k -> "loaded"));
+      assertEquals("v2", first.get("key", k -> "loaded"));
+
+      second.invalidate("key");
+      assertNull(redis.get("users:key"));
+      assertEquals("loaded", first.get("key", k -> "loaded"));
+
+      second.get("other", k -> "value");
+      first.invalidateAllLocal();
+      redis.put("users:other", "changed");
+      assertEquals("changed", second.get("other", k -> "loaded"));
+    }
+  }
+
+  private TwoLevelCache<String, String> newCache() {
+    return new TwoLevelCache<>(
+      "users",
+      new CaffeineCache<>(100, 60),
+      redisson,
+      Duration.ofMinutes(10)
+    );
+  }
+
+  @SuppressWarnings("unchecked")
+  private RedissonClient fakeRedisson() {
+    RedissonClient client = mock(RedissonClient.class);
+    when(client.getBucket(anyString()))
+      .thenAnswer(invocation -> {
+        String name = invocation.getArgument(0);
+        RBucket<Object> bucket = mock(RBucket.class);
+        when(bucket.get()).thenAnswer(get -> redis.get(name));
+        when(bucket.delete()).thenAnswer(delete -> redis.remove(name) != null);
+        doAnswer(set -> redis.put(name, set.getArgument(0)))
+          .when(bucket)
+          .set(any(), any(Duration.class));
+        return bucket;
+      });
+    RTopic topic = mock(RTopic.class);
+    when(topic.addListener(any(Class.class), any(MessageListener.class)))
+      .thenAnswer(invocation -> {
+        subscribers.add(invocation.getArgument(1));
+        return subscribers.size();
+      });
+    when(topic.publish(any()))
+      .thenAnswer(invocation -> {
+        for (MessageListener<Object> subscriber : subscribers) {
+          subscriber.onMessage("users:invalidations", invocation.getArgument(0));
+        }
+        return (long) subscribers.size();
+      });
+    when(client.getTopic(anyString())).thenReturn(topic);
+    return client;
+  }
+}
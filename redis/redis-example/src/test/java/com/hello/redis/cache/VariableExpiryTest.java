@@ -0,0 +1,131 @@
+package com.hello.redis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.hello.redis.cache.CaffeineCache.ExpiringValue;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the per-entry time to live of {@link CaffeineCache} with a manual
+ * ticker.
+ */
+public class VariableExpiryTest {
+
+  private final AtomicLong nanos = new AtomicLong();
+
+  @Test
+  public void testPutWithTtl() {
+    CaffeineCache<String, String> cache = new CaffeineCache<>(
+      100,
+      Duration.ofMinutes(1),
+      0,
+      null,
+      nanos::get
+    );
+    cache.put("short", "a", Duration.ofSeconds(1));
+    cache.put("long", "b", Duration.ofHours(1));
+    cache.put("default", "c");
+
+    advance(Duration.ofSeconds(1));
+    assertNull(cache.getIfPresent("short"));
+    assertEquals("b", cache.getIfPresent("long"));
+    assertEquals("c", cache.getIfPresent("default"));
+
+    // a plain put starts the default time to live again
+    cache.put("long", "b2");
+    advance(Duration.ofMinutes(1));
+    assertNull(cache.getIfPresent("default"));
+    assertNull(cache.getIfPresent("long"));
+  }
+
+  /**
+   * The loader decides the time to live of each value it returns, here one
+   * second per character of the key.
+   */
+  @Test
+  public void testLoaderReturnsTtl() {
+    AtomicInteger loads = new AtomicInteger();
+    CaffeineCache<String, String> cache = new CaffeineCache<>(
+      100,
+      Duration.ofMinutes(1),
+      0,
+      key -> {
+        loads.incrementAndGet();
+        return ExpiringValue.of(
+          "loaded-" + key,
+          Duration.ofSeconds(key.length())
+        );
+      },
+      nanos::get
+    );
+    assertEquals("loaded-a", cache.get("a"));
+    assertEquals("loaded-abc", cache.get("abc"));
+    assertEquals(2, loads.get());
+
+    advance(Duration.ofSeconds(1));
+    assertNull(cache.getIfPresent("a"));
+    assertEquals("loaded-abc", cache.get("abc"));
+    assertEquals("loaded-a", cache.get("a"));
+    assertEquals(3, loads.get());
+
+    advance(Duration.ofSeconds(2));
+    assertNull(cache.getIfPresent("abc"));
+    // values put directly still get the default time to live
+    cache.put("abc", "put");
+    advance(Duration.ofSeconds(59));
+    assertEquals("put", cache.getIfPresent("abc"));
+  }
+
+  /**
+   * Entries written together expire spread over the jitter window instead of
+   * at the same moment, and never later than their time to live.
+   */
+  @Test
+  public void testJitterSpreadsExpiration() {
+    CaffeineCache<Integer, Integer> cache = new CaffeineCache<>(
+      10_000,
+      Duration.ofSeconds(100),
+      0.2,
+      null,
+      nanos::get
+    );
+    for (int i = 0; i < 1000; i++) {
+      cache.put(i, i);
+    }
+    advance(Duration.ofSeconds(80).minusNanos(1));
+    assertEquals(1000, live(cache, 1000));
+
+    advance(Duration.ofSeconds(10));
+    int live = live(cache, 1000);
+    assertTrue(live > 300 && live < 700, "live at 90s: " + live);
+
+    advance(Duration.ofSeconds(10));
+    assertEquals(0, live(cache, 1000));
+  }
+
+  @Test
+  public void testFixedExpirationRejectsTtl() {
+    CaffeineCache<String, String> cache = new CaffeineCache<>(100, 60);
+    assertThrows(
+      IllegalStateException.class,
+      () -> cache.put("key", "value", Duration.ofSeconds(1))
+    );
+  }
+
+  private void advance(Duration duration) {
+    nanos.addAndGet(duration.toNanos());
+  }
+
+  private static int live(CaffeineCache<Integer, Integer> cache, int keys) {
+    int live = 0;
+    for (int i = 0; i < keys; i++) {
+      if (cache.getIfPresent(i) != null) {
+        live++;
+      }
+    }
+    return live;
+  }
+}
@@ -0,0 +1,75 @@
+package com.hello.redis.cache.benchmark;
+
+import com.hello.redis.cache.CustomConcurrentMapCache;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link CustomConcurrentMapCache} read and write latency as the
+ * number of entries grows. With the timer wheel both should track a plain
+ * {@link ConcurrentHashMap} lookup of the same size, which only grows with
+ * cache misses in the CPU; the previous full-map cleanup on every read grew
+ * linearly with {@code size}.
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *   -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args=ExpirationBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpirationBenchmark {
+
+  @Param({ "1000", "100000", "1000000" })
+  private int size;
+
+  private CustomConcurrentMapCache<Integer, Integer> cache;
+  private ConcurrentHashMap<Integer, Integer> baseline;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    cache = new CustomConcurrentMapCache<>(TimeUnit.HOURS.toMillis(1));
+    baseline = new ConcurrentHashMap<>();
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    for (int i = 0; i < size; i++) {
+      baseline.put(i, i);
+      // spread the deadlines so entries land on several wheel levels
+      cache.put(i, i, random.nextLong(1, TimeUnit.HOURS.toMillis(2)));
+    }
+  }
+
+  @Benchmark
+  public Integer get() {
+    int key = ThreadLocalRandom.current().nextInt(size);
+    return cache.get(key, k -> k);
+  }
+
+  @Benchmark
+  public Integer baselineGet() {
+    int key = ThreadLocalRandom.current().nextInt(size);
+    return baseline.get(key);
+  }
+
+  @Benchmark
+  public void put() {
+    int key = ThreadLocalRandom.current().nextInt(size);
+    cache.put(key, key);
+  }
+}
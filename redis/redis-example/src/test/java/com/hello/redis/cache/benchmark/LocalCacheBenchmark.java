@@ -0,0 +1,212 @@
+package com.hello.redis.cache.benchmark;
+
+import com.hello.redis.cache.CaffeineCache;
+import com.hello.redis.cache.CustomConcurrentMapCache;
+import com.hello.redis.cache.GuavaLoadingCache;
+import com.hello.redis.cache.LocalCache;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the {@link LocalCache} implementations on the same workload:
+ * keys drawn from a Zipfian, scrambled Zipfian or uniform distribution over
+ * ten times as many keys as the cache holds, read through the cache with a
+ * loader, or read and written in a 3:1 mix. A miss loads the key itself, so
+ * the hit ratio printed after each trial shows how well the eviction policy
+ * keeps the popular keys; throughput is the JMH score and the allocation
+ * rate per operation comes from the gc profiler.
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *   -Dexec.mainClass=com.hello.redis.cache.benchmark.LocalCacheBenchmarkRunner \
+ *   -Dexec.args="-p distribution=ZIPFIAN"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LocalCacheBenchmark {
+
+  /** number of pre-generated keys, each thread walks them from its own offset */
+  private static final int SAMPLES = 1 << 20;
+  private static final double ZIPF_EXPONENT = 0.99;
+
+  public enum Implementation {
+    CUSTOM {
+      @Override
+      LocalCache<Integer, Integer> create(int maximumSize) {
+        return new CustomConcurrentMapCache<>(
+          TimeUnit.HOURS.toMillis(1),
+          maximumSize
+        );
+      }
+    },
+    GUAVA {
+      @Override
+      LocalCache<Integer, Integer> create(int maximumSize) {
+        return new GuavaLoadingCache<>(
+          key -> key,
+          maximumSize,
+          TimeUnit.HOURS.toSeconds(1)
+        );
+      }
+    },
+    CAFFEINE {
+      @Override
+      LocalCache<Integer, Integer> create(int maximumSize) {
+        return new CaffeineCache<>(maximumSize, TimeUnit.HOURS.toSeconds(1));
+      }
+    };
+
+    abstract LocalCache<Integer, Integer> create(int maximumSize);
+  }
+
+  public enum Distribution {
+    ZIPFIAN,
+    /** Zipfian ranks hashed over the key space, so popular keys are not adjacent */
+    SCRAMBLED_ZIPFIAN,
+    UNIFORM,
+  }
+
+  @Param({ "CUSTOM", "GUAVA", "CAFFEINE" })
+  private Implementation implementation;
+
+  @Param({ "ZIPFIAN", "SCRAMBLED_ZIPFIAN", "UNIFORM" })
+  private Distribution distribution;
+
+  @Param({ "1000", "100000" })
+  private int maximumSize;
+
+  private LocalCache<Integer, Integer> cache;
+  private Integer[] keys;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    cache = implementation.create(maximumSize);
+    keys = generate(distribution, maximumSize * 10, new Random(42));
+    // start from a full cache
+    for (int i = 0; i < SAMPLES; i++) {
+      cache.get(keys[i], k -> k);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    long total = hits.sum() + misses.sum();
+    System.out.printf(
+      "%n%s %s maximumSize=%d hitRatio=%.4f size=%d%n",
+      implementation,
+      distribution,
+      maximumSize,
+      total == 0 ? 0.0 : (double) hits.sum() / total,
+      cache.estimatedSize()
+    );
+  }
+
+  /**
+   * Counts the hits and misses of one thread, added to the totals at the end
+   * of the trial so the measured loop does not contend on shared counters.
+   */
+  @State(Scope.Thread)
+  public static class ThreadState {
+
+    int index = ThreadLocalRandom.current().nextInt(SAMPLES);
+    long hits;
+    long misses;
+
+    @TearDown(Level.Trial)
+    public void tearDown(LocalCacheBenchmark benchmark) {
+      benchmark.hits.add(hits);
+      benchmark.misses.add(misses);
+    }
+  }
+
+  @Benchmark
+  public Integer read(ThreadState state) {
+    return get(state, keys[state.index++ & (SAMPLES - 1)]);
+  }
+
+  @Benchmark
+  public Integer readWrite(ThreadState state) {
+    int index = state.index++;
+    Integer key = keys[index & (SAMPLES - 1)];
+    if ((index & 3) == 0) {
+      cache.put(key, key);
+      return key;
+    }
+    return get(state, key);
+  }
+
+  private Integer get(ThreadState state, Integer key) {
+    Integer value = cache.getIfPresent(key);
+    if (value != null) {
+      state.hits++;
+      return value;
+    }
+    state.misses++;
+    return cache.get(key, k -> k);
+  }
+
+  /**
+   * Draws the keys up front so that generating them is not measured. Keys
+   * are boxed once here and shared, the caches under test should not be
+   * charged for the benchmark's own allocation.
+   */
+  static Integer[] generate(
+    Distribution distribution,
+    int keySpace,
+    Random random
+  ) {
+    double[] cumulative = null;
+    if (distribution != Distribution.UNIFORM) {
+      cumulative = new double[keySpace];
+      double sum = 0;
+      for (int rank = 0; rank < keySpace; rank++) {
+        sum += 1 / Math.pow(rank + 1, ZIPF_EXPONENT);
+        cumulative[rank] = sum;
+      }
+    }
+    Integer[] keys = new Integer[SAMPLES];
+    for (int i = 0; i < SAMPLES; i++) {
+      int key;
+      if (distribution == Distribution.UNIFORM) {
+        key = random.nextInt(keySpace);
+      } else {
+        double target = random.nextDouble() * cumulative[keySpace - 1];
+        int rank = Arrays.binarySearch(cumulative, target);
+        key = rank < 0 ? -rank - 1 : rank;
+        if (distribution == Distribution.SCRAMBLED_ZIPFIAN) {
+          key = (int) Long.remainderUnsigned(scramble(key), keySpace);
+        }
+      }
+      keys[i] = key;
+    }
+    return keys;
+  }
+
+  private static long scramble(long rank) {
+    long h = rank * 0x9E3779B97F4A7C15L;
+    return h ^ (h >>> 29);
+  }
+}
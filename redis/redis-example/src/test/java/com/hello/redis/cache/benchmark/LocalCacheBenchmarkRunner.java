@@ -0,0 +1,40 @@
+package com.hello.redis.cache.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs {@link LocalCacheBenchmark} once per thread count with the gc
+ * profiler, which adds the allocation rate per operation to the results.
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *   -Dexec.mainClass=com.hello.redis.cache.benchmark.LocalCacheBenchmarkRunner \
+ *   -Dexec.args="-p maximumSize=100000" -Dthreads=1,8
+ * </pre>
+ *
+ * The arguments are the same as the JMH command line; the system property
+ * threads lists the thread counts, 1,4,16,64 by default.
+ */
+public class LocalCacheBenchmarkRunner {
+
+  public static void main(String[] args)
+    throws RunnerException, CommandLineOptionException {
+    CommandLineOptions commandLine = new CommandLineOptions(args);
+    String[] threads = System.getProperty("threads", "1,4,16,64").split(",");
+    for (String thread : threads) {
+      Options options = new OptionsBuilder()
+        .parent(commandLine)
+        .include(LocalCacheBenchmark.class.getSimpleName())
+        .addProfiler(GCProfiler.class)
+        .threads(Integer.parseInt(thread.trim()))
+        .build();
+      new Runner(options).run();
+    }
+  }
+}
@@ -0,0 +1,110 @@
+package com.hello.redis.cache.benchmark;
+
+import com.hello.redis.cache.CustomConcurrentMapCache;
+import com.hello.redis.cache.LongKeyCache;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares {@link LongKeyCache} with {@link CustomConcurrentMapCache}, whose
+ * storage is a {@code ConcurrentHashMap<Long, CacheEntry>}, holding up to ten
+ * million entries keyed by sequential ids. Every entry shares one value, so
+ * the heap growth printed after filling the cache is the cost of the cache
+ * itself; throughput of reads of present keys and of overwrites is the JMH
+ * score, and {@code -prof gc} shows the allocation per operation.
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *   -Dexec.mainClass=org.openjdk.jmh.Main \
+ *   -Dexec.args="LongKeyCacheBenchmark -prof gc -t 4"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class LongKeyCacheBenchmark {
+
+  private static final Object VALUE = new Object();
+
+  public enum Implementation {
+    LONG_KEY,
+    CONCURRENT_MAP,
+  }
+
+  @Param({ "LONG_KEY", "CONCURRENT_MAP" })
+  private Implementation implementation;
+
+  @Param({ "1000000", "10000000" })
+  private int size;
+
+  private LongKeyCache<Object> longKeyCache;
+  private CustomConcurrentMapCache<Long, Object> mapCache;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    long expiration = TimeUnit.HOURS.toMillis(1);
+    long before = usedHeap();
+    if (implementation == Implementation.LONG_KEY) {
+      longKeyCache = new LongKeyCache<>(expiration);
+      for (long id = 0; id < size; id++) {
+        longKeyCache.put(id, VALUE);
+      }
+    } else {
+      mapCache = new CustomConcurrentMapCache<>(expiration);
+      for (long id = 0; id < size; id++) {
+        mapCache.put(id, VALUE);
+      }
+      mapCache.cleanUp();
+    }
+    long footprint = usedHeap() - before;
+    System.out.printf(
+      "%n%s size=%d footprint=%d MB, %.1f bytes per entry%n",
+      implementation,
+      size,
+      footprint >> 20,
+      (double) footprint / size
+    );
+  }
+
+  @Benchmark
+  public Object get() {
+    long id = ThreadLocalRandom.current().nextLong(size);
+    if (longKeyCache != null) {
+      return longKeyCache.getIfPresent(id);
+    }
+    return mapCache.getIfPresent(id);
+  }
+
+  @Benchmark
+  public void put() {
+    long id = ThreadLocalRandom.current().nextLong(size);
+    if (longKeyCache != null) {
+      longKeyCache.put(id, VALUE);
+    } else {
+      mapCache.put(id, VALUE);
+    }
+  }
+
+  private static long usedHeap() {
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+  }
+}